@@ -0,0 +1,120 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in {@link TreeBimap} with and without abbreviated keys.
+ * {@link #main} prints the number of comparator calls per lookup instead of timing.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AbbreviatedKeyBenchmark {
+    /**
+     * Natural ordering, which counts its calls.
+     */
+    private static class CountingComparator implements Comparator<String> {
+        long calls = 0;
+
+        @Override
+        public int compare(final String a, final String b) {
+            calls++;
+            return a.compareTo(b);
+        }
+    }
+
+    /**
+     * Abbreviates keys starting after a prefix shared by all of them.
+     */
+    private static final class CountingAbbreviatingComparator extends CountingComparator implements AbbreviatingComparator<String> {
+        private final int sharedPrefix;
+
+        private CountingAbbreviatingComparator(final int sharedPrefix) {
+            this.sharedPrefix = sharedPrefix;
+        }
+
+        @Override
+        public long abbreviate(final String key) {
+            return AbbreviatingComparator.prefix(key.substring(sharedPrefix));
+        }
+    }
+
+    public enum Keys {
+        RANDOM(""),
+        SHARED_PREFIX("urn:example:customer:");
+
+        private final String prefix;
+
+        Keys(final String prefix) {
+            this.prefix = prefix;
+        }
+    }
+
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"RANDOM", "SHARED_PREFIX"})
+    public Keys keys;
+
+    @Param({"false", "true"})
+    public boolean abbreviated;
+
+    private CountingComparator cmp;
+    private TreeBimap bimap;
+    private String[] lookups;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        cmp = abbreviated ? new CountingAbbreviatingComparator(keys.prefix.length()) : new CountingComparator();
+        bimap = new TreeBimap(cmp, Comparator.naturalOrder());
+        final Random random = new Random(5830712349857234L);
+        final String[] lefts = new String[size];
+        for (int i = 0; i < size; i++) {
+            final char[] chars = new char[12];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = (char) random.nextInt('a', 'z' + 1);
+            }
+            lefts[i] = keys.prefix + new String(chars);
+            bimap.put(lefts[i], Integer.toString(i));
+        }
+        lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            // Fresh strings, so that comparisons cannot be short-circuited by identity
+            lookups[i] = new String(lefts[random.nextInt(size)].toCharArray());
+        }
+        cmp.calls = 0;
+    }
+
+    @Benchmark
+    public String leftGet() {
+        final String result = bimap.left().get(lookups[position]);
+        position = (position + 1) & (LOOKUPS - 1);
+        return result;
+    }
+
+    public static void main(final String[] args) {
+        for (final Keys keys : Keys.values()) {
+            for (final boolean abbreviated : new boolean[]{false, true}) {
+                final AbbreviatedKeyBenchmark benchmark = new AbbreviatedKeyBenchmark();
+                benchmark.size = 1_000_000;
+                benchmark.keys = keys;
+                benchmark.abbreviated = abbreviated;
+                benchmark.setUp();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    benchmark.leftGet();
+                }
+                System.out.printf("%s, abbreviated=%s: %.2f comparator calls per lookup%n",
+                        keys, abbreviated, (double) benchmark.cmp.calls / LOOKUPS);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Updates and lookups of {@link TreeBimap} balanced by each {@link TreeBimap.Balancing} at a steady size:
+ * replacing random pairs, replacing the least pair with a greatest one as a queue does, and finding random keys.
+ * Delete-heavy churn removes random pairs one by one down to half the size, and puts them back in bulk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BalancingBenchmark {
+    @Param({"100000"})
+    public int size;
+
+    @Param({"AVL", "RED_BLACK", "WAVL", "WEIGHT"})
+    public TreeBimap.Balancing balancing;
+
+    private final Random random = new Random(1);
+    private TreeBimap bimap;
+    private String[] lefts;
+    private long next;
+    private long first;
+    private int live;
+    private HashBimap removed;
+
+    @Setup(Level.Iteration)
+    public void setup() {
+        bimap = new TreeBimap(new NaturalOrderingComparator<>(), new NaturalOrderingComparator<>(), balancing);
+        lefts = new String[size];
+        for (int i = 0; i < size; i++) {
+            lefts[i] = key(i);
+            bimap.put(lefts[i], Integer.toString(i));
+        }
+        first = 0;
+        next = size;
+        live = size;
+        removed = new HashBimap();
+    }
+
+    private static String key(final long i) {
+        return String.format("%012d", i);
+    }
+
+    @Benchmark
+    public String replaceRandom() {
+        final int i = random.nextInt(size);
+        final String removed = bimap.leftRemove(lefts[i]);
+        lefts[i] = key(next++);
+        bimap.put(lefts[i], removed);
+        return removed;
+    }
+
+    @Benchmark
+    public String replaceLeast() {
+        final String removed = bimap.leftRemove(key(first++));
+        bimap.put(key(next++), removed);
+        return removed;
+    }
+
+    @Benchmark
+    public String removeRandom() {
+        if (live == size / 2) {
+            bimap.putAll(removed);
+            removed.clear();
+            live = size;
+        }
+        final int i = random.nextInt(live);
+        final String left = lefts[i];
+        lefts[i] = lefts[--live];
+        lefts[live] = left;
+        final String right = bimap.leftRemove(left);
+        removed.put(left, right);
+        return right;
+    }
+
+    @Benchmark
+    public String get() {
+        return bimap.left().get(lefts[random.nextInt(size)]);
+    }
+}
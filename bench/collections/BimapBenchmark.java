@@ -0,0 +1,191 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Compares {@link TreeBimap}, {@link HashBimap} and {@link CompactTreeBimap} against the reference {@link SimpleBimap} implementations.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class BimapBenchmark {
+    public enum Implementation {
+        TREE_BIMAP(TreeBimap::new),
+        HASH_BIMAP(HashBimap::new),
+        COMPACT_TREE_BIMAP(CompactTreeBimap::new),
+        SIMPLE_TREE_MAP(SimpleBimap::new),
+        SIMPLE_HASH_MAP(() -> new SimpleBimap(HashMap::new));
+
+        private final Supplier<Bimap> factory;
+
+        Implementation(final Supplier<Bimap> factory) {
+            this.factory = factory;
+        }
+
+        public Bimap create() {
+            return factory.get();
+        }
+    }
+
+    /**
+     * Order in which the data is inserted and then accessed.
+     */
+    public enum Distribution {
+        RANDOM,
+        SORTED,
+        ZIPF
+    }
+
+    private static final int ACCESSES = 1 << 20;
+
+    @Param({"1000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"RANDOM", "SORTED", "ZIPF"})
+    public Distribution distribution;
+
+    @Param({"TREE_BIMAP", "HASH_BIMAP", "COMPACT_TREE_BIMAP", "SIMPLE_TREE_MAP", "SIMPLE_HASH_MAP"})
+    public Implementation implementation;
+
+    private String[] lefts;
+    private String[] rights;
+    private int[] accesses;
+    private Bimap bimap;
+    private Bimap source;
+    private int position;
+
+    private static String randomKey(final Random random) {
+        final char[] chars = new char[random.nextInt(8, 24)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) random.nextInt('a', 'z' + 1);
+        }
+        return new String(chars);
+    }
+
+    private static String[] uniqueKeys(final Random random, final int size) {
+        final Set<String> keys = new HashSet<>();
+        while (keys.size() < size) {
+            keys.add(randomKey(random));
+        }
+        return keys.toArray(String[]::new);
+    }
+
+    @Setup(Level.Trial)
+    public void setUpData() {
+        final Random random = new Random(2401768213458631L);
+        lefts = uniqueKeys(random, size);
+        rights = uniqueKeys(random, size);
+        if (distribution == Distribution.SORTED) {
+            Arrays.sort(lefts);
+        }
+
+        accesses = new int[ACCESSES];
+        for (int i = 0; i < ACCESSES; i++) {
+            accesses[i] = switch (distribution) {
+                case RANDOM -> random.nextInt(size);
+                case SORTED -> i % size;
+                // continuous approximation of Zipf's law with s = 1: rank = size ^ u
+                case ZIPF -> Math.min(size - 1, (int) Math.pow(size, random.nextDouble()) - 1);
+            };
+        }
+
+        source = new SimpleBimap(LinkedHashMap::new);
+        for (int i = 0; i < size; i++) {
+            source.put(lefts[i], rights[i]);
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void setUpBimap() {
+        bimap = implementation.create();
+        for (int i = 0; i < size; i++) {
+            bimap.put(lefts[i], rights[i]);
+        }
+        position = 0;
+    }
+
+    private int next() {
+        final int index = accesses[position];
+        position = (position + 1) & (ACCESSES - 1);
+        return index;
+    }
+
+    @Benchmark
+    public void put() {
+        final int i = next();
+        bimap.put(lefts[i], rights[i]);
+    }
+
+    /**
+     * Removes an entry and puts it back, so that the size of the bimap stays the same.
+     */
+    @Benchmark
+    public String leftRemove() {
+        final int i = next();
+        final String result = bimap.leftRemove(lefts[i]);
+        bimap.put(lefts[i], rights[i]);
+        return result;
+    }
+
+    /**
+     * Removes an entry and puts it back, so that the size of the bimap stays the same.
+     */
+    @Benchmark
+    public String rightRemove() {
+        final int i = next();
+        final String result = bimap.rightRemove(rights[i]);
+        bimap.put(lefts[i], rights[i]);
+        return result;
+    }
+
+    @Benchmark
+    public String leftGet() {
+        return bimap.left().get(lefts[next()]);
+    }
+
+    @Benchmark
+    public String rightGet() {
+        return bimap.right().get(rights[next()]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3)
+    @Measurement(iterations = 5)
+    public Bimap putAll() {
+        final Bimap result = implementation.create();
+        result.putAll(source);
+        return result;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void leftIterate(final Blackhole blackhole) {
+        for (final Map.Entry<String, String> entry : bimap.left().entrySet()) {
+            blackhole.consume(entry);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void rightIterate(final Blackhole blackhole) {
+        for (final Map.Entry<String, String> entry : bimap.right().entrySet()) {
+            blackhole.consume(entry);
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long leftParallelIterate() {
+        return bimap.left().entrySet().parallelStream().mapToInt(entry -> entry.getKey().length()).sum();
+    }
+}
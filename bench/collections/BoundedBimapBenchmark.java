@@ -0,0 +1,74 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of {@link BoundedBimap} as a cache of keys drawn from a Zipf distribution, looked up from alternating
+ * sides and loaded on misses. The hit rate of each trial is printed at its end. Run with {@code -t} for contention.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BoundedBimapBenchmark {
+    private static final int KEYS = 1 << 20;
+    private static final int SAMPLES = 1 << 22;
+
+    @Param({"LRU", "LFU", "WINDOW_TINY_LFU"})
+    public BoundedBimap.Eviction eviction;
+
+    @Param({"16384"})
+    public int maximum;
+
+    @Param({"0.9"})
+    public double skew;
+
+    private BoundedBimap bimap;
+    private String[] samples;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final double[] cumulative = new double[KEYS];
+        double sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += 1 / Math.pow(i + 1, skew);
+            cumulative[i] = sum;
+        }
+        final SplittableRandom random = new SplittableRandom(1);
+        samples = new String[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            final int found = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            samples[i] = "key" + (found < 0 ? -found - 1 : found);
+        }
+        bimap = new BoundedBimap(maximum, eviction);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.out.println(eviction + " " + bimap.stats() + " hit rate " + bimap.stats().hitRate());
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private int next = new SplittableRandom(Thread.currentThread().getId()).nextInt(SAMPLES);
+    }
+
+    @Benchmark
+    public String getOrLoad(final ThreadState state) {
+        final String key = samples[state.next++ & (SAMPLES - 1)];
+        if ((state.next & 1) == 0) {
+            return bimap.computeRightIfAbsent(key, left -> "value" + left.substring(3));
+        }
+        final String found = bimap.right().get("value" + key.substring(3));
+        if (found == null) {
+            bimap.put(key, "value" + key.substring(3));
+        }
+        return found;
+    }
+}
@@ -0,0 +1,70 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.text.Collator;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups in {@link TreeBimap} ordered by a {@link Collator} directly and through {@link CollatingComparator},
+ * against natural ordering.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CollationBenchmark {
+    public enum Ordering {
+        NATURAL, COLLATOR, COLLATING
+    }
+
+    private static final int LOOKUPS = 1 << 16;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"NATURAL", "COLLATOR", "COLLATING"})
+    public Ordering ordering;
+
+    private TreeBimap bimap;
+    private String[] lookups;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Collator collator = Collator.getInstance(Locale.GERMAN);
+        final Comparator<? super String> cmp = switch (ordering) {
+            case NATURAL -> new NaturalOrderingComparator<>();
+            case COLLATOR -> collator;
+            case COLLATING -> new CollatingComparator(collator);
+        };
+        bimap = new TreeBimap(cmp, Comparator.naturalOrder());
+        final String alphabet = "abcdefghijklmnopqrstuvwxyzäöüßABCDEFGHIJKLMNOPQRSTUVWXYZ ";
+        final Random random = new Random(9113486204713547L);
+        final String[] lefts = new String[size];
+        for (int i = 0; i < size; i++) {
+            final char[] chars = new char[12];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            lefts[i] = new String(chars);
+            bimap.put(lefts[i], Integer.toString(i));
+        }
+        lookups = new String[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            lookups[i] = lefts[random.nextInt(size)];
+        }
+    }
+
+    @Benchmark
+    public String leftGet() {
+        final String result = bimap.left().get(lookups[position]);
+        position = (position + 1) & (LOOKUPS - 1);
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Throughput of {@link ConcurrentBimap} against {@link TreeBimap} behind a global lock.
+ * {@link #main} runs it with 1 to 64 threads.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentBimapBenchmark {
+    public enum Implementation {
+        CONCURRENT(ConcurrentBimap::new),
+        LOCKED_TREE(() -> new LockedBimap(new TreeBimap()));
+
+        private final Supplier<Bimap> factory;
+
+        Implementation(final Supplier<Bimap> factory) {
+            this.factory = factory;
+        }
+    }
+
+    /**
+     * Serializes all operations of the benchmark on a single lock.
+     */
+    private static final class LockedBimap implements Bimap {
+        private final Bimap bimap;
+        private final Map<String, String> left;
+        private final Map<String, String> right;
+
+        private LockedBimap(final Bimap bimap) {
+            this.bimap = bimap;
+            this.left = lockedGet(bimap.left());
+            this.right = lockedGet(bimap.right());
+        }
+
+        private Map<String, String> lockedGet(final Map<String, String> map) {
+            return new AbstractMap<>() {
+                @Override
+                public String get(final Object key) {
+                    synchronized (LockedBimap.this) {
+                        return map.get(key);
+                    }
+                }
+
+                @Override
+                public Set<Entry<String, String>> entrySet() {
+                    throw new UnsupportedOperationException();
+                }
+            };
+        }
+
+        @Override
+        public synchronized int size() {
+            return bimap.size();
+        }
+
+        @Override
+        public synchronized boolean isEmpty() {
+            return bimap.isEmpty();
+        }
+
+        @Override
+        public synchronized void put(final String left, final String right) {
+            bimap.put(left, right);
+        }
+
+        @Override
+        public synchronized String leftRemove(final String left) {
+            return bimap.leftRemove(left);
+        }
+
+        @Override
+        public synchronized String rightRemove(final String right) {
+            return bimap.rightRemove(right);
+        }
+
+        @Override
+        public synchronized void putAll(final Bimap other) {
+            bimap.putAll(other);
+        }
+
+        @Override
+        public synchronized void clear() {
+            bimap.clear();
+        }
+
+        @Override
+        public Map<String, String> left() {
+            return left;
+        }
+
+        @Override
+        public Map<String, String> right() {
+            return right;
+        }
+    }
+
+    private static final int KEYS = 1 << 16;
+
+    @Param({"CONCURRENT", "LOCKED_TREE"})
+    public Implementation implementation;
+
+    /**
+     * Percentage of writes among all operations.
+     */
+    @Param({"10", "50"})
+    public int writes;
+
+    private Bimap bimap;
+    private final String[] keys = new String[KEYS];
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bimap = implementation.factory.get();
+        for (int i = 0; i < KEYS; i++) {
+            keys[i] = "key" + i;
+            bimap.put(keys[i], keys[i]);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+    }
+
+    @Benchmark
+    public Object mixed(final ThreadState state) {
+        final String key = keys[state.random.nextInt(KEYS)];
+        final int choice = state.random.nextInt(100);
+        if (choice < writes) {
+            final String other = keys[state.random.nextInt(KEYS)];
+            if ((choice & 1) == 0) {
+                bimap.put(key, other);
+            } else {
+                bimap.put(other, key);
+            }
+            return null;
+        }
+        return (choice & 1) == 0 ? bimap.left().get(key) : bimap.right().get(key);
+    }
+
+    public static void main(final String[] args) throws RunnerException {
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            new Runner(new OptionsBuilder()
+                    .include(ConcurrentBimapBenchmark.class.getSimpleName())
+                    .threads(threads)
+                    .build()
+            ).run();
+        }
+    }
+}
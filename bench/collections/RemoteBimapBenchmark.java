@@ -0,0 +1,115 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookups of {@link RemoteBimap} over loopback, one at a time, pipelined and batched, against a local {@link TreeBimap}.
+ * Scores are per batch of keys. Run with {@code -t} to load the server from several clients, each with its connection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RemoteBimapBenchmark {
+    private static final int BATCH = 64;
+
+    @State(Scope.Benchmark)
+    public static class Server {
+        @Param({"100000"})
+        public int size;
+
+        BimapServer server;
+        TreeBimap local;
+
+        @Setup
+        public void setUp() throws IOException {
+            server = BimapServer.start(new InetSocketAddress("127.0.0.1", 0));
+            local = new TreeBimap();
+            for (int i = 0; i < size; i++) {
+                local.put(Integer.toString(i), Integer.toString(size - i));
+            }
+            try (final RemoteBimap bimap = RemoteBimap.connect(server.address(), "bench")) {
+                bimap.putAll(local);
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            server.close();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+        RemoteBimap bimap;
+        final Random random = new Random();
+        final List<String> keys = new ArrayList<>(BATCH);
+
+        @Setup
+        public void setUp(final Server server) throws IOException {
+            bimap = RemoteBimap.connect(server.server.address(), "bench");
+        }
+
+        @Setup(Level.Invocation)
+        public void keys(final Server server) {
+            keys.clear();
+            for (int i = 0; i < BATCH; i++) {
+                keys.add(Integer.toString(random.nextInt(server.size)));
+            }
+        }
+
+        @TearDown
+        public void tearDown() throws IOException {
+            bimap.close();
+        }
+    }
+
+    @Benchmark
+    public int local(final Server server, final Client client) {
+        int found = 0;
+        for (final String key : client.keys) {
+            found += server.local.left().get(key) == null ? 0 : 1;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int sequential(final Client client) {
+        int found = 0;
+        for (final String key : client.keys) {
+            found += client.bimap.left().get(key) == null ? 0 : 1;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int pipelined(final Client client) {
+        final List<CompletableFuture<String>> futures = new ArrayList<>(BATCH);
+        for (final String key : client.keys) {
+            futures.add(client.bimap.leftGetAsync(key));
+        }
+        int found = 0;
+        for (final CompletableFuture<String> future : futures) {
+            found += future.join() == null ? 0 : 1;
+        }
+        return found;
+    }
+
+    @Benchmark
+    public int batched(final Client client) {
+        int found = 0;
+        for (final String right : client.bimap.leftGetAll(client.keys)) {
+            found += right == null ? 0 : 1;
+        }
+        return found;
+    }
+}
@@ -0,0 +1,58 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full scans of {@link TreeBimap} through the entry set, {@link TreeBimap#forEachLeft} and {@link BimapCursor}.
+ * Run with {@code -prof gc} to see allocation per scan.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ScanBenchmark {
+    @Param({"1000", "1000000"})
+    public int size;
+
+    private TreeBimap bimap;
+    private BimapCursor cursor;
+
+    @Setup
+    public void setup() {
+        bimap = new TreeBimap();
+        for (int i = 0; i < size; i++) {
+            bimap.put(Integer.toString(i), Integer.toString(size - i));
+        }
+        cursor = bimap.leftCursor();
+    }
+
+    @Benchmark
+    public void entrySet(final Blackhole blackhole) {
+        for (final Map.Entry<String, String> entry : bimap.left().entrySet()) {
+            blackhole.consume(entry.getKey());
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    public void forEachLeft(final Blackhole blackhole) {
+        bimap.forEachLeft((left, right) -> {
+            blackhole.consume(left);
+            blackhole.consume(right);
+        });
+    }
+
+    @Benchmark
+    public void cursor(final Blackhole blackhole) {
+        for (boolean valid = cursor.first(); valid; valid = cursor.next()) {
+            blackhole.consume(cursor.key());
+            blackhole.consume(cursor.value());
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package collections;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Merging a delta of a fiftieth of the size into a {@link TreeBimap} by {@link TreeBimap#putAll}
+ * and by {@link TreeBimap#union}, sequentially and in the common pool.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class UnionBenchmark {
+    @Param({"1000000"})
+    public int size;
+
+    private TreeBimap base;
+    private TreeBimap delta;
+    private TreeBimap bimap;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final Random random = new Random(1);
+        base = new TreeBimap();
+        for (int i = 0; i < size; i++) {
+            base.put(Integer.toString(random.nextInt()), Integer.toString(random.nextInt()));
+        }
+        delta = new TreeBimap();
+        for (int i = 0; i < size / 50; i++) {
+            delta.put(Integer.toString(random.nextInt()), Integer.toString(random.nextInt()));
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        bimap = TreeBimap.fromSorted(base.left().entrySet().iterator());
+    }
+
+    @Benchmark
+    public TreeBimap putAll() {
+        bimap.putAll(delta);
+        return bimap;
+    }
+
+    @Benchmark
+    public TreeBimap union() {
+        bimap.union(delta);
+        return bimap;
+    }
+
+    @Benchmark
+    public TreeBimap parallelUnion() {
+        bimap.union(delta, ForkJoinPool.commonPool());
+        return bimap;
+    }
+}
@@ -0,0 +1,26 @@
+package collections;
+
+import java.util.Comparator;
+
+/**
+ * Comparator which can abbreviate keys into order-preserving 64-bit prefixes.
+ * {@link TreeBimap} caches abbreviations of its keys and calls {@link #compare} only when they are equal.
+ */
+public interface AbbreviatingComparator<T> extends Comparator<T> {
+    /**
+     * Returns abbreviation of the key, such that if abbreviations of two keys differ,
+     * their unsigned order is the order of the keys. A comparator which cannot abbreviate its keys may return zero for all of them.
+     */
+    long abbreviate(T key);
+
+    /**
+     * Packs the first four chars of the string, which preserves the order of {@link String#compareTo}.
+     */
+    static long prefix(final String key) {
+        long result = 0;
+        for (int i = 0, n = Math.min(4, key.length()); i < n; i++) {
+            result |= (long) key.charAt(i) << (48 - 16 * i);
+        }
+        return result;
+    }
+}
@@ -2,6 +2,7 @@ package collections;
 
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
 
 /**
  * Represents <a href=https://en.wikipedia.org/wiki/Bidirectional_map>bimap</a> string<->string data structure.
@@ -17,4 +18,71 @@ public interface Bimap {
 
     Map<String, String> left();
     Map<String, String> right();
+
+    /**
+     * Same as {@link #put}, evicting pairs with equal left or right key.
+     *
+     * @return previous right key for the left one, or {@code null} if there was none
+     */
+    default String forcePut(final String left, final String right) {
+        final String previous = left().get(left);
+        put(left, right);
+        return previous;
+    }
+
+    /**
+     * Puts pair only if neither of its keys is present.
+     *
+     * @return whether the pair was put
+     */
+    default boolean putIfAbsent(final String left, final String right) {
+        if (left().containsKey(left) || right().containsKey(right)) {
+            return false;
+        }
+        put(left, right);
+        return true;
+    }
+
+    /**
+     * Maps present left key to the new right key, evicting pair with equal right key if any.
+     *
+     * @return previous right key, or {@code null} if the left key is not present
+     */
+    default String replaceRight(final String left, final String newRight) {
+        if (!left().containsKey(left)) {
+            return null;
+        }
+        return forcePut(left, newRight);
+    }
+
+    /**
+     * Maps present right key to the new left key, evicting pair with equal left key if any.
+     *
+     * @return previous left key, or {@code null} if the right key is not present
+     */
+    default String replaceLeft(final String right, final String newLeft) {
+        if (!right().containsKey(right)) {
+            return null;
+        }
+        final String previous = right().get(right);
+        put(newLeft, right);
+        return previous;
+    }
+
+    /**
+     * Returns right key for the left one, computing and putting it if the left key is not present.
+     * Nothing is put if {@code mapping} returns {@code null}. The mapping should not modify this bimap.
+     *
+     * @return current or computed right key
+     */
+    default String computeRightIfAbsent(final String left, final Function<? super String, ? extends String> mapping) {
+        if (left().containsKey(left)) {
+            return left().get(left);
+        }
+        final String right = mapping.apply(left);
+        if (right != null) {
+            put(left, right);
+        }
+        return right;
+    }
 }
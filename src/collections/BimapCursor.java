@@ -0,0 +1,60 @@
+package collections;
+
+/**
+ * Reusable position in one side of an ordered bimap, which moves over pairs without allocating.
+ * A cursor is either at a pair or invalid, as it is before positioning and after moving past either end.
+ * <p>
+ * Modifying the bimap invalidates its cursors, except that they may be positioned again.
+ */
+public interface BimapCursor {
+    /**
+     * Moves to the pair with the least key.
+     *
+     * @return whether the cursor is valid, that is the bimap is not empty
+     */
+    boolean first();
+
+    /**
+     * Moves to the pair with the greatest key.
+     *
+     * @return whether the cursor is valid
+     */
+    boolean last();
+
+    /**
+     * Moves to the pair with the least key greater than or equal to the given one.
+     *
+     * @return whether the cursor is valid
+     */
+    boolean seek(String key);
+
+    /**
+     * Moves to the pair with the next key, in amortized constant time.
+     *
+     * @return whether the cursor is valid
+     * @throws java.util.NoSuchElementException if the cursor is invalid
+     */
+    boolean next();
+
+    /**
+     * Moves to the pair with the previous key, in amortized constant time.
+     *
+     * @return whether the cursor is valid
+     * @throws java.util.NoSuchElementException if the cursor is invalid
+     */
+    boolean prev();
+
+    boolean isValid();
+
+    /**
+     * @throws java.util.NoSuchElementException if the cursor is invalid
+     */
+    String key();
+
+    /**
+     * Returns key of the other side of the pair.
+     *
+     * @throws java.util.NoSuchElementException if the cursor is invalid
+     */
+    String value();
+}
@@ -0,0 +1,31 @@
+package collections;
+
+/**
+ * Change of a bimap published by {@link TreeBimap#events()}.
+ * Applying events in order to a copy of the bimap reproduces its changes.
+ *
+ * @param left  left key of the pair, or {@code null} for {@link Type#CLEAR}
+ * @param right right key of the pair, or {@code null} for {@link Type#CLEAR}
+ */
+public record BimapEvent(Type type, String left, String right) {
+    public enum Type {
+        /**
+         * The pair was put. Pairs which it evicted precede it as {@link #EVICT} events.
+         */
+        PUT,
+        /**
+         * The pair was removed because a put pair has an equal left or right key.
+         */
+        EVICT,
+        /**
+         * The pair was removed.
+         */
+        REMOVE,
+        /**
+         * All pairs were removed.
+         */
+        CLEAR
+    }
+
+    static final BimapEvent CLEARED = new BimapEvent(Type.CLEAR, null, null);
+}
@@ -0,0 +1,142 @@
+package collections;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+
+/**
+ * Publisher of batches of {@link BimapEvent}s to subscribers with their own buffers.
+ * <p>
+ * Events are added to the buffers of all subscribers by the thread modifying the bimap, and delivered
+ * in the executor as long as subscribers request more. Events which come while a subscriber is busy or has
+ * no demand are coalesced into its next batch. A subscriber whose buffer overflows is cancelled
+ * with {@link IllegalStateException}, after which it should resynchronize from the bimap.
+ */
+final class BimapEventPublisher implements Flow.Publisher<List<BimapEvent>> {
+    static final int MAX_BUFFER = 1 << 16;
+
+    private final Executor executor;
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    BimapEventPublisher(final Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Whether there is any subscriber, checked before making events.
+     */
+    boolean isActive() {
+        return !subscriptions.isEmpty();
+    }
+
+    void publish(final BimapEvent event) {
+        for (final Subscription subscription : subscriptions) {
+            subscription.add(event);
+        }
+    }
+
+    @Override
+    public void subscribe(final Flow.Subscriber<? super List<BimapEvent>> subscriber) {
+        final Subscription subscription = new Subscription(subscriber);
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+    }
+
+    private final class Subscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super List<BimapEvent>> subscriber;
+        // guarded by this
+        private List<BimapEvent> buffer = new ArrayList<>();
+        private long demand = 0;
+        private boolean scheduled = false;
+        private Throwable error = null;
+        private boolean cancelled = false;
+
+        private Subscription(final Flow.Subscriber<? super List<BimapEvent>> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        private synchronized void add(final BimapEvent event) {
+            if (cancelled) {
+                return;
+            }
+            if (buffer.size() >= MAX_BUFFER) {
+                fail(new IllegalStateException("Subscriber is more than " + MAX_BUFFER + " events behind"));
+                return;
+            }
+            buffer.add(event);
+            schedule();
+        }
+
+        /**
+         * Cancels this subscription, dropping buffered events, and delivers the error.
+         */
+        private void fail(final Throwable cause) {
+            cancelled = true;
+            buffer.clear();
+            error = cause;
+            subscriptions.remove(this);
+            schedule();
+        }
+
+        private void schedule() {
+            if (!scheduled && (error != null || demand > 0 && !buffer.isEmpty())) {
+                scheduled = true;
+                executor.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            while (true) {
+                final List<BimapEvent> batch;
+                final Throwable cause;
+                synchronized (this) {
+                    if (demand > 0 && !buffer.isEmpty()) {
+                        batch = buffer;
+                        buffer = new ArrayList<>();
+                        demand--;
+                        cause = null;
+                    } else {
+                        batch = null;
+                        cause = error;
+                        error = null;
+                        if (cause == null) {
+                            scheduled = false;
+                            return;
+                        }
+                    }
+                }
+                if (batch != null) {
+                    try {
+                        subscriber.onNext(batch);
+                    } catch (final RuntimeException e) {
+                        cancel();
+                        return;
+                    }
+                } else {
+                    subscriber.onError(cause);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public synchronized void request(final long n) {
+            if (n <= 0) {
+                fail(new IllegalArgumentException("Non-positive request " + n));
+                return;
+            }
+            demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+            schedule();
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            buffer.clear();
+            error = null;
+            subscriptions.remove(this);
+        }
+    }
+}
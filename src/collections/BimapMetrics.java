@@ -0,0 +1,305 @@
+package collections;
+
+import jdk.jfr.*;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counters and latency histograms of a {@link TreeBimap}, with shape of its trees.
+ * <p>
+ * Instrumentation is compiled in but enabled only with {@code -Dcollections.metrics=true}: hooks check the constant
+ * {@link #ENABLED}, so otherwise the JIT removes them and bimaps have no metrics. Counters are plain fields written
+ * by the thread which owns the bimap, so other threads, including JMX, read them approximately.
+ * Operations slower than the threshold ({@code -Dcollections.metrics.slowNanos}, one millisecond by default)
+ * are recorded as {@code collections.SlowBimapOperation} JFR events.
+ */
+public final class BimapMetrics implements BimapMetricsMXBean {
+    public static final boolean ENABLED = Boolean.getBoolean("collections.metrics");
+    private static final long DEFAULT_SLOW_NANOS = Long.getLong("collections.metrics.slowNanos", 1_000_000);
+
+    /**
+     * Histogram of non-negative values with buckets of a quarter of a power of two, so percentiles are within 25%.
+     */
+    static final class Histogram {
+        private static final int SUB_BITS = 2;
+
+        private final long[] counts = new long[64 << SUB_BITS];
+        private long count;
+        private long sum;
+        private long max;
+
+        /**
+         * Small values have buckets of their own, larger ones are bucketed by exponent and the next bits.
+         */
+        private static int bucket(final long value) {
+            if (value < 2 << SUB_BITS) {
+                return (int) value;
+            }
+            final int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+            return (shift << SUB_BITS) + (int) (value >>> shift);
+        }
+
+        /**
+         * Returns the largest value of the bucket.
+         */
+        private static long upperBound(final int bucket) {
+            if (bucket < 2 << SUB_BITS) {
+                return bucket;
+            }
+            final int shift = (bucket >>> SUB_BITS) - 1;
+            final long mantissa = bucket - ((long) shift << SUB_BITS);
+            return ((mantissa + 1) << shift) - 1;
+        }
+
+        void record(final long value) {
+            counts[bucket(value)]++;
+            count++;
+            sum += value;
+            max = Math.max(max, value);
+        }
+
+        long count() {
+            return count;
+        }
+
+        /**
+         * Returns value which is not exceeded by the given fraction of the recorded ones, rounded up to its bucket.
+         */
+        long percentile(final double fraction) {
+            final long rank = (long) Math.ceil(fraction * count);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) {
+                    return Math.min(upperBound(i), max);
+                }
+            }
+            return 0;
+        }
+
+        void clear() {
+            Arrays.fill(counts, 0);
+            count = sum = max = 0;
+        }
+
+        Map<String, Long> summary() {
+            final Map<String, Long> result = new LinkedHashMap<>();
+            result.put("count", count);
+            result.put("mean", count == 0 ? 0 : sum / count);
+            result.put("p50", percentile(0.5));
+            result.put("p90", percentile(0.9));
+            result.put("p99", percentile(0.99));
+            result.put("max", max);
+            return result;
+        }
+    }
+
+    /**
+     * Shape of one of the trees: its height, average depth of nodes (the root has depth 1),
+     * and the number of nodes whose subtrees have different heights.
+     */
+    public record Shape(int height, double averageDepth, int leaning) {
+    }
+
+    @Name("collections.SlowBimapOperation")
+    @Label("Slow Bimap Operation")
+    @Category("Collections")
+    @StackTrace(false)
+    static final class SlowOperation extends Event {
+        @Label("Operation")
+        String operation;
+
+        @Label("Latency")
+        @Timespan
+        long latency;
+
+        @Label("Size")
+        int size;
+    }
+
+    private final TreeBimap bimap;
+    private long comparisons;
+    private long rotations; // rebalancings, single or double
+    private long doubleRotations;
+    private final Histogram nodesVisited = new Histogram();
+    private final Histogram putLatency = new Histogram();
+    private final Histogram removeLatency = new Histogram();
+    private final Histogram lookupLatency = new Histogram();
+    private volatile long slowNanos = DEFAULT_SLOW_NANOS;
+
+    BimapMetrics(final TreeBimap bimap) {
+        this.bimap = bimap;
+    }
+
+    // Hooks, called only if enabled
+
+    void comparison() {
+        comparisons++;
+    }
+
+    void rotation(final boolean isDouble) {
+        rotations++;
+        if (isDouble) {
+            doubleRotations++;
+        }
+    }
+
+    void search(final int visited) {
+        nodesVisited.record(visited);
+    }
+
+    private void operation(final Histogram latencies, final String operation, final long start) {
+        final long latency = System.nanoTime() - start;
+        latencies.record(latency);
+        if (latency >= slowNanos) {
+            final SlowOperation event = new SlowOperation();
+            if (event.shouldCommit()) {
+                event.operation = operation;
+                event.latency = latency;
+                event.size = bimap.size();
+                event.commit();
+            }
+        }
+    }
+
+    void put(final long start) {
+        operation(putLatency, "put", start);
+    }
+
+    void remove(final long start) {
+        operation(removeLatency, "remove", start);
+    }
+
+    void lookup(final long start) {
+        operation(lookupLatency, "lookup", start);
+    }
+
+    /**
+     * Registers these metrics in the platform MBean server as {@code collections:type=TreeBimap,name=<name>}.
+     */
+    public ObjectName register(final String name) {
+        try {
+            final ObjectName objectName = new ObjectName("collections:type=TreeBimap,name=" + ObjectName.quote(name));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (final JMException e) {
+            throw new IllegalStateException("Cannot register metrics as " + name, e);
+        }
+    }
+
+    public static void unregister(final ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (final JMException e) {
+            throw new IllegalStateException("Cannot unregister " + name, e);
+        }
+    }
+
+    /**
+     * Walks the left tree, so should be called by the thread which owns the bimap.
+     */
+    public Shape leftShape() {
+        return bimap.shape(false);
+    }
+
+    /**
+     * Walks the right tree, so should be called by the thread which owns the bimap.
+     */
+    public Shape rightShape() {
+        return bimap.shape(true);
+    }
+
+    @Override
+    public long getComparisons() {
+        return comparisons;
+    }
+
+    @Override
+    public long getRotations() {
+        return rotations;
+    }
+
+    @Override
+    public long getDoubleRotations() {
+        return doubleRotations;
+    }
+
+    @Override
+    public long getSearches() {
+        return nodesVisited.count();
+    }
+
+    @Override
+    public Map<String, Long> getNodesVisited() {
+        return nodesVisited.summary();
+    }
+
+    @Override
+    public Map<String, Long> getPutLatencyNanos() {
+        return putLatency.summary();
+    }
+
+    @Override
+    public Map<String, Long> getRemoveLatencyNanos() {
+        return removeLatency.summary();
+    }
+
+    @Override
+    public Map<String, Long> getLookupLatencyNanos() {
+        return lookupLatency.summary();
+    }
+
+    @Override
+    public int getSize() {
+        return bimap.size();
+    }
+
+    @Override
+    public int getLeftHeight() {
+        return bimap.height(false);
+    }
+
+    @Override
+    public int getRightHeight() {
+        return bimap.height(true);
+    }
+
+    @Override
+    public int getOptimalHeight() {
+        return 32 - Integer.numberOfLeadingZeros(bimap.size());
+    }
+
+    @Override
+    public long getSlowThresholdNanos() {
+        return slowNanos;
+    }
+
+    @Override
+    public void setSlowThresholdNanos(final long nanos) {
+        slowNanos = nanos;
+    }
+
+    /**
+     * Clears counters and histograms. Should be called by the thread which owns the bimap.
+     */
+    @Override
+    public void reset() {
+        comparisons = rotations = doubleRotations = 0;
+        nodesVisited.clear();
+        putLatency.clear();
+        removeLatency.clear();
+        lookupLatency.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "BimapMetrics{" + "comparisons=" + comparisons + ", rotations=" + rotations
+                + ", nodesVisited=" + nodesVisited.summary() + ", put=" + putLatency.summary()
+                + ", remove=" + removeLatency.summary() + ", lookup=" + lookupLatency.summary() + '}';
+    }
+}
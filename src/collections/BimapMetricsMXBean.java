@@ -0,0 +1,42 @@
+package collections;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link BimapMetrics}.
+ * Latency distributions are maps of {@code count}, {@code mean}, {@code p50}, {@code p90}, {@code p99} and {@code max}.
+ */
+public interface BimapMetricsMXBean {
+    long getComparisons();
+
+    long getRotations();
+
+    long getDoubleRotations();
+
+    long getSearches();
+
+    Map<String, Long> getNodesVisited();
+
+    Map<String, Long> getPutLatencyNanos();
+
+    Map<String, Long> getRemoveLatencyNanos();
+
+    Map<String, Long> getLookupLatencyNanos();
+
+    int getSize();
+
+    int getLeftHeight();
+
+    int getRightHeight();
+
+    /**
+     * Height of a perfectly balanced tree of the same size.
+     */
+    int getOptimalHeight();
+
+    long getSlowThresholdNanos();
+
+    void setSlowThresholdNanos(long nanos);
+
+    void reset();
+}
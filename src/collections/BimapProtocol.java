@@ -0,0 +1,162 @@
+package collections;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary protocol between {@link BimapServer} and {@link RemoteBimap}.
+ * <p>
+ * Every frame is a 4-byte length of the rest of it. A request is an operation byte, the handle of a bimap
+ * returned by {@link #OPEN} (which has none) and arguments. A response is a status byte and results
+ * or an error message. Strings are a 4-byte length, -1 for {@code null}, and UTF-8 bytes.
+ * Responses come in the order of requests, so a client may send many requests without waiting.
+ */
+final class BimapProtocol {
+    /**
+     * Name, returns handle.
+     */
+    static final byte OPEN = 1;
+    static final byte SIZE = 2;
+    static final byte CLEAR = 3;
+    /**
+     * Left and right keys.
+     */
+    static final byte PUT = 4;
+    /**
+     * Side, key and value, returns previous value.
+     */
+    static final byte FORCE_PUT = 5;
+    /**
+     * Left and right keys, returns boolean byte.
+     */
+    static final byte PUT_IF_ABSENT = 6;
+    /**
+     * Side and key, returns value.
+     */
+    static final byte GET = 7;
+    /**
+     * Side and key, returns value.
+     */
+    static final byte REMOVE = 8;
+    /**
+     * Side, count and keys, returns values.
+     */
+    static final byte MULTI_GET = 9;
+    /**
+     * Count and pairs of left and right keys.
+     */
+    static final byte MULTI_PUT = 10;
+    /**
+     * Side, key or {@code null} for the first one, and maximum count, returns count and pairs of keys and values
+     * following the key in the order of the side, then a boolean byte if more follow.
+     */
+    static final byte ENTRIES = 11;
+
+    static final byte OK = 0;
+    static final byte ERROR = 1;
+
+    static final byte LEFT = 0;
+    static final byte RIGHT = 1;
+
+    static final int MAX_FRAME = 1 << 26;
+
+    private BimapProtocol() {
+    }
+
+    static String getString(final ByteBuffer buffer) {
+        final int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final String result = new String(buffer.array(), buffer.arrayOffset() + buffer.position(), length, StandardCharsets.UTF_8);
+        buffer.position(buffer.position() + length);
+        return result;
+    }
+
+    /**
+     * Returns the length of the first frame in the buffer, or -1 if it is incomplete.
+     *
+     * @throws IllegalStateException if the length is out of bounds
+     */
+    static int frameLength(final ByteBuffer buffer) {
+        if (buffer.remaining() < 4) {
+            return -1;
+        }
+        final int length = buffer.getInt(buffer.position());
+        if (length < 1 || length > MAX_FRAME) {
+            throw new IllegalStateException("Bad frame length " + length);
+        }
+        return buffer.remaining() < 4 + length ? -1 : length;
+    }
+
+    /**
+     * Makes room for the frame of the given length after the buffer has been compacted.
+     */
+    static ByteBuffer ensureFrame(final ByteBuffer buffer, final int length) {
+        if (buffer.capacity() >= 4 + length) {
+            return buffer;
+        }
+        return ByteBuffer.allocate(Math.max(4 + length, 2 * buffer.capacity())).put(buffer.flip());
+    }
+
+    /**
+     * Growable heap buffer which frames are written into.
+     */
+    static final class Output {
+        private ByteBuffer buffer;
+        private int start;
+
+        Output(final int capacity) {
+            buffer = ByteBuffer.allocate(capacity);
+        }
+
+        ByteBuffer buffer() {
+            return buffer;
+        }
+
+        /**
+         * Starts a frame.
+         *
+         * @return position after its length
+         */
+        int begin() {
+            ensure(4);
+            start = buffer.position();
+            buffer.putInt(0);
+            return buffer.position();
+        }
+
+        void end() {
+            buffer.putInt(start, buffer.position() - start - 4);
+        }
+
+        Output put(final byte value) {
+            ensure(1);
+            buffer.put(value);
+            return this;
+        }
+
+        Output putInt(final int value) {
+            ensure(4);
+            buffer.putInt(value);
+            return this;
+        }
+
+        Output putString(final String value) {
+            if (value == null) {
+                return putInt(-1);
+            }
+            final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            ensure(4 + bytes.length);
+            buffer.putInt(bytes.length).put(bytes);
+            return this;
+        }
+
+        private void ensure(final int bytes) {
+            if (buffer.remaining() < bytes) {
+                final int capacity = Math.max(buffer.position() + bytes, 2 * buffer.capacity());
+                buffer = ByteBuffer.allocate(capacity).put(buffer.flip());
+            }
+        }
+    }
+}
@@ -0,0 +1,321 @@
+package collections;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.util.*;
+import java.util.function.Supplier;
+
+import static collections.BimapProtocol.*;
+
+/**
+ * Server of named bimaps over {@link BimapProtocol}, so that processes on one host can share one copy of the data
+ * through {@link RemoteBimap}.
+ * <p>
+ * A single thread multiplexes all connections with non-blocking I/O and runs all operations, so the bimaps need
+ * not be thread-safe. All complete requests read from a connection are executed before their responses are written
+ * with one call, which batches pipelined requests. A connection is not read while much of its output is pending.
+ * Responses longer than {@link BimapProtocol#MAX_FRAME} are replaced with errors, and entries are sent in pages.
+ */
+public final class BimapServer implements Closeable {
+    private static final int READ_BUFFER = 1 << 16;
+    private static final int WRITE_HIGH_WATER = 1 << 20;
+    private static final int PAGE_BYTES = MAX_FRAME / 4;
+    private static final int DEFAULT_PORT = 7411;
+
+    private final Supplier<? extends Bimap> factory;
+    private final Map<String, Integer> handles = new HashMap<>();
+    private final List<Bimap> bimaps = new ArrayList<>();
+    private final Selector selector;
+    private final ServerSocketChannel server;
+    private final InetSocketAddress address;
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    private BimapServer(final SocketAddress local, final Supplier<? extends Bimap> factory) throws IOException {
+        this.factory = factory;
+        selector = Selector.open();
+        server = ServerSocketChannel.open();
+        try {
+            server.bind(local);
+            server.configureBlocking(false);
+            server.register(selector, SelectionKey.OP_ACCEPT);
+            this.address = (InetSocketAddress) server.getLocalAddress();
+        } catch (final IOException e) {
+            server.close();
+            selector.close();
+            throw e;
+        }
+        thread = new Thread(this::run, "bimap-server-" + this.address);
+    }
+
+    /**
+     * Starts serving bimaps made by the factory on their first opening.
+     */
+    public static BimapServer start(final SocketAddress address, final Supplier<? extends Bimap> factory) throws IOException {
+        final BimapServer result = new BimapServer(address, factory);
+        result.thread.start();
+        return result;
+    }
+
+    /**
+     * Starts serving {@link TreeBimap}s.
+     */
+    public static BimapServer start(final SocketAddress address) throws IOException {
+        return start(address, TreeBimap::new);
+    }
+
+    /**
+     * Runs a server of {@link TreeBimap}s on the loopback interface and the port from the first argument.
+     */
+    public static void main(final String[] args) throws IOException, InterruptedException {
+        final int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        try (final BimapServer server = start(new InetSocketAddress("127.0.0.1", port))) {
+            System.out.println("Serving bimaps at " + server.address());
+            server.thread.join();
+        }
+    }
+
+    public InetSocketAddress address() {
+        return address;
+    }
+
+    private void run() {
+        try {
+            while (!closed) {
+                selector.select();
+                final Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    final SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    final Connection connection = (Connection) key.attachment();
+                    try {
+                        if (key.isReadable()) {
+                            connection.read();
+                        }
+                        if (key.isValid() && key.isWritable()) {
+                            connection.flush();
+                        }
+                    } catch (final IOException | IllegalStateException e) {
+                        connection.close();
+                    }
+                }
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            for (final SelectionKey key : selector.keys()) {
+                if (key.attachment() instanceof Connection connection) {
+                    connection.close();
+                }
+            }
+            try {
+                server.close();
+                selector.close();
+            } catch (final IOException ignored) {
+                // Nothing to do
+            }
+        }
+    }
+
+    private void accept() throws IOException {
+        final SocketChannel channel = server.accept();
+        if (channel == null) {
+            return;
+        }
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        final SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        key.attach(new Connection(channel, key));
+    }
+
+    private final class Connection {
+        private final SocketChannel channel;
+        private final SelectionKey key;
+        private ByteBuffer in = ByteBuffer.allocate(READ_BUFFER);
+        private final Output out = new Output(READ_BUFFER);
+
+        private Connection(final SocketChannel channel, final SelectionKey key) {
+            this.channel = channel;
+            this.key = key;
+        }
+
+        private void read() throws IOException {
+            if (channel.read(in) < 0) {
+                close();
+                return;
+            }
+            in.flip();
+            int length;
+            while ((length = frameLength(in)) >= 0) {
+                final ByteBuffer frame = in.slice(in.position() + 4, length);
+                in.position(in.position() + 4 + length);
+                execute(frame);
+            }
+            final int pending = in.remaining() >= 4 ? in.getInt(in.position()) : 0;
+            in = ensureFrame(in.compact(), pending);
+            flush();
+        }
+
+        private void flush() throws IOException {
+            final ByteBuffer buffer = out.buffer();
+            channel.write(buffer.flip());
+            buffer.compact();
+            final boolean pending = buffer.position() > 0;
+            key.interestOps((pending ? SelectionKey.OP_WRITE : 0) | (buffer.position() < WRITE_HIGH_WATER ? SelectionKey.OP_READ : 0));
+        }
+
+        private void execute(final ByteBuffer frame) {
+            final int start = out.begin();
+            try {
+                out.put(OK);
+                apply(frame);
+                final int length = out.buffer().position() - start;
+                if (length > MAX_FRAME) {
+                    throw new IllegalStateException("Response of " + length + " bytes is too long");
+                }
+            } catch (final RuntimeException e) {
+                out.buffer().position(start);
+                out.put(ERROR).putString(e.toString());
+            }
+            out.end();
+        }
+
+        private void apply(final ByteBuffer frame) {
+            final byte op = frame.get();
+            if (op == OPEN) {
+                final String name = getString(frame);
+                out.putInt(handles.computeIfAbsent(name, n -> {
+                    bimaps.add(factory.get());
+                    return bimaps.size() - 1;
+                }));
+                return;
+            }
+            final int handle = frame.getInt();
+            if (handle < 0 || handle >= bimaps.size()) {
+                throw new IllegalArgumentException("Unknown bimap " + handle);
+            }
+            final Bimap bimap = bimaps.get(handle);
+            switch (op) {
+                case SIZE -> out.putInt(bimap.size());
+                case CLEAR -> bimap.clear();
+                case PUT -> bimap.put(getString(frame), getString(frame));
+                case FORCE_PUT -> {
+                    final boolean isRight = frame.get() == RIGHT;
+                    final String key = getString(frame);
+                    final String value = getString(frame);
+                    if (isRight) {
+                        final String previous = bimap.right().get(key);
+                        bimap.put(value, key);
+                        out.putString(previous);
+                    } else {
+                        out.putString(bimap.forcePut(key, value));
+                    }
+                }
+                case PUT_IF_ABSENT -> out.put(bimap.putIfAbsent(getString(frame), getString(frame)) ? (byte) 1 : 0);
+                case GET -> {
+                    final Map<String, String> map = side(bimap, frame);
+                    out.putString(map.get(getString(frame)));
+                }
+                case REMOVE -> {
+                    final boolean isRight = frame.get() == RIGHT;
+                    final String key = getString(frame);
+                    out.putString(isRight ? bimap.rightRemove(key) : bimap.leftRemove(key));
+                }
+                case MULTI_GET -> {
+                    final Map<String, String> map = side(bimap, frame);
+                    for (int i = frame.getInt(); i > 0; i--) {
+                        out.putString(map.get(getString(frame)));
+                    }
+                }
+                case MULTI_PUT -> {
+                    for (int i = frame.getInt(); i > 0; i--) {
+                        bimap.put(getString(frame), getString(frame));
+                    }
+                }
+                case ENTRIES -> {
+                    final Map<String, String> map = side(bimap, frame);
+                    final Iterator<Map.Entry<String, String>> entries = entriesAfter(map, getString(frame));
+                    final int limit = frame.getInt();
+                    final int start = out.buffer().position();
+                    out.putInt(0);
+                    int count = 0;
+                    while (count < limit && entries.hasNext() && out.buffer().position() - start < PAGE_BYTES) {
+                        final Map.Entry<String, String> entry = entries.next();
+                        out.putString(entry.getKey()).putString(entry.getValue());
+                        count++;
+                    }
+                    out.buffer().putInt(start, count);
+                    out.put(entries.hasNext() ? (byte) 1 : 0);
+                }
+                default -> throw new IllegalArgumentException("Unknown operation " + op);
+            }
+        }
+
+        private void close() {
+            key.cancel();
+            try {
+                channel.close();
+            } catch (final IOException ignored) {
+                // Nothing to do
+            }
+        }
+    }
+
+    private static Map<String, String> side(final Bimap bimap, final ByteBuffer frame) {
+        return frame.get() == RIGHT ? bimap.right() : bimap.left();
+    }
+
+    /**
+     * Returns entries following the key, or all if it is {@code null}. Sorted sides are searched, others scanned.
+     */
+    private static Iterator<Map.Entry<String, String>> entriesAfter(final Map<String, String> map, final String key) {
+        if (key == null) {
+            return map.entrySet().iterator();
+        }
+        if (map instanceof NavigableMap<String, String> sorted) {
+            return sorted.tailMap(key, false).entrySet().iterator();
+        }
+        final Iterator<Map.Entry<String, String>> entries = map.entrySet().iterator();
+        while (entries.hasNext()) {
+            if (entries.next().getKey().equals(key)) {
+                return entries;
+            }
+        }
+        throw new IllegalStateException("Key " + key + " was removed during iteration");
+    }
+
+    /**
+     * Stops serving and closes all connections.
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        selector.wakeup();
+        if (Thread.currentThread() != thread) {
+            try {
+                thread.join();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BimapServer{" + "address=" + address() + '}';
+    }
+}
@@ -0,0 +1,944 @@
+package collections;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Thread-safe unordered {@link Bimap} of bounded size or weight, which evicts pairs by an {@link Eviction} policy,
+ * for use as a cache. Like {@link ConcurrentBimap}, which keeps its pairs, it does not permit {@code null} keys.
+ * <p>
+ * A pair is one entry of the policy, keyed by its left key, so a hit from either side refreshes it.
+ * Writes and eviction are serialized by a lock. Reads do not take it: they record hits in lossy ring buffers
+ * striped by thread, which writers drain, as does a reader which fills a buffer if the lock is free.
+ * Recording drops hits while a buffer is full, which policies tolerate as sampling.
+ * <p>
+ * {@link #size()}, {@link #putAll} and iteration of the views are not atomic, like in {@link ConcurrentHashMap}.
+ */
+public class BoundedBimap implements Bimap {
+    private static final int READ_BUFFER = 16; // per stripe, power of two
+    private static final int READ_BUFFER_MASK = READ_BUFFER - 1;
+
+    /**
+     * Which pair is evicted when the bimap is over its maximum.
+     */
+    public enum Eviction {
+        /**
+         * The least recently used pair.
+         */
+        LRU,
+        /**
+         * The least frequently used pair, and of them the least recently used one.
+         * Frequencies are counted while pairs are present and never decay.
+         */
+        LFU,
+        /**
+         * Window TinyLFU after Einziger, Friedman and Manes: new pairs enter a small LRU window, and pairs leaving it
+         * are admitted to the segmented LRU main space only if their estimated frequency, including recent
+         * history of absent keys, exceeds that of the main victim. Resists scans and adapts to recency-biased loads.
+         */
+        WINDOW_TINY_LFU
+    }
+
+    /**
+     * Statistics of lookups through {@link #left()} and {@link #right()} and of evictions.
+     */
+    public record Stats(long hits, long misses, long evictions) {
+        /**
+         * Ratio of hits to lookups, or 1 if there were none.
+         */
+        public double hitRate() {
+            final long requests = hits + misses;
+            return requests == 0 ? 1.0 : (double) hits / requests;
+        }
+    }
+
+    private final ConcurrentBimap data = new ConcurrentBimap();
+    private final long maximum;
+    private final ToIntBiFunction<? super String, ? super String> weigher;
+    private final Eviction eviction;
+    private final Policy policy; // guarded by lock
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReadBuffer[] readBuffers;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final View leftView = new View(false);
+    private final View rightView = new View(true);
+
+    /**
+     * Creates bimap of at most the given number of pairs.
+     */
+    public BoundedBimap(final long maximumSize, final Eviction eviction) {
+        this(maximumSize, (left, right) -> 1, eviction);
+    }
+
+    /**
+     * Creates bimap of at most the given total weight of pairs. Weights are computed when pairs are put
+     * and must not be negative; a pair heavier than the maximum is evicted at once, after the pairs with its keys,
+     * and leaves the other pairs in place.
+     */
+    public BoundedBimap(final long maximumWeight, final ToIntBiFunction<? super String, ? super String> weigher, final Eviction eviction) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Negative maximum " + maximumWeight);
+        }
+        this.maximum = maximumWeight;
+        this.weigher = Objects.requireNonNull(weigher);
+        this.eviction = Objects.requireNonNull(eviction);
+        policy = switch (eviction) {
+            case LRU -> new LruPolicy();
+            case LFU -> new LfuPolicy();
+            case WINDOW_TINY_LFU -> new WindowTinyLfuPolicy(maximumWeight);
+        };
+        readBuffers = new ReadBuffer[Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1)];
+        for (int i = 0; i < readBuffers.length; i++) {
+            readBuffers[i] = new ReadBuffer();
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), misses.sum(), evictions.sum());
+    }
+
+    /**
+     * Checks that the policy tracks exactly the present pairs within the maximum, while nothing is written.
+     */
+    public boolean checkInvariant() {
+        lock.lock();
+        try {
+            long weight = 0;
+            for (final Map.Entry<String, String> entry : data.left().entrySet()) {
+                final Node node = policy.nodes.get(entry.getKey());
+                if (node == null || node.queue == null || node.weight != weigher.applyAsInt(entry.getKey(), entry.getValue())) {
+                    return false;
+                }
+                weight += node.weight;
+            }
+            return policy.nodes.size() == data.size() && policy.weight == weight && weight <= maximum
+                    && data.left().size() == data.right().size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the number of longs of the frequency sketch, or zero if the eviction keeps none.
+     */
+    int sketchCapacity() {
+        lock.lock();
+        try {
+            return policy instanceof WindowTinyLfuPolicy tinyLfu ? tinyLfu.sketch.capacity() : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reads
+
+    /**
+     * Ring buffer of left keys of hits, which any thread offers to and the lock holder drains.
+     */
+    private static final class ReadBuffer {
+        private final AtomicReferenceArray<String> keys = new AtomicReferenceArray<>(READ_BUFFER);
+        private final AtomicLong writes = new AtomicLong();
+        private volatile long reads = 0;
+
+        /**
+         * Adds the key unless the buffer is full or another thread is adding.
+         *
+         * @return whether the buffer should be drained
+         */
+        boolean offer(final String key) {
+            final long tail = writes.get();
+            final long size = tail - reads;
+            if (size >= READ_BUFFER) {
+                return true;
+            }
+            if (writes.compareAndSet(tail, tail + 1)) {
+                keys.lazySet((int) tail & READ_BUFFER_MASK, key);
+                return size + 1 == READ_BUFFER;
+            }
+            return false;
+        }
+
+        void drain(final Consumer<String> consumer) {
+            long head = reads;
+            final long tail = writes.get();
+            for (; head < tail; head++) {
+                final int index = (int) head & READ_BUFFER_MASK;
+                final String key = keys.get(index);
+                if (key == null) {
+                    break; // claimed but not yet written, left for the next drain
+                }
+                keys.lazySet(index, null);
+                consumer.accept(key);
+            }
+            reads = head;
+        }
+    }
+
+    private void recordHit(final String left) {
+        hits.increment();
+        final ReadBuffer buffer = readBuffers[spread(Thread.currentThread().hashCode()) & (readBuffers.length - 1)];
+        if (buffer.offer(left) && lock.tryLock()) {
+            try {
+                drainReadBuffers();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static int spread(final int hash) {
+        final int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    private void drainReadBuffers() {
+        for (final ReadBuffer buffer : readBuffers) {
+            buffer.drain(policy::access);
+        }
+    }
+
+    /**
+     * Returns the right key for the left one, recording the lookup.
+     */
+    private String leftGet(final String left) {
+        final String right = data.left().get(left);
+        if (right == null) {
+            misses.increment();
+        } else {
+            recordHit(left);
+        }
+        return right;
+    }
+
+    private String rightGet(final String right) {
+        final String left = data.right().get(right);
+        if (left == null) {
+            misses.increment();
+        } else {
+            recordHit(left);
+        }
+        return left;
+    }
+
+    // Writes, with lock held
+
+    private void lockForWrite() {
+        lock.lock();
+        drainReadBuffers();
+    }
+
+    /**
+     * Puts the pair into the data and the policy, evicting pairs with equal keys and then pairs over the maximum.
+     */
+    private void putPair(final String left, final String right) {
+        Objects.requireNonNull(left);
+        Objects.requireNonNull(right);
+        final int weight = weigher.applyAsInt(left, right);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Negative weight " + weight + " of " + left + " and " + right);
+        }
+        final String oldLeft = data.right().get(right);
+        if (oldLeft != null && !oldLeft.equals(left)) {
+            policy.remove(oldLeft);
+        }
+        final boolean present = data.left().containsKey(left);
+        if (weight > maximum) {
+            // Evicting the others would not make room for it
+            data.rightRemove(right);
+            if (present) {
+                data.leftRemove(left);
+                policy.remove(left);
+            }
+            evictions.increment();
+            return;
+        }
+        data.put(left, right);
+        if (present) {
+            policy.update(left, weight);
+        } else {
+            policy.add(left, weight);
+        }
+        policy.evict(maximum, victim -> {
+            data.leftRemove(victim);
+            evictions.increment();
+        });
+    }
+
+    private String removePair(final boolean isRight, final String key) {
+        if (key == null) {
+            return null;
+        }
+        lockForWrite();
+        try {
+            final String value = isRight ? data.rightRemove(key) : data.leftRemove(key);
+            if (value != null) {
+                policy.remove(isRight ? value : key);
+            }
+            return value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        forcePut(left, right);
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        lockForWrite();
+        try {
+            final String previous = left == null ? null : data.left().get(left);
+            putPair(left, right);
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean putIfAbsent(final String left, final String right) {
+        lockForWrite();
+        try {
+            if (left != null && data.left().containsKey(left) || right != null && data.right().containsKey(right)) {
+                return false;
+            }
+            putPair(left, right);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String replaceRight(final String left, final String newRight) {
+        lockForWrite();
+        try {
+            final String previous = left == null ? null : data.left().get(left);
+            if (previous != null) {
+                putPair(left, newRight);
+            }
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String replaceLeft(final String right, final String newLeft) {
+        lockForWrite();
+        try {
+            final String previous = right == null ? null : data.right().get(right);
+            if (previous != null) {
+                putPair(newLeft, right);
+            }
+            return previous;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Same as {@link Bimap#computeRightIfAbsent}, recording the lookup. The mapping is called without the lock,
+     * so concurrent callers may compute the same key, and the first one to put it wins.
+     */
+    @Override
+    public String computeRightIfAbsent(final String left, final Function<? super String, ? extends String> mapping) {
+        final String current = leftGet(left);
+        if (current != null) {
+            return current;
+        }
+        final String right = mapping.apply(left);
+        if (right == null) {
+            return null;
+        }
+        lockForWrite();
+        try {
+            final String raced = data.left().get(left);
+            if (raced != null) {
+                return raced;
+            }
+            putPair(left, right);
+            return right;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String leftRemove(final String left) {
+        return removePair(false, left);
+    }
+
+    @Override
+    public String rightRemove(final String right) {
+        return removePair(true, right);
+    }
+
+    @Override
+    public void putAll(final Bimap other) {
+        other.left().forEach(this::put);
+    }
+
+    @Override
+    public void clear() {
+        lockForWrite();
+        try {
+            data.clear();
+            policy.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Policies, guarded by lock
+
+    private static final class Node {
+        final String left;
+        int weight;
+        Node prev;
+        Node next;
+        Deque queue; // which the node is in
+
+        Node(final String left, final int weight) {
+            this.left = left;
+            this.weight = weight;
+        }
+    }
+
+    /**
+     * Intrusive doubly linked list of nodes, from the least to the most recently used, with their total weight.
+     */
+    private static class Deque {
+        final Node head = new Node(null, 0); // sentinel
+        long weight = 0;
+
+        Deque() {
+            head.prev = head;
+            head.next = head;
+        }
+
+        boolean isEmpty() {
+            return head.next == head;
+        }
+
+        Node first() {
+            return isEmpty() ? null : head.next;
+        }
+
+        Node next(final Node node) {
+            return node.next == head ? null : node.next;
+        }
+
+        void addLast(final Node node) {
+            node.prev = head.prev;
+            node.next = head;
+            head.prev.next = node;
+            head.prev = node;
+            node.queue = this;
+            weight += node.weight;
+        }
+
+        void remove(final Node node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            node.queue = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(final Node node) {
+            remove(node);
+            addLast(node);
+        }
+    }
+
+    private abstract static class Policy {
+        final Map<String, Node> nodes = new HashMap<>();
+        long weight = 0;
+
+        final void add(final String left, final int weight) {
+            final Node node = new Node(left, weight);
+            nodes.put(left, node);
+            this.weight += weight;
+            added(node);
+        }
+
+        /**
+         * Records a hit of the pair, if it is still present.
+         */
+        final void access(final String left) {
+            final Node node = nodes.get(left);
+            if (node != null) {
+                accessed(node);
+            }
+        }
+
+        /**
+         * Records replacement of the right key of the pair, which counts as an access.
+         */
+        final void update(final String left, final int weight) {
+            final Node node = nodes.get(left);
+            this.weight += weight - node.weight;
+            node.queue.weight += weight - node.weight;
+            node.weight = weight;
+            accessed(node);
+        }
+
+        final void remove(final String left) {
+            final Node node = nodes.remove(left);
+            if (node != null) {
+                weight -= node.weight;
+                removed(node);
+            }
+        }
+
+        /**
+         * Removes pairs while over the maximum, passing their left keys to the consumer.
+         */
+        void evict(final long maximum, final Consumer<String> evicted) {
+            while (weight > maximum) {
+                final String victim = victim().left;
+                remove(victim);
+                evicted.accept(victim);
+            }
+        }
+
+        final void clear() {
+            nodes.clear();
+            weight = 0;
+            cleared();
+        }
+
+        abstract void added(Node node);
+
+        abstract void accessed(Node node);
+
+        abstract void removed(Node node);
+
+        abstract Node victim();
+
+        abstract void cleared();
+    }
+
+    private static final class LruPolicy extends Policy {
+        private Deque queue = new Deque();
+
+        @Override
+        void added(final Node node) {
+            queue.addLast(node);
+        }
+
+        @Override
+        void accessed(final Node node) {
+            queue.moveToLast(node);
+        }
+
+        @Override
+        void removed(final Node node) {
+            queue.remove(node);
+        }
+
+        @Override
+        Node victim() {
+            return queue.first();
+        }
+
+        @Override
+        void cleared() {
+            queue = new Deque();
+        }
+    }
+
+    /**
+     * LFU in constant time after Shah, Mitra and Matani: nodes are in LRU lists of their frequency,
+     * which are linked in ascending order of frequencies.
+     */
+    private static final class LfuPolicy extends Policy {
+        private static final class Bucket extends Deque {
+            final int frequency;
+            Bucket prevBucket;
+            Bucket nextBucket;
+
+            Bucket(final int frequency) {
+                this.frequency = frequency;
+            }
+        }
+
+        private final Bucket buckets = new Bucket(0); // sentinel
+
+        LfuPolicy() {
+            cleared();
+        }
+
+        /**
+         * Returns the bucket of the frequency after the given one, adding it if there is none.
+         */
+        private Bucket bucketAfter(final Bucket bucket, final int frequency) {
+            if (bucket.nextBucket.frequency == frequency) {
+                return bucket.nextBucket;
+            }
+            final Bucket result = new Bucket(frequency);
+            result.prevBucket = bucket;
+            result.nextBucket = bucket.nextBucket;
+            bucket.nextBucket.prevBucket = result;
+            bucket.nextBucket = result;
+            return result;
+        }
+
+        private static void removeFrom(final Bucket bucket, final Node node) {
+            bucket.remove(node);
+            if (bucket.isEmpty()) {
+                bucket.prevBucket.nextBucket = bucket.nextBucket;
+                bucket.nextBucket.prevBucket = bucket.prevBucket;
+            }
+        }
+
+        @Override
+        void added(final Node node) {
+            bucketAfter(buckets, 1).addLast(node);
+        }
+
+        @Override
+        void accessed(final Node node) {
+            final Bucket bucket = (Bucket) node.queue;
+            if (bucket.frequency == Integer.MAX_VALUE) {
+                bucket.moveToLast(node);
+                return;
+            }
+            final Bucket next = bucketAfter(bucket, bucket.frequency + 1);
+            removeFrom(bucket, node);
+            next.addLast(node);
+        }
+
+        @Override
+        void removed(final Node node) {
+            removeFrom((Bucket) node.queue, node);
+        }
+
+        @Override
+        Node victim() {
+            return buckets.nextBucket.first();
+        }
+
+        @Override
+        void cleared() {
+            buckets.prevBucket = buckets;
+            buckets.nextBucket = buckets;
+        }
+    }
+
+    /**
+     * Count-min sketch of 4-bit counters packed sixteen in a long, a long per pair. Counters are halved
+     * once there have been ten increments per pair, so that old popularity fades.
+     * <p>
+     * The sketch grows with the number of pairs rather than their weight, and forgets its counts when it does.
+     */
+    static final class FrequencySketch {
+        private static final long[] SEEDS = {0xC3A5C85C97CB3127L, 0xB492B66FBE98F273L, 0x9AE16A3B2F90404FL, 0xCBF29CE484222325L};
+        private static final long ONE_MASK = 0x7777777777777777L; // of all but the highest bits of counters
+
+        private static final int MIN_SIZE = 8;
+        private static final int MAX_SIZE = 1 << 24;
+
+        private long[] table;
+        private int mask; // of counter indices
+        private int sampleSize;
+        private int additions = 0;
+
+        FrequencySketch() {
+            resize(MIN_SIZE);
+        }
+
+        private void resize(final int size) {
+            table = new long[size];
+            mask = 16 * size - 1;
+            sampleSize = 10 * size;
+            additions = 0;
+        }
+
+        /**
+         * Grows the table to a long per pair, up to a power of two of at least the given number of pairs.
+         */
+        void ensureCapacity(final int pairs) {
+            if (pairs > table.length && table.length < MAX_SIZE) {
+                resize(Integer.highestOneBit(Math.min(pairs, MAX_SIZE) * 2 - 1));
+            }
+        }
+
+        int capacity() {
+            return table.length;
+        }
+
+        private int index(final int hash, final int i) {
+            long h = (hash + SEEDS[i]) * SEEDS[i];
+            h += h >>> 32;
+            return (int) h & mask;
+        }
+
+        private int count(final int index) {
+            return (int) (table[index >>> 4] >>> ((index & 15) << 2)) & 15;
+        }
+
+        void increment(final String key) {
+            final int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int i = 0; i < SEEDS.length; i++) {
+                final int index = index(hash, i);
+                if (count(index) < 15) {
+                    table[index >>> 4] += 1L << ((index & 15) << 2);
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < table.length; i++) {
+                    table[i] = (table[i] >>> 1) & ONE_MASK;
+                }
+                additions /= 2;
+            }
+        }
+
+        int frequency(final String key) {
+            final int hash = spread(key.hashCode());
+            int result = 15;
+            for (int i = 0; i < SEEDS.length; i++) {
+                result = Math.min(result, count(index(hash, i)));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Window of a hundredth of the maximum, and main space of probation and protected segments,
+     * the latter up to four fifths of it.
+     */
+    private static final class WindowTinyLfuPolicy extends Policy {
+        private final long windowMaximum;
+        private final long protectedMaximum;
+        private final FrequencySketch sketch;
+        private Deque window = new Deque();
+        private Deque probation = new Deque();
+        private Deque protectedQueue = new Deque();
+
+        WindowTinyLfuPolicy(final long maximum) {
+            windowMaximum = Math.max(1, maximum / 100);
+            protectedMaximum = (maximum - windowMaximum) * 4 / 5;
+            sketch = new FrequencySketch();
+        }
+
+        @Override
+        void added(final Node node) {
+            sketch.ensureCapacity(nodes.size());
+            sketch.increment(node.left);
+            window.addLast(node);
+        }
+
+        @Override
+        void accessed(final Node node) {
+            sketch.increment(node.left);
+            if (node.queue == probation) {
+                probation.remove(node);
+                protectedQueue.addLast(node);
+                while (protectedQueue.weight > protectedMaximum) {
+                    final Node demoted = protectedQueue.first();
+                    protectedQueue.remove(demoted);
+                    probation.addLast(demoted);
+                }
+            } else {
+                node.queue.moveToLast(node);
+            }
+        }
+
+        @Override
+        void removed(final Node node) {
+            node.queue.remove(node);
+        }
+
+        /**
+         * Moves pairs leaving the window to the probation segment as candidates, and while over the maximum
+         * evicts either the oldest candidate or the probation victim, whichever is estimated to be less frequent.
+         */
+        @Override
+        void evict(final long maximum, final Consumer<String> evicted) {
+            Node candidate = null;
+            while (window.weight > windowMaximum) {
+                final Node node = window.first();
+                window.remove(node);
+                probation.addLast(node);
+                if (candidate == null) {
+                    candidate = node;
+                }
+            }
+            while (weight > maximum) {
+                final Node victim = victim();
+                final Node loser;
+                if (candidate == null || candidate == victim) {
+                    loser = victim;
+                } else if (sketch.frequency(candidate.left) > sketch.frequency(victim.left)) {
+                    loser = victim;
+                } else {
+                    loser = candidate;
+                }
+                if (loser == candidate) {
+                    candidate = probation.next(candidate);
+                }
+                remove(loser.left);
+                evicted.accept(loser.left);
+            }
+        }
+
+        @Override
+        Node victim() {
+            if (!probation.isEmpty()) {
+                return probation.first();
+            }
+            return protectedQueue.isEmpty() ? window.first() : protectedQueue.first();
+        }
+
+        @Override
+        void cleared() {
+            window = new Deque();
+            probation = new Deque();
+            protectedQueue = new Deque();
+        }
+    }
+
+    // Views
+
+    private final class View extends AbstractMap<String, String> {
+        private final boolean isRight;
+        private final Set<Entry<String, String>> entrySet = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                final Iterator<Entry<String, String>> entries = side().entrySet().iterator();
+                return new Iterator<>() {
+                    private Entry<String, String> lastRet = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        return lastRet = entries.next();
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastRet == null) {
+                            throw new IllegalStateException();
+                        }
+                        removePair(isRight, lastRet.getKey());
+                        lastRet = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return BoundedBimap.this.size();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return side().entrySet().contains(o);
+            }
+
+            @Override
+            public void clear() {
+                BoundedBimap.this.clear();
+            }
+        };
+
+        private View(final boolean isRight) {
+            this.isRight = isRight;
+        }
+
+        private Map<String, String> side() {
+            return isRight ? data.right() : data.left();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return entrySet;
+        }
+
+        /**
+         * Does not count as a use of the pair.
+         */
+        @Override
+        public boolean containsKey(final Object key) {
+            return side().containsKey(key);
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            return side().containsValue(value);
+        }
+
+        @Override
+        public String get(final Object key) {
+            if (!(key instanceof String string)) {
+                return null;
+            }
+            return isRight ? rightGet(string) : leftGet(string);
+        }
+
+        @Override
+        public String put(final String key, final String value) {
+            if (!isRight) {
+                return forcePut(key, value);
+            }
+            lockForWrite();
+            try {
+                final String previous = key == null ? null : data.right().get(key);
+                putPair(value, key);
+                return previous;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public String remove(final Object key) {
+            return key instanceof String string ? removePair(isRight, string) : null;
+        }
+    }
+
+    @Override
+    public Map<String, String> left() {
+        return leftView;
+    }
+
+    @Override
+    public Map<String, String> right() {
+        return rightView;
+    }
+
+    @Override
+    public String toString() {
+        return "BoundedBimap{" + "eviction=" + eviction + ", maximum=" + maximum + ", left=" + data.left() + '}';
+    }
+}
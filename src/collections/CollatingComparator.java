@@ -0,0 +1,59 @@
+package collections;
+
+import java.text.CollationElementIterator;
+import java.text.Collator;
+import java.text.RuleBasedCollator;
+import java.util.Locale;
+
+/**
+ * Locale-aware ordering of a {@link Collator}, which abbreviates keys into the primary weights of their collation keys.
+ * {@link TreeBimap} computes the abbreviation once per stored key and per probe, so descents compare the weights
+ * of up to four leading characters and run the collation algorithm only for keys which share them.
+ */
+public final class CollatingComparator implements AbbreviatingComparator<String> {
+    private final Collator collator;
+
+    /**
+     * Uses a copy of the collator, which is not affected by later changes of its strength or decomposition.
+     */
+    public CollatingComparator(final Collator collator) {
+        this.collator = (Collator) collator.clone();
+    }
+
+    public CollatingComparator(final Locale locale) {
+        this(Collator.getInstance(locale));
+    }
+
+    @Override
+    public int compare(final String a, final String b) {
+        return collator.compare(a, b);
+    }
+
+    /**
+     * Packs the first four primary weights of the key under a {@link RuleBasedCollator}, which reads only as many
+     * characters as they take instead of making the whole collation key. Secondary and tertiary weights are left out,
+     * as they take part only in ties of primary ones. Other collators are not abbreviated.
+     */
+    @Override
+    public long abbreviate(final String key) {
+        if (!(collator instanceof RuleBasedCollator rules)) {
+            return 0;
+        }
+        final CollationElementIterator elements = rules.getCollationElementIterator(key);
+        long result = 0;
+        int shift = 48;
+        for (int order = elements.next(); order != CollationElementIterator.NULLORDER && shift >= 0; order = elements.next()) {
+            final int primary = CollationElementIterator.primaryOrder(order);
+            if (primary != 0) {
+                result |= (long) primary << shift;
+                shift -= 16;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CollatingComparator{" + "collator=" + collator + '}';
+    }
+}
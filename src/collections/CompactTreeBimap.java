@@ -0,0 +1,628 @@
+package collections;
+
+import java.util.*;
+
+/**
+ * Ordered {@link Bimap} with the same semantics and iteration order as {@link TreeBimap},
+ * which keeps its AVL trees in parallel primitive arrays instead of node objects.
+ * <p>
+ * Nodes are ids indexing the arrays of both trees, so a pair costs two key references, six ints and two bytes,
+ * and the heap holds no per-entry objects except for the keys. Ids of removed nodes are reused via a free list.
+ * <p>
+ * Keys may also be interned into a {@link KeyArena} instead, so that equal keys of both sides and of other bimaps
+ * sharing the arena are stored once, and lookups compare encoded bytes without materializing strings.
+ */
+public class CompactTreeBimap implements Bimap {
+    private static final int NIL = 0; // ids start from 1, so zero-filled links are empty
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * Storage of the keys of a tree, indexed by node id.
+     */
+    private abstract static class Keys {
+        abstract int compare(String key, int node);
+
+        abstract int compare(int node, int other);
+
+        abstract String get(int node);
+
+        abstract void set(int node, String key);
+
+        abstract void remove(int node);
+
+        abstract void grow(int capacity);
+
+        abstract void clear();
+    }
+
+    private static final class StringKeys extends Keys {
+        private final Comparator<? super String> cmp;
+        private String[] keys = new String[INITIAL_CAPACITY];
+
+        private StringKeys(final Comparator<? super String> cmp) {
+            this.cmp = cmp;
+        }
+
+        @Override
+        int compare(final String key, final int node) {
+            return cmp.compare(key, keys[node]);
+        }
+
+        @Override
+        int compare(final int node, final int other) {
+            return cmp.compare(keys[node], keys[other]);
+        }
+
+        @Override
+        String get(final int node) {
+            return keys[node];
+        }
+
+        @Override
+        void set(final int node, final String key) {
+            keys[node] = key;
+        }
+
+        @Override
+        void remove(final int node) {
+            keys[node] = null;
+        }
+
+        @Override
+        void grow(final int capacity) {
+            keys = Arrays.copyOf(keys, capacity);
+        }
+
+        @Override
+        void clear() {
+            keys = new String[INITIAL_CAPACITY];
+        }
+    }
+
+    /**
+     * Keys interned into an arena, in natural ordering. Equal keys have equal references.
+     */
+    private static final class ArenaKeys extends Keys {
+        private final KeyArena arena;
+        private int[] refs = new int[INITIAL_CAPACITY];
+
+        private ArenaKeys(final KeyArena arena) {
+            this.arena = arena;
+        }
+
+        @Override
+        int compare(final String key, final int node) {
+            return arena.compare(key, refs[node]);
+        }
+
+        @Override
+        int compare(final int node, final int other) {
+            return arena.compare(refs[node], refs[other]);
+        }
+
+        @Override
+        String get(final int node) {
+            return arena.get(refs[node]);
+        }
+
+        @Override
+        void set(final int node, final String key) {
+            refs[node] = arena.intern(Objects.requireNonNull(key));
+        }
+
+        @Override
+        void remove(final int node) {
+            // Interned keys are never freed
+        }
+
+        @Override
+        void grow(final int capacity) {
+            refs = Arrays.copyOf(refs, capacity);
+        }
+
+        @Override
+        void clear() {
+            refs = new int[INITIAL_CAPACITY];
+        }
+    }
+
+    private final class Tree {
+        private final Keys keys;
+        private int[] lefts = new int[INITIAL_CAPACITY];
+        private int[] rights = new int[INITIAL_CAPACITY];
+        private int[] parents = new int[INITIAL_CAPACITY]; // next free id for free nodes of the left tree
+        private byte[] heights = new byte[INITIAL_CAPACITY];
+        private int root = NIL;
+        private Tree other;
+
+        private Tree(final Keys keys) {
+            this.keys = keys;
+        }
+
+        private void grow(final int capacity) {
+            keys.grow(capacity);
+            lefts = Arrays.copyOf(lefts, capacity);
+            rights = Arrays.copyOf(rights, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            heights = Arrays.copyOf(heights, capacity);
+        }
+
+        private int height(final int node) {
+            return node == NIL ? 0 : heights[node];
+        }
+
+        private void fixHeight(final int node) {
+            heights[node] = (byte) (Math.max(height(lefts[node]), height(rights[node])) + 1);
+        }
+
+        private int find(final Object key) {
+            int node = root;
+            while (node != NIL) {
+                final int c = keys.compare((String) key, node);
+                if (c == 0) {
+                    return node;
+                }
+                node = c < 0 ? lefts[node] : rights[node];
+            }
+            return NIL;
+        }
+
+        private int first() {
+            int node = root;
+            if (node != NIL) {
+                while (lefts[node] != NIL) {
+                    node = lefts[node];
+                }
+            }
+            return node;
+        }
+
+        private int next(int node) {
+            if (rights[node] != NIL) {
+                node = rights[node];
+                while (lefts[node] != NIL) {
+                    node = lefts[node];
+                }
+                return node;
+            }
+            while (parents[node] != NIL && node == rights[parents[node]]) {
+                node = parents[node];
+            }
+            return parents[node];
+        }
+
+        /**
+         * Replaces child of the parent, or the root, with another subtree.
+         */
+        private void replaceChild(final int parent, final int child, final int other) {
+            if (parent == NIL) {
+                root = other;
+            } else if (lefts[parent] == child) {
+                lefts[parent] = other;
+            } else {
+                rights[parent] = other;
+            }
+            if (other != NIL) {
+                parents[other] = parent;
+            }
+        }
+
+        private int rotateRight(final int node) {
+            final int pivot = lefts[node];
+            replaceChild(parents[node], node, pivot);
+            lefts[node] = rights[pivot];
+            if (lefts[node] != NIL) {
+                parents[lefts[node]] = node;
+            }
+            rights[pivot] = node;
+            parents[node] = pivot;
+            fixHeight(node);
+            fixHeight(pivot);
+            return pivot;
+        }
+
+        private int rotateLeft(final int node) {
+            final int pivot = rights[node];
+            replaceChild(parents[node], node, pivot);
+            rights[node] = lefts[pivot];
+            if (rights[node] != NIL) {
+                parents[rights[node]] = node;
+            }
+            lefts[pivot] = node;
+            parents[node] = pivot;
+            fixHeight(node);
+            fixHeight(pivot);
+            return pivot;
+        }
+
+        /**
+         * Fixes heights and balance from the node up to the root.
+         */
+        private void fix(int node) {
+            while (node != NIL) {
+                fixHeight(node);
+                final int disbalance = height(lefts[node]) - height(rights[node]);
+                if (disbalance > 1) {
+                    if (height(lefts[lefts[node]]) < height(rights[lefts[node]])) {
+                        rotateLeft(lefts[node]);
+                    }
+                    node = rotateRight(node);
+                } else if (disbalance < -1) {
+                    if (height(rights[rights[node]]) < height(lefts[rights[node]])) {
+                        rotateRight(rights[node]);
+                    }
+                    node = rotateLeft(node);
+                }
+                node = parents[node];
+            }
+        }
+
+        /**
+         * Links node with a key absent from the tree.
+         */
+        private void insert(final int node) {
+            lefts[node] = NIL;
+            rights[node] = NIL;
+            heights[node] = 1;
+            int parent = NIL;
+            int current = root;
+            int c = 0;
+            while (current != NIL) {
+                parent = current;
+                c = keys.compare(node, current);
+                current = c < 0 ? lefts[current] : rights[current];
+            }
+            parents[node] = parent;
+            if (parent == NIL) {
+                root = node;
+            } else if (c < 0) {
+                lefts[parent] = node;
+            } else {
+                rights[parent] = node;
+            }
+            fix(parent);
+        }
+
+        /**
+         * Unlinks node, substituting it with its successor if it has both children.
+         */
+        private void remove(final int node) {
+            final int from;
+            if (lefts[node] != NIL && rights[node] != NIL) {
+                int successor = rights[node];
+                while (lefts[successor] != NIL) {
+                    successor = lefts[successor];
+                }
+                if (successor == rights[node]) {
+                    from = successor;
+                } else {
+                    from = parents[successor];
+                    replaceChild(from, successor, rights[successor]);
+                    rights[successor] = rights[node];
+                    parents[rights[successor]] = successor;
+                }
+                lefts[successor] = lefts[node];
+                parents[lefts[successor]] = successor;
+                replaceChild(parents[node], node, successor);
+                heights[successor] = heights[node];
+            } else {
+                from = parents[node];
+                replaceChild(from, node, lefts[node] != NIL ? lefts[node] : rights[node]);
+            }
+            fix(from);
+        }
+
+        private boolean checkInvariant(final int node, final int parent) {
+            return node == NIL || parents[node] == parent
+                    && (lefts[node] == NIL || keys.compare(lefts[node], node) < 0 && checkInvariant(lefts[node], node))
+                    && (rights[node] == NIL || keys.compare(node, rights[node]) < 0 && checkInvariant(rights[node], node))
+                    && heights[node] == Math.max(height(lefts[node]), height(rights[node])) + 1
+                    && Math.abs(height(lefts[node]) - height(rights[node])) <= 1;
+        }
+
+        private int count(final int node) {
+            return node == NIL ? 0 : count(lefts[node]) + count(rights[node]) + 1;
+        }
+
+        private void clear() {
+            keys.clear();
+            lefts = new int[INITIAL_CAPACITY];
+            rights = new int[INITIAL_CAPACITY];
+            parents = new int[INITIAL_CAPACITY];
+            heights = new byte[INITIAL_CAPACITY];
+            root = NIL;
+        }
+    }
+
+    private final Tree leftTree;
+    private final Tree rightTree;
+    private final View leftView;
+    private final View rightView;
+    private int capacity = INITIAL_CAPACITY;
+    private int nextId = 1; // the lowest id which was never used
+    private int free = NIL; // the head of the free list
+    private int size = 0;
+    private int modCount = 0;
+
+    public CompactTreeBimap() {
+        this(new NaturalOrderingComparator<>(), new NaturalOrderingComparator<>());
+    }
+
+    public CompactTreeBimap(final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp) {
+        this(new StringKeys(leftCmp), new StringKeys(rightCmp));
+    }
+
+    /**
+     * Stores keys of both sides in the arena, which may be shared with other bimaps. Keys are in natural ordering
+     * and may not be {@code null}.
+     */
+    public CompactTreeBimap(final KeyArena arena) {
+        this(new ArenaKeys(arena), new ArenaKeys(arena));
+    }
+
+    private CompactTreeBimap(final Keys leftKeys, final Keys rightKeys) {
+        leftTree = new Tree(leftKeys);
+        rightTree = new Tree(rightKeys);
+        leftTree.other = rightTree;
+        rightTree.other = leftTree;
+        leftView = new View(leftTree);
+        rightView = new View(rightTree);
+    }
+
+    public boolean checkInvariant() {
+        return leftTree.checkInvariant(leftTree.root, NIL) && rightTree.checkInvariant(rightTree.root, NIL)
+                && leftTree.count(leftTree.root) == size && rightTree.count(rightTree.root) == size;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private int allocate() {
+        if (free != NIL) {
+            final int node = free;
+            free = leftTree.parents[node];
+            return node;
+        }
+        if (nextId == capacity) {
+            capacity += capacity >> 1;
+            leftTree.grow(capacity);
+            rightTree.grow(capacity);
+        }
+        return nextId++;
+    }
+
+    private void remove(final int node) {
+        leftTree.remove(node);
+        rightTree.remove(node);
+        leftTree.keys.remove(node);
+        rightTree.keys.remove(node);
+        leftTree.parents[node] = free;
+        free = node;
+        size--;
+        modCount++;
+    }
+
+    /**
+     * Maps key of the tree to the value of the other tree, evicting pairs with either of them.
+     *
+     * @return previous value of the key, or {@code null}
+     */
+    private String put(final Tree tree, final String key, final String value) {
+        final Tree other = tree.other;
+        final int node = tree.find(key);
+        final int evicted = other.find(value);
+        if (node != NIL && node == evicted) {
+            return other.keys.get(node);
+        }
+        if (evicted != NIL) {
+            remove(evicted);
+        }
+        modCount++;
+        if (node != NIL) {
+            final String previous = other.keys.get(node);
+            other.remove(node);
+            other.keys.set(node, value);
+            other.insert(node);
+            return previous;
+        }
+        final int created = allocate();
+        tree.keys.set(created, key);
+        other.keys.set(created, value);
+        tree.insert(created);
+        other.insert(created);
+        size++;
+        return null;
+    }
+
+    private String remove(final Tree tree, final Object key) {
+        final int node = tree.find(key);
+        if (node == NIL) {
+            return null;
+        }
+        final String value = tree.other.keys.get(node);
+        remove(node);
+        return value;
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        put(leftTree, left, right);
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        return put(leftTree, left, right);
+    }
+
+    @Override
+    public String leftRemove(final String left) {
+        return remove(leftTree, left);
+    }
+
+    @Override
+    public String rightRemove(final String right) {
+        return remove(rightTree, right);
+    }
+
+    @Override
+    public void putAll(final Bimap other) {
+        if (other == this) {
+            return;
+        }
+        for (final Map.Entry<String, String> entry : other.left().entrySet()) {
+            put(leftTree, entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void clear() {
+        leftTree.clear();
+        rightTree.clear();
+        capacity = INITIAL_CAPACITY;
+        nextId = 1;
+        free = NIL;
+        size = 0;
+        modCount++;
+    }
+
+    private final class View extends AbstractMap<String, String> {
+        private final Tree tree;
+        private final Set<Entry<String, String>> entrySet = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int next = tree.first();
+                    private int lastRet = NIL;
+                    private int expectedModCount = modCount;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next != NIL;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (modCount != expectedModCount) {
+                            throw new ConcurrentModificationException();
+                        }
+                        if (next == NIL) {
+                            throw new NoSuchElementException();
+                        }
+                        lastRet = next;
+                        next = tree.next(next);
+                        return new SimpleImmutableEntry<>(tree.keys.get(lastRet), tree.other.keys.get(lastRet));
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastRet == NIL) {
+                            throw new IllegalStateException();
+                        }
+                        if (modCount != expectedModCount) {
+                            throw new ConcurrentModificationException();
+                        }
+                        // Ids are stable, so the next node stays valid
+                        CompactTreeBimap.this.remove(lastRet);
+                        lastRet = NIL;
+                        expectedModCount = modCount;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                if (!(o instanceof Entry<?, ?> entry)) {
+                    return false;
+                }
+                final int node = tree.find(entry.getKey());
+                return node != NIL && Objects.equals(tree.other.keys.get(node), entry.getValue());
+            }
+
+            @Override
+            public boolean remove(final Object o) {
+                if (!contains(o)) {
+                    return false;
+                }
+                View.this.remove(((Entry<?, ?>) o).getKey());
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                CompactTreeBimap.this.clear();
+            }
+        };
+
+        private View(final Tree tree) {
+            this.tree = tree;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return tree.find(key) != NIL;
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            return tree.other.find(value) != NIL;
+        }
+
+        @Override
+        public String get(final Object key) {
+            final int node = tree.find(key);
+            return node == NIL ? null : tree.other.keys.get(node);
+        }
+
+        @Override
+        public String put(final String key, final String value) {
+            return CompactTreeBimap.this.put(tree, key, value);
+        }
+
+        @Override
+        public String remove(final Object key) {
+            return CompactTreeBimap.this.remove(tree, key);
+        }
+
+        @Override
+        public void clear() {
+            CompactTreeBimap.this.clear();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return entrySet;
+        }
+    }
+
+    @Override
+    public Map<String, String> left() {
+        return leftView;
+    }
+
+    @Override
+    public Map<String, String> right() {
+        return rightView;
+    }
+
+    @Override
+    public String toString() {
+        return "CompactTreeBimap{" + "left=" + left() + ", right=" + right() + '}';
+    }
+}
@@ -0,0 +1,373 @@
+package collections;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * Thread-safe unordered {@link Bimap}, which does not permit {@code null} keys.
+ * <p>
+ * Keys of both sides are hashed to lock stripes. A writer locks stripes of all keys it changes,
+ * including keys of the evicted pairs, in a fixed order, and revalidates the pairs after locking,
+ * so both sides are always changed atomically. Readers do not lock: they read the key and then validate
+ * an optimistic stamp of its stripe, falling back to a read lock only if a writer interfered.
+ * <p>
+ * {@link #size()}, {@link #putAll} and iteration of the views are not atomic, like in {@link ConcurrentHashMap}.
+ */
+public class ConcurrentBimap implements Bimap {
+    private static final class Side {
+        final ConcurrentHashMap<String, String> map = new ConcurrentHashMap<>();
+        final int offset; // of the stripes of this side in locks
+
+        Side(final int offset) {
+            this.offset = offset;
+        }
+    }
+
+    private enum Condition {
+        ALWAYS, IF_PRESENT, IF_ABSENT
+    }
+
+    private final StampedLock[] locks; // stripes of the left side followed by stripes of the right one
+    private final int mask;
+    private final Side left;
+    private final Side right;
+    private final View leftView;
+    private final View rightView;
+
+    public ConcurrentBimap() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public ConcurrentBimap(final int concurrencyLevel) {
+        final int stripes = Integer.highestOneBit(Math.max(1, Math.min(concurrencyLevel, 1 << 16)) * 2 - 1);
+        mask = stripes - 1;
+        locks = new StampedLock[2 * stripes];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new StampedLock();
+        }
+        left = new Side(0);
+        right = new Side(stripes);
+        leftView = new View(left, right);
+        rightView = new View(right, left);
+    }
+
+    private int stripe(final Side side, final String key) {
+        final int hash = key.hashCode();
+        return side.offset + ((hash ^ (hash >>> 16)) & mask);
+    }
+
+    /**
+     * Write-locks distinct stripes in ascending order.
+     *
+     * @return stamps of the locked stripes, zero for duplicates
+     */
+    private long[] lock(final int[] stripes) {
+        Arrays.sort(stripes);
+        final long[] stamps = new long[stripes.length];
+        for (int i = 0; i < stripes.length; i++) {
+            if (i == 0 || stripes[i] != stripes[i - 1]) {
+                stamps[i] = locks[stripes[i]].writeLock();
+            }
+        }
+        return stamps;
+    }
+
+    private void unlock(final int[] stripes, final long[] stamps) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            if (stamps[i] != 0) {
+                locks[stripes[i]].unlockWrite(stamps[i]);
+            }
+        }
+    }
+
+    private String read(final Side side, final String key) {
+        final StampedLock lock = locks[stripe(side, key)];
+        final long optimistic = lock.tryOptimisticRead();
+        if (optimistic != 0) {
+            final String value = side.map.get(key);
+            if (lock.validate(optimistic)) {
+                return value;
+            }
+        }
+        final long stamp = lock.readLock();
+        try {
+            return side.map.get(key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Maps key of the side to the value of the other side, evicting pairs with either of them.
+     *
+     * @return previous value of the key, or {@code null}
+     */
+    private String put(final Side side, final Side other, final String key, final String value, final Condition condition) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        while (true) {
+            final String oldValue = side.map.get(key);
+            final String oldKey = other.map.get(value);
+            final int[] stripes = {
+                    stripe(side, key),
+                    oldKey == null ? stripe(side, key) : stripe(side, oldKey),
+                    stripe(other, value),
+                    oldValue == null ? stripe(other, value) : stripe(other, oldValue)
+            };
+            final long[] stamps = lock(stripes);
+            try {
+                if (!Objects.equals(side.map.get(key), oldValue) || !Objects.equals(other.map.get(value), oldKey)) {
+                    continue;
+                }
+                if (condition == Condition.IF_PRESENT && oldValue == null
+                        || condition == Condition.IF_ABSENT && oldValue != null) {
+                    return oldValue;
+                }
+                if (oldValue != null) {
+                    other.map.remove(oldValue);
+                }
+                if (oldKey != null) {
+                    side.map.remove(oldKey);
+                }
+                side.map.put(key, value);
+                other.map.put(value, key);
+                return oldValue;
+            } finally {
+                unlock(stripes, stamps);
+            }
+        }
+    }
+
+    /**
+     * Removes pair with the key of the side, if it is mapped to the expected value or {@code expected} is {@code null}.
+     *
+     * @return removed value, or {@code null}
+     */
+    private String remove(final Side side, final Side other, final String key, final String expected) {
+        while (true) {
+            final String value = side.map.get(key);
+            if (value == null || expected != null && !expected.equals(value)) {
+                // Validates absence like a read
+                final String current = read(side, key);
+                if (Objects.equals(current, value)) {
+                    return null;
+                }
+                continue;
+            }
+            final int[] stripes = {stripe(side, key), stripe(other, value)};
+            final long[] stamps = lock(stripes);
+            try {
+                if (!value.equals(side.map.get(key))) {
+                    continue;
+                }
+                side.map.remove(key);
+                other.map.remove(value);
+                return value;
+            } finally {
+                unlock(stripes, stamps);
+            }
+        }
+    }
+
+    @Override
+    public int size() {
+        return left.map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return left.map.isEmpty();
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        put(this.left, this.right, left, right, Condition.ALWAYS);
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        return put(this.left, this.right, left, right, Condition.ALWAYS);
+    }
+
+    @Override
+    public boolean putIfAbsent(final String left, final String right) {
+        Objects.requireNonNull(left);
+        Objects.requireNonNull(right);
+        final int[] stripes = {stripe(this.left, left), stripe(this.right, right)};
+        final long[] stamps = lock(stripes);
+        try {
+            if (this.left.map.containsKey(left) || this.right.map.containsKey(right)) {
+                return false;
+            }
+            this.left.map.put(left, right);
+            this.right.map.put(right, left);
+            return true;
+        } finally {
+            unlock(stripes, stamps);
+        }
+    }
+
+    @Override
+    public String replaceRight(final String left, final String newRight) {
+        return put(this.left, this.right, left, newRight, Condition.IF_PRESENT);
+    }
+
+    @Override
+    public String replaceLeft(final String right, final String newLeft) {
+        return put(this.right, this.left, right, newLeft, Condition.IF_PRESENT);
+    }
+
+    @Override
+    public String computeRightIfAbsent(final String left, final Function<? super String, ? extends String> mapping) {
+        final String current = read(this.left, left);
+        if (current != null) {
+            return current;
+        }
+        final String right = mapping.apply(left);
+        if (right == null) {
+            return null;
+        }
+        final String previous = put(this.left, this.right, left, right, Condition.IF_ABSENT);
+        return previous != null ? previous : right;
+    }
+
+    @Override
+    public String leftRemove(final String left) {
+        return remove(this.left, this.right, left, null);
+    }
+
+    @Override
+    public String rightRemove(final String right) {
+        return remove(this.right, this.left, right, null);
+    }
+
+    @Override
+    public void putAll(final Bimap other) {
+        other.left().forEach(this::put);
+    }
+
+    @Override
+    public void clear() {
+        final int[] stripes = new int[locks.length];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = i;
+        }
+        final long[] stamps = lock(stripes);
+        try {
+            left.map.clear();
+            right.map.clear();
+        } finally {
+            unlock(stripes, stamps);
+        }
+    }
+
+    private final class View extends AbstractMap<String, String> {
+        private final Side side;
+        private final Side other;
+        private final Set<Entry<String, String>> entrySet = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                final Iterator<Entry<String, String>> entries = side.map.entrySet().iterator();
+                return new Iterator<>() {
+                    private Entry<String, String> lastRet = null;
+
+                    @Override
+                    public boolean hasNext() {
+                        return entries.hasNext();
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        final Entry<String, String> entry = entries.next();
+                        return lastRet = new SimpleImmutableEntry<>(entry.getKey(), entry.getValue());
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastRet == null) {
+                            throw new IllegalStateException();
+                        }
+                        ConcurrentBimap.this.remove(side, other, lastRet.getKey(), lastRet.getValue());
+                        lastRet = null;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentBimap.this.size();
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return o instanceof Entry<?, ?> entry
+                        && entry.getKey() != null
+                        && Objects.equals(read(side, (String) entry.getKey()), entry.getValue());
+            }
+
+            @Override
+            public boolean remove(final Object o) {
+                return o instanceof Entry<?, ?> entry
+                        && entry.getKey() != null && entry.getValue() != null
+                        && ConcurrentBimap.this.remove(side, other, (String) entry.getKey(), (String) entry.getValue()) != null;
+            }
+
+            @Override
+            public void clear() {
+                ConcurrentBimap.this.clear();
+            }
+        };
+
+        private View(final Side side, final Side other) {
+            this.side = side;
+            this.other = other;
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return entrySet;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return key != null && read(side, (String) key) != null;
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            return value != null && read(other, (String) value) != null;
+        }
+
+        @Override
+        public String get(final Object key) {
+            return key == null ? null : read(side, (String) key);
+        }
+
+        @Override
+        public String put(final String key, final String value) {
+            return ConcurrentBimap.this.put(side, other, key, value, Condition.ALWAYS);
+        }
+
+        @Override
+        public String remove(final Object key) {
+            return key == null ? null : ConcurrentBimap.this.remove(side, other, (String) key, null);
+        }
+    }
+
+    @Override
+    public Map<String, String> left() {
+        return leftView;
+    }
+
+    @Override
+    public Map<String, String> right() {
+        return rightView;
+    }
+
+    @Override
+    public String toString() {
+        return "ConcurrentBimap{" + "left=" + left.map + ", right=" + right.map + '}';
+    }
+}
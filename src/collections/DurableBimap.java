@@ -0,0 +1,703 @@
+package collections;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.zip.CRC32;
+
+/**
+ * Thread-safe {@link TreeBimap} with natural ordering, whose modifications survive restarts.
+ * <p>
+ * Every effective modification is applied in memory and appended to a write-ahead log in a directory.
+ * Callers are batched into group commits: the first one to wait becomes the leader, writes everything appended
+ * so far and forces it once, while the others wait for it and usually find their records already durable.
+ * {@link SyncPolicy} trades durability against throughput.
+ * <p>
+ * {@link #checkpoint()}, also done automatically once the log grows large enough, writes the contents as a
+ * {@link MappedBimap} snapshot and starts a new empty log. Files of a checkpoint are numbered, and the snapshot
+ * is renamed into place only when complete, so a crash at any point leaves either the old snapshot with its log
+ * or the new one. Opening loads the latest snapshot and replays its log, ignoring a torn record at its end.
+ * <p>
+ * Views lock this bimap for lookups and modifications, but iteration must be done holding the lock,
+ * like for {@link Collections#synchronizedMap}.
+ */
+public final class DurableBimap implements Bimap, Closeable {
+    /**
+     * When modifications are forced to the disk.
+     */
+    public record SyncPolicy(Mode mode, Duration interval) {
+        public enum Mode {
+            /**
+             * Each modification is written and forced before it returns, and modifications are serialized meanwhile.
+             */
+            PER_OPERATION,
+            /**
+             * Each modification returns once durable, and concurrent ones share a force.
+             */
+            GROUP,
+            /**
+             * Modifications return at once, and are forced in background every interval,
+             * so the last interval may be lost on a crash.
+             */
+            INTERVAL
+        }
+
+        public static SyncPolicy perOperation() {
+            return new SyncPolicy(Mode.PER_OPERATION, null);
+        }
+
+        public static SyncPolicy group() {
+            return new SyncPolicy(Mode.GROUP, null);
+        }
+
+        public static SyncPolicy interval(final Duration interval) {
+            return new SyncPolicy(Mode.INTERVAL, Objects.requireNonNull(interval));
+        }
+    }
+
+    private static final byte PUT = 1;
+    private static final byte LEFT_REMOVE = 2;
+    private static final byte RIGHT_REMOVE = 3;
+    private static final byte CLEAR = 4;
+    private static final int MAX_RECORD = 1 << 30;
+    private static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+    private final Path directory;
+    private final SyncPolicy policy;
+    private final long checkpointBytes;
+    private final TreeBimap bimap;
+    private final View leftView;
+    private final View rightView;
+    private final ScheduledExecutorService flusher;
+
+    private long epoch; // of the current snapshot and log, guarded by this
+    private FileChannel log; // guarded by commitLock, replaced under both locks
+    private final ReentrantLock commitLock = new ReentrantLock();
+
+    private final Object buffers = new Object(); // guards the fields below, taken after this and commitLock
+    private ByteBuffer pending = ByteBuffer.allocate(1 << 16);
+    private long appended = 0; // sequence number of the last appended record
+    private long logBytes = 0; // including pending ones
+
+    private volatile long durable = 0; // sequence number of the last forced record
+    private volatile IOException failure = null;
+    private boolean closed = false; // guarded by this
+
+    private DurableBimap(final Path directory, final SyncPolicy policy, final long checkpointBytes) throws IOException {
+        this.directory = directory;
+        this.policy = policy;
+        this.checkpointBytes = checkpointBytes;
+        Files.createDirectories(directory);
+
+        epoch = latestEpoch(directory);
+        final Path snapshot = snapshotPath(epoch);
+        bimap = Files.exists(snapshot)
+                ? TreeBimap.fromSorted(MappedBimap.open(snapshot).left().entrySet().iterator())
+                : new TreeBimap();
+        final Path logPath = logPath(epoch);
+        final long valid = Files.exists(logPath) ? replay(logPath) : 0;
+        log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        log.truncate(valid);
+        log.position(valid);
+        logBytes = valid;
+        deleteStale();
+
+        leftView = new View(bimap.left(), false);
+        rightView = new View(bimap.right(), true);
+        if (policy.mode() == SyncPolicy.Mode.INTERVAL) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                final Thread thread = new Thread(runnable, "DurableBimap flusher " + directory);
+                thread.setDaemon(true);
+                return thread;
+            });
+            final long nanos = policy.interval().toNanos();
+            flusher.scheduleWithFixedDelay(this::flush, nanos, nanos, TimeUnit.NANOSECONDS);
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Opens or creates bimap in the directory, checkpointing when the log exceeds 64 MiB.
+     */
+    public static DurableBimap open(final Path directory, final SyncPolicy policy) throws IOException {
+        return open(directory, policy, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    /**
+     * Opens or creates bimap in the directory, checkpointing when the log exceeds the given size.
+     */
+    public static DurableBimap open(final Path directory, final SyncPolicy policy, final long checkpointBytes) throws IOException {
+        return new DurableBimap(directory, Objects.requireNonNull(policy), checkpointBytes);
+    }
+
+    // Files
+
+    private Path snapshotPath(final long epoch) {
+        return directory.resolve("snapshot-" + epoch);
+    }
+
+    private Path logPath(final long epoch) {
+        return directory.resolve("log-" + epoch);
+    }
+
+    private static long latestEpoch(final Path directory) throws IOException {
+        long result = 0;
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory, "snapshot-*")) {
+            for (final Path file : files) {
+                try {
+                    result = Math.max(result, Long.parseLong(file.getFileName().toString().substring("snapshot-".length())));
+                } catch (final NumberFormatException e) {
+                    // A temporary file of an unfinished checkpoint
+                }
+            }
+        }
+        return result;
+    }
+
+    private void deleteStale() throws IOException {
+        final Set<Path> current = Set.of(snapshotPath(epoch), logPath(epoch));
+        try (final DirectoryStream<Path> files = Files.newDirectoryStream(directory, "{snapshot,log}-*")) {
+            for (final Path file : files) {
+                if (!current.contains(file)) {
+                    Files.delete(file);
+                }
+            }
+        }
+    }
+
+    private void syncDirectory() {
+        try (final FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (final IOException e) {
+            // Not supported by every platform, renames are still atomic there
+        }
+    }
+
+    // Log records: payload length, CRC32 of the payload, operation and keys as length and chars (-1 for null)
+
+    /**
+     * Applies records of the log to the bimap.
+     *
+     * @return length of the valid prefix of the log
+     */
+    private long replay(final Path path) throws IOException {
+        long valid = 0;
+        try (final DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            final CRC32 crc = new CRC32();
+            while (true) {
+                final int length;
+                final int checksum;
+                final byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > MAX_RECORD) {
+                        break;
+                    }
+                    payload = in.readNBytes(length);
+                } catch (final EOFException e) {
+                    break;
+                }
+                crc.reset();
+                crc.update(payload);
+                if (payload.length < length || (int) crc.getValue() != checksum) {
+                    // A torn write of the last record
+                    break;
+                }
+                apply(ByteBuffer.wrap(payload));
+                valid += 8 + length;
+            }
+        }
+        return valid;
+    }
+
+    private static String readKey(final ByteBuffer payload) {
+        final int length = payload.getInt();
+        if (length < 0) {
+            return null;
+        }
+        final char[] chars = new char[length];
+        payload.asCharBuffer().get(chars);
+        payload.position(payload.position() + 2 * length);
+        return new String(chars);
+    }
+
+    private void apply(final ByteBuffer payload) {
+        switch (payload.get()) {
+            case PUT -> {
+                final String left = readKey(payload);
+                bimap.put(left, readKey(payload));
+            }
+            case LEFT_REMOVE -> bimap.leftRemove(readKey(payload));
+            case RIGHT_REMOVE -> bimap.rightRemove(readKey(payload));
+            case CLEAR -> bimap.clear();
+            default -> throw new IllegalStateException("Unknown log record in " + directory);
+        }
+    }
+
+    private static int keySize(final String key) {
+        return 4 + (key == null ? 0 : 2 * key.length());
+    }
+
+    private static void putKey(final ByteBuffer buffer, final String key) {
+        if (key == null) {
+            buffer.putInt(-1);
+            return;
+        }
+        buffer.putInt(key.length());
+        for (int i = 0; i < key.length(); i++) {
+            buffer.putChar(key.charAt(i));
+        }
+    }
+
+    /**
+     * Appends record to the pending batch. Called holding the lock on this, so that the log has the order of memory.
+     *
+     * @return sequence number of the record
+     */
+    private long append(final byte op, final String first, final String second, final int keys) {
+        final int length = 1 + (keys > 0 ? keySize(first) : 0) + (keys > 1 ? keySize(second) : 0);
+        final ByteBuffer record = ByteBuffer.allocate(8 + length);
+        record.position(8);
+        record.put(op);
+        if (keys > 0) {
+            putKey(record, first);
+        }
+        if (keys > 1) {
+            putKey(record, second);
+        }
+        final CRC32 crc = new CRC32();
+        crc.update(record.array(), 8, length);
+        record.putInt(0, length).putInt(4, (int) crc.getValue()).flip();
+
+        synchronized (buffers) {
+            if (pending.remaining() < record.remaining()) {
+                final ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + record.remaining()));
+                pending.flip();
+                grown.put(pending);
+                pending = grown;
+            }
+            pending.put(record);
+            logBytes += record.limit();
+            return ++appended;
+        }
+    }
+
+    /**
+     * Makes records up to the sequence number durable, as a leader of a group commit if they are not yet.
+     */
+    private void commit(final long sequence) throws IOException {
+        if (durable >= sequence) {
+            return;
+        }
+        commitLock.lock();
+        try {
+            if (durable >= sequence) {
+                return;
+            }
+            final ByteBuffer batch;
+            final long last;
+            synchronized (buffers) {
+                batch = pending;
+                last = appended;
+                pending = ByteBuffer.allocate(batch.capacity());
+            }
+            batch.flip();
+            while (batch.hasRemaining()) {
+                log.write(batch);
+            }
+            log.force(false);
+            durable = last;
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void flush() {
+        final long last;
+        synchronized (buffers) {
+            last = appended;
+        }
+        try {
+            commit(last);
+        } catch (final IOException e) {
+            failure = e;
+        }
+    }
+
+    private void checkUsable() {
+        if (closed) {
+            throw new IllegalStateException("Bimap is closed");
+        }
+        if (failure != null) {
+            throw new UncheckedIOException("Log failed, bimap may be ahead of the disk", failure);
+        }
+    }
+
+    /**
+     * Forces records up to the sequence number, remembering a failure.
+     */
+    private void sync(final long sequence) {
+        try {
+            commit(sequence);
+        } catch (final IOException e) {
+            failure = e;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Appends record of a modification, holding the lock on this so that the log has the order of memory.
+     * With {@link SyncPolicy.Mode#PER_OPERATION} also forces it meanwhile.
+     *
+     * @return sequence number to {@link #await}
+     */
+    private long log(final byte op, final String first, final String second, final int keys) {
+        final long sequence = append(op, first, second, keys);
+        if (policy.mode() == SyncPolicy.Mode.PER_OPERATION) {
+            sync(sequence);
+        }
+        return sequence;
+    }
+
+    /**
+     * Waits for the record after releasing the lock on this, so that concurrent callers share the commit,
+     * and checkpoints if the log has grown large.
+     */
+    private void await(final long sequence) {
+        if (policy.mode() == SyncPolicy.Mode.GROUP) {
+            sync(sequence);
+        }
+        final boolean large;
+        synchronized (buffers) {
+            large = logBytes > checkpointBytes;
+        }
+        if (large) {
+            checkpointIfLarge();
+        }
+    }
+
+    /**
+     * Checkpoints unless a concurrent caller has done so since the log was found large.
+     */
+    private synchronized void checkpointIfLarge() {
+        synchronized (buffers) {
+            if (logBytes <= checkpointBytes) {
+                return;
+            }
+        }
+        checkpoint();
+    }
+
+    /**
+     * Writes a snapshot of the current contents and starts a new empty log, blocking modifications meanwhile.
+     */
+    public synchronized void checkpoint() {
+        checkUsable();
+        try {
+            flush();
+            checkUsable();
+            commitLock.lock();
+            try {
+                final Path temporary = directory.resolve("snapshot-" + (epoch + 1) + ".tmp");
+                bimap.writeTo(temporary);
+                try (final FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                Files.move(temporary, snapshotPath(epoch + 1), StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+                epoch++;
+                log.close();
+                log = FileChannel.open(logPath(epoch), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                synchronized (buffers) {
+                    logBytes = pending.position();
+                }
+                deleteStale();
+            } finally {
+                commitLock.unlock();
+            }
+        } catch (final IOException e) {
+            failure = e;
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Forces pending modifications and closes the log. The bimap may not be used afterwards.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (flusher != null) {
+            flusher.shutdown();
+            try {
+                flusher.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            if (failure == null) {
+                flush();
+            }
+        } finally {
+            closed = true;
+            commitLock.lock();
+            try {
+                log.close();
+            } finally {
+                commitLock.unlock();
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        return bimap.size();
+    }
+
+    @Override
+    public synchronized boolean isEmpty() {
+        return bimap.isEmpty();
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        forcePut(left, right);
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        final String previous;
+        final long sequence;
+        synchronized (this) {
+            checkUsable();
+            previous = bimap.forcePut(left, right);
+            sequence = log(PUT, left, right, 2);
+        }
+        await(sequence);
+        return previous;
+    }
+
+    @Override
+    public boolean putIfAbsent(final String left, final String right) {
+        final long sequence;
+        synchronized (this) {
+            checkUsable();
+            if (!bimap.putIfAbsent(left, right)) {
+                return false;
+            }
+            sequence = log(PUT, left, right, 2);
+        }
+        await(sequence);
+        return true;
+    }
+
+    @Override
+    public String replaceRight(final String left, final String newRight) {
+        final String previous;
+        final long sequence;
+        synchronized (this) {
+            checkUsable();
+            if (!bimap.left().containsKey(left)) {
+                return null;
+            }
+            previous = bimap.forcePut(left, newRight);
+            sequence = log(PUT, left, newRight, 2);
+        }
+        await(sequence);
+        return previous;
+    }
+
+    @Override
+    public String replaceLeft(final String right, final String newLeft) {
+        final String previous;
+        final long sequence;
+        synchronized (this) {
+            checkUsable();
+            if (!bimap.right().containsKey(right)) {
+                return null;
+            }
+            previous = bimap.replaceLeft(right, newLeft);
+            sequence = log(PUT, newLeft, right, 2);
+        }
+        await(sequence);
+        return previous;
+    }
+
+    @Override
+    public String computeRightIfAbsent(final String left, final Function<? super String, ? extends String> mapping) {
+        final String right;
+        final long sequence;
+        synchronized (this) {
+            checkUsable();
+            if (bimap.left().containsKey(left)) {
+                return bimap.left().get(left);
+            }
+            right = mapping.apply(left);
+            if (right == null) {
+                return null;
+            }
+            bimap.put(left, right);
+            sequence = log(PUT, left, right, 2);
+        }
+        await(sequence);
+        return right;
+    }
+
+    private String remove(final boolean isRight, final String key) {
+        final String previous;
+        final long sequence;
+        synchronized (this) {
+            checkUsable();
+            final Map<String, String> map = isRight ? bimap.right() : bimap.left();
+            if (!map.containsKey(key)) {
+                return null;
+            }
+            previous = isRight ? bimap.rightRemove(key) : bimap.leftRemove(key);
+            sequence = log(isRight ? RIGHT_REMOVE : LEFT_REMOVE, key, null, 1);
+        }
+        await(sequence);
+        return previous;
+    }
+
+    @Override
+    public String leftRemove(final String left) {
+        return remove(false, left);
+    }
+
+    @Override
+    public String rightRemove(final String right) {
+        return remove(true, right);
+    }
+
+    /**
+     * Puts all pairs in one commit.
+     */
+    @Override
+    public void putAll(final Bimap other) {
+        if (other == this) {
+            return;
+        }
+        long sequence = 0;
+        synchronized (this) {
+            checkUsable();
+            for (final Map.Entry<String, String> entry : other.left().entrySet()) {
+                bimap.put(entry.getKey(), entry.getValue());
+                sequence = append(PUT, entry.getKey(), entry.getValue(), 2);
+            }
+            if (policy.mode() == SyncPolicy.Mode.PER_OPERATION) {
+                sync(sequence);
+            }
+        }
+        await(sequence);
+    }
+
+    @Override
+    public void clear() {
+        final long sequence;
+        synchronized (this) {
+            checkUsable();
+            bimap.clear();
+            sequence = log(CLEAR, null, null, 0);
+        }
+        await(sequence);
+    }
+
+    private final class View extends AbstractMap<String, String> {
+        private final Map<String, String> map;
+        private final boolean isRight;
+
+        private View(final Map<String, String> map, final boolean isRight) {
+            this.map = map;
+            this.isRight = isRight;
+        }
+
+        @Override
+        public int size() {
+            return DurableBimap.this.size();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            synchronized (DurableBimap.this) {
+                return map.containsKey(key);
+            }
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            synchronized (DurableBimap.this) {
+                return map.containsValue(value);
+            }
+        }
+
+        @Override
+        public String get(final Object key) {
+            synchronized (DurableBimap.this) {
+                return map.get(key);
+            }
+        }
+
+        @Override
+        public String put(final String key, final String value) {
+            if (!isRight) {
+                return forcePut(key, value);
+            }
+            final String previous;
+            final long sequence;
+            synchronized (DurableBimap.this) {
+                checkUsable();
+                previous = map.get(key);
+                bimap.put(value, key);
+                sequence = log(PUT, value, key, 2);
+            }
+            await(sequence);
+            return previous;
+        }
+
+        @Override
+        public String remove(final Object key) {
+            return DurableBimap.this.remove(isRight, (String) key);
+        }
+
+        @Override
+        public void clear() {
+            DurableBimap.this.clear();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return Collections.unmodifiableMap(map).entrySet();
+        }
+    }
+
+    @Override
+    public Map<String, String> left() {
+        return leftView;
+    }
+
+    @Override
+    public Map<String, String> right() {
+        return rightView;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return "DurableBimap{" + "directory=" + directory + ", bimap=" + bimap + '}';
+    }
+}
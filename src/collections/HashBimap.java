@@ -0,0 +1,460 @@
+package collections;
+
+import java.util.*;
+
+/**
+ * Unordered {@link Bimap} with open addressing, which permits {@code null} keys.
+ * <p>
+ * Entries are stored once, in paged arrays of keys and their cached hashes, and are kept dense:
+ * removal moves the last entry into the hole. Each side has a slot table with linear probing, pointing at entries.
+ * Tables are resized incrementally: the old table is drained a few slots per modification, while lookups check both.
+ * Iteration order of the views is the order of entries, which changes on removal.
+ */
+public class HashBimap implements Bimap {
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+    private static final int MIN_CAPACITY = 16;
+    private static final int EMPTY = 0; // other slots hold entry + 1
+    private static final int DELETED = -1;
+
+    private static int hash(final String key) {
+        return key == null ? 0 : key.hashCode();
+    }
+
+    private static int start(final int hash, final int[] table) {
+        return (hash * 0x9E3779B9) >>> Integer.numberOfLeadingZeros(table.length - 1);
+    }
+
+    private final class Side {
+        private String[][] keys = new String[0][];
+        private int[][] hashes = new int[0][];
+        private int[] table = new int[MIN_CAPACITY];
+        private int used = 0; // non-empty slots of the table, including deleted ones
+        private int[] oldTable = null; // being drained into the table
+        private int drained = 0; // prefix of the old table
+        private Side other;
+
+        private String key(final int entry) {
+            return keys[entry >>> PAGE_SHIFT][entry & PAGE_MASK];
+        }
+
+        private int hash(final int entry) {
+            return hashes[entry >>> PAGE_SHIFT][entry & PAGE_MASK];
+        }
+
+        private void set(final int entry, final String key, final int hash) {
+            final int page = entry >>> PAGE_SHIFT;
+            if (page == keys.length) {
+                keys = Arrays.copyOf(keys, page + 1);
+                hashes = Arrays.copyOf(hashes, page + 1);
+                keys[page] = new String[PAGE_SIZE];
+                hashes[page] = new int[PAGE_SIZE];
+            }
+            keys[page][entry & PAGE_MASK] = key;
+            hashes[page][entry & PAGE_MASK] = hash;
+        }
+
+        /**
+         * Returns index of the slot with the entry having the key, or -1.
+         */
+        private int findSlot(final int[] table, final String key, final int hash) {
+            final int mask = table.length - 1;
+            for (int i = start(hash, table); ; i = (i + 1) & mask) {
+                final int slot = table[i];
+                if (slot == EMPTY) {
+                    return -1;
+                }
+                if (slot != DELETED && hash(slot - 1) == hash && Objects.equals(key(slot - 1), key)) {
+                    return i;
+                }
+            }
+        }
+
+        /**
+         * Returns entry with the key, or -1.
+         */
+        private int find(final String key, final int hash) {
+            int i = findSlot(table, key, hash);
+            if (i >= 0) {
+                return table[i] - 1;
+            }
+            if (oldTable != null && (i = findSlot(oldTable, key, hash)) >= 0) {
+                return oldTable[i] - 1;
+            }
+            return -1;
+        }
+
+        private int find(final Object key) {
+            final String k = (String) key;
+            return find(k, HashBimap.hash(k));
+        }
+
+        private void insert(final int entry) {
+            final int mask = table.length - 1;
+            int i = start(hash(entry), table);
+            while (table[i] > 0) {
+                i = (i + 1) & mask;
+            }
+            if (table[i] == EMPTY) {
+                used++;
+            }
+            table[i] = entry + 1;
+        }
+
+        private void link(final int entry) {
+            if (4 * (used + 1) > 3 * table.length) {
+                resize();
+            }
+            insert(entry);
+        }
+
+        private void unlink(final int entry) {
+            int[] t = table;
+            int i = findSlot(t, key(entry), hash(entry));
+            if (i < 0) {
+                t = oldTable;
+                i = findSlot(t, key(entry), hash(entry));
+            }
+            if (t[(i + 1) & (t.length - 1)] == EMPTY) {
+                // The end of the probe sequence, no need for a tombstone
+                t[i] = EMPTY;
+                if (t == table) {
+                    used--;
+                }
+            } else {
+                t[i] = DELETED;
+            }
+        }
+
+        /**
+         * Points the slot of the entry to its new index.
+         */
+        private void move(final int from, final int to) {
+            int[] t = table;
+            int i = findSlot(t, key(from), hash(from));
+            if (i < 0) {
+                t = oldTable;
+                i = findSlot(t, key(from), hash(from));
+            }
+            t[i] = to + 1;
+            set(to, key(from), hash(from));
+        }
+
+        /**
+         * Starts draining the table into a new one with at most half of the slots used.
+         */
+        private void resize() {
+            while (oldTable != null) {
+                drain();
+            }
+            oldTable = table;
+            drained = 0;
+            table = new int[Math.max(MIN_CAPACITY, Integer.highestOneBit(2 * (size + 1) - 1) << 1)];
+            used = 0;
+        }
+
+        /**
+         * Moves a part of the old table, so that it is drained before the new table gets a quarter fuller.
+         */
+        private void drain() {
+            if (oldTable == null) {
+                return;
+            }
+            final int end = Math.min(oldTable.length, drained + Math.max(1, 8 * oldTable.length / table.length));
+            for (; drained < end; drained++) {
+                final int slot = oldTable[drained];
+                if (slot > 0) {
+                    oldTable[drained] = DELETED;
+                    insert(slot - 1);
+                }
+            }
+            if (drained == oldTable.length) {
+                oldTable = null;
+            }
+        }
+
+        private void clear() {
+            keys = new String[0][];
+            hashes = new int[0][];
+            table = new int[MIN_CAPACITY];
+            used = 0;
+            oldTable = null;
+            drained = 0;
+        }
+    }
+
+    private final Side leftSide = new Side();
+    private final Side rightSide = new Side();
+    private final View leftView = new View(leftSide);
+    private final View rightView = new View(rightSide);
+    private int size = 0;
+    private int modCount = 0;
+
+    public HashBimap() {
+        leftSide.other = rightSide;
+        rightSide.other = leftSide;
+    }
+
+    public boolean checkInvariant() {
+        for (int entry = 0; entry < size; entry++) {
+            if (leftSide.find(leftSide.key(entry), leftSide.hash(entry)) != entry
+                    || rightSide.find(rightSide.key(entry), rightSide.hash(entry)) != entry) {
+                return false;
+            }
+        }
+        return 4 * leftSide.used <= 3 * leftSide.table.length && 4 * rightSide.used <= 3 * rightSide.table.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private void modified() {
+        modCount++;
+        leftSide.drain();
+        rightSide.drain();
+    }
+
+    /**
+     * Maps key of the side to the value of the other side, evicting pairs with either of them.
+     *
+     * @return previous value of the key, or {@code null}
+     */
+    private String put(final Side side, final String key, final String value) {
+        final Side other = side.other;
+        final int keyHash = hash(key);
+        final int valueHash = hash(value);
+        int entry = side.find(key, keyHash);
+        final int evicted = other.find(value, valueHash);
+        if (entry >= 0 && entry == evicted) {
+            return value;
+        }
+        String previous = null;
+        if (evicted >= 0) {
+            if (entry == size - 1) {
+                // Removal of the evicted entry is going to move this one
+                entry = evicted;
+            }
+            remove(evicted);
+        }
+        if (entry >= 0) {
+            previous = other.key(entry);
+            other.unlink(entry);
+            other.set(entry, value, valueHash);
+            other.link(entry);
+        } else {
+            entry = size++;
+            side.set(entry, key, keyHash);
+            other.set(entry, value, valueHash);
+            side.link(entry);
+            other.link(entry);
+        }
+        modified();
+        return previous;
+    }
+
+    /**
+     * Removes the entry, moving the last entry into its place.
+     */
+    private void remove(final int entry) {
+        leftSide.unlink(entry);
+        rightSide.unlink(entry);
+        final int last = --size;
+        if (entry != last) {
+            leftSide.move(last, entry);
+            rightSide.move(last, entry);
+        }
+        leftSide.set(last, null, 0);
+        rightSide.set(last, null, 0);
+        modified();
+    }
+
+    private String remove(final Side side, final Object key) {
+        final int entry = side.find(key);
+        if (entry < 0) {
+            return null;
+        }
+        final String value = side.other.key(entry);
+        remove(entry);
+        return value;
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        put(leftSide, left, right);
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        return put(leftSide, left, right);
+    }
+
+    @Override
+    public String leftRemove(final String left) {
+        return remove(leftSide, left);
+    }
+
+    @Override
+    public String rightRemove(final String right) {
+        return remove(rightSide, right);
+    }
+
+    @Override
+    public void putAll(final Bimap other) {
+        if (other == this) {
+            return;
+        }
+        for (final Map.Entry<String, String> entry : other.left().entrySet()) {
+            put(leftSide, entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void clear() {
+        leftSide.clear();
+        rightSide.clear();
+        size = 0;
+        modCount++;
+    }
+
+    private final class View extends AbstractMap<String, String> {
+        private final Side side;
+        private final Set<Entry<String, String>> entrySet = new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private int next = 0;
+                    private int lastRet = -1;
+                    private int expectedModCount = modCount;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < size;
+                    }
+
+                    @Override
+                    public Entry<String, String> next() {
+                        if (modCount != expectedModCount) {
+                            throw new ConcurrentModificationException();
+                        }
+                        if (next >= size) {
+                            throw new NoSuchElementException();
+                        }
+                        lastRet = next++;
+                        return new SimpleImmutableEntry<>(side.key(lastRet), side.other.key(lastRet));
+                    }
+
+                    @Override
+                    public void remove() {
+                        if (lastRet < 0) {
+                            throw new IllegalStateException();
+                        }
+                        if (modCount != expectedModCount) {
+                            throw new ConcurrentModificationException();
+                        }
+                        HashBimap.this.remove(lastRet);
+                        // The last entry has been moved into the returned place
+                        next = lastRet;
+                        lastRet = -1;
+                        expectedModCount = modCount;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                if (!(o instanceof Entry<?, ?> entry)) {
+                    return false;
+                }
+                final int found = side.find(entry.getKey());
+                return found >= 0 && Objects.equals(side.other.key(found), entry.getValue());
+            }
+
+            @Override
+            public boolean remove(final Object o) {
+                if (!contains(o)) {
+                    return false;
+                }
+                View.this.remove(((Entry<?, ?>) o).getKey());
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                HashBimap.this.clear();
+            }
+        };
+
+        private View(final Side side) {
+            this.side = side;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return side.find(key) >= 0;
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            return side.other.find(value) >= 0;
+        }
+
+        @Override
+        public String get(final Object key) {
+            final int entry = side.find(key);
+            return entry < 0 ? null : side.other.key(entry);
+        }
+
+        @Override
+        public String put(final String key, final String value) {
+            return HashBimap.this.put(side, key, value);
+        }
+
+        @Override
+        public String remove(final Object key) {
+            return HashBimap.this.remove(side, key);
+        }
+
+        @Override
+        public void clear() {
+            HashBimap.this.clear();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return entrySet;
+        }
+    }
+
+    @Override
+    public Map<String, String> left() {
+        return leftView;
+    }
+
+    @Override
+    public Map<String, String> right() {
+        return rightView;
+    }
+
+    @Override
+    public String toString() {
+        return "HashBimap{" + "left=" + left() + ", right=" + right() + '}';
+    }
+}
@@ -0,0 +1,257 @@
+package collections;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Append-only storage of interned string keys, which may be shared by several bimaps.
+ * <p>
+ * A key is encoded once, as Latin-1 if all its chars fit, and as UTF-8 otherwise, and is referenced by an int.
+ * Surrogates are encoded as separate three-byte sequences, so every string round-trips and decoding yields
+ * its UTF-16 chars. Equal keys get equal references, and comparisons decode the bytes on the fly
+ * in the order of {@link String#compareTo}, never materializing strings.
+ * <p>
+ * Keys are never freed, so the arena suits dictionaries rather than churning data; it holds at most 2 GiB.
+ * Interning is thread-safe, and reading a reference is safe in any thread which has seen the reference itself.
+ */
+public final class KeyArena {
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int MAX_CHUNKS = 1 << (31 - CHUNK_SHIFT);
+    private static final int NONE = -1;
+
+    private byte[][] chunks = new byte[0][];
+    private int position = CHUNK_SIZE; // in the last chunk
+    private int[] refs = new int[16]; // interning table with linear probing
+    private int[] hashes = new int[16];
+    private int count = 0;
+    private long bytes = 0;
+
+    public KeyArena() {
+        Arrays.fill(refs, NONE);
+    }
+
+    /**
+     * Returns the reference of the key, storing it if it is not present yet.
+     */
+    public synchronized int intern(final String key) {
+        final int hash = key.hashCode();
+        final int mask = refs.length - 1;
+        int i = hash & mask;
+        for (; refs[i] != NONE; i = (i + 1) & mask) {
+            if (hashes[i] == hash && compare(key, refs[i]) == 0) {
+                return refs[i];
+            }
+        }
+        final int ref = append(key);
+        refs[i] = ref;
+        hashes[i] = hash;
+        if (4 * ++count > 3 * refs.length) {
+            rehash();
+        }
+        return ref;
+    }
+
+    private void rehash() {
+        final int[] oldRefs = refs;
+        final int[] oldHashes = hashes;
+        refs = new int[oldRefs.length * 2];
+        hashes = new int[oldRefs.length * 2];
+        Arrays.fill(refs, NONE);
+        final int mask = refs.length - 1;
+        for (int j = 0; j < oldRefs.length; j++) {
+            if (oldRefs[j] != NONE) {
+                int i = oldHashes[j] & mask;
+                while (refs[i] != NONE) {
+                    i = (i + 1) & mask;
+                }
+                refs[i] = oldRefs[j];
+                hashes[i] = oldHashes[j];
+            }
+        }
+    }
+
+    private static boolean isLatin1(final String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int utf8Length(final String key) {
+        int length = 0;
+        for (int i = 0; i < key.length(); i++) {
+            final char c = key.charAt(i);
+            length += c < 0x80 ? 1 : c < 0x800 ? 2 : 3;
+        }
+        return length;
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value >>>= 7) != 0) {
+            length++;
+        }
+        return length;
+    }
+
+    private int append(final String key) {
+        final boolean latin1 = isLatin1(key);
+        final int length = latin1 ? key.length() : utf8Length(key);
+        final int header = length << 1 | (latin1 ? 0 : 1);
+        final int total = varintLength(header) + length;
+        if (position + total > CHUNK_SIZE) {
+            if (chunks.length == MAX_CHUNKS) {
+                throw new IllegalStateException("Key arena is full");
+            }
+            chunks = Arrays.copyOf(chunks, chunks.length + 1);
+            chunks[chunks.length - 1] = new byte[Math.max(CHUNK_SIZE, total)];
+            position = 0;
+        }
+        final byte[] chunk = chunks[chunks.length - 1];
+        final int ref = (chunks.length - 1) << CHUNK_SHIFT | position;
+        int p = position;
+        for (int value = header; ; value >>>= 7) {
+            if ((value & ~0x7F) == 0) {
+                chunk[p++] = (byte) value;
+                break;
+            }
+            chunk[p++] = (byte) (value & 0x7F | 0x80);
+        }
+        if (latin1) {
+            for (int i = 0; i < key.length(); i++) {
+                chunk[p++] = (byte) key.charAt(i);
+            }
+        } else {
+            for (int i = 0; i < key.length(); i++) {
+                final char c = key.charAt(i);
+                if (c < 0x80) {
+                    chunk[p++] = (byte) c;
+                } else if (c < 0x800) {
+                    chunk[p++] = (byte) (0xC0 | c >> 6);
+                    chunk[p++] = (byte) (0x80 | c & 0x3F);
+                } else {
+                    chunk[p++] = (byte) (0xE0 | c >> 12);
+                    chunk[p++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    chunk[p++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+        // A key larger than a chunk occupies the whole one
+        position = total > CHUNK_SIZE ? CHUNK_SIZE : position + total;
+        bytes += total;
+        return ref;
+    }
+
+    /**
+     * Position of an encoded key: chunk, start of the bytes, their length and encoding.
+     */
+    private final class Cursor {
+        byte[] chunk;
+        int position;
+        int end;
+        boolean latin1;
+
+        Cursor(final int ref) {
+            chunk = chunks[ref >>> CHUNK_SHIFT];
+            position = ref & (CHUNK_SIZE - 1);
+            int header = 0;
+            for (int shift = 0; ; shift += 7) {
+                final byte b = chunk[position++];
+                header |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    break;
+                }
+            }
+            end = position + (header >>> 1);
+            latin1 = (header & 1) == 0;
+        }
+
+        boolean hasNext() {
+            return position < end;
+        }
+
+        char next() {
+            final int b = chunk[position++];
+            if (latin1 || b >= 0) {
+                return (char) (b & 0xFF);
+            } else if ((b & 0xE0) == 0xC0) {
+                return (char) ((b & 0x1F) << 6 | chunk[position++] & 0x3F);
+            } else {
+                final int c = (b & 0x0F) << 12 | (chunk[position] & 0x3F) << 6 | chunk[position + 1] & 0x3F;
+                position += 2;
+                return (char) c;
+            }
+        }
+    }
+
+    /**
+     * Compares the key with the referenced one like {@link String#compareTo}.
+     */
+    public int compare(final String key, final int ref) {
+        final Cursor cursor = new Cursor(ref);
+        int i = 0;
+        for (; i < key.length() && cursor.hasNext(); i++) {
+            final char c = key.charAt(i);
+            final char d = cursor.next();
+            if (c != d) {
+                return c - d;
+            }
+        }
+        return (i < key.length() ? 1 : 0) - (cursor.hasNext() ? 1 : 0);
+    }
+
+    /**
+     * Compares two referenced keys like {@link String#compareTo}.
+     */
+    public int compare(final int ref, final int other) {
+        if (ref == other) {
+            return 0;
+        }
+        final Cursor cursor = new Cursor(ref);
+        final Cursor otherCursor = new Cursor(other);
+        if (cursor.latin1 && otherCursor.latin1) {
+            final int c = Arrays.compareUnsigned(cursor.chunk, cursor.position, cursor.end, otherCursor.chunk, otherCursor.position, otherCursor.end);
+            return Integer.signum(c);
+        }
+        while (cursor.hasNext() && otherCursor.hasNext()) {
+            final char c = cursor.next();
+            final char d = otherCursor.next();
+            if (c != d) {
+                return c - d;
+            }
+        }
+        return (cursor.hasNext() ? 1 : 0) - (otherCursor.hasNext() ? 1 : 0);
+    }
+
+    /**
+     * Decodes the referenced key.
+     */
+    public String get(final int ref) {
+        final Cursor cursor = new Cursor(ref);
+        if (cursor.latin1) {
+            return new String(cursor.chunk, cursor.position, cursor.end - cursor.position, StandardCharsets.ISO_8859_1);
+        }
+        final StringBuilder result = new StringBuilder(cursor.end - cursor.position);
+        while (cursor.hasNext()) {
+            result.append(cursor.next());
+        }
+        return result.toString();
+    }
+
+    /**
+     * Returns the number of distinct keys stored.
+     */
+    public synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Returns the number of bytes taken by the encoded keys.
+     */
+    public synchronized long bytes() {
+        return bytes;
+    }
+}
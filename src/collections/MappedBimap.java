@@ -0,0 +1,525 @@
+package collections;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Read-only {@link Bimap} over a memory-mapped file written by {@link TreeBimap#writeTo}.
+ * <p>
+ * Lookups, range views and iteration read the mapped pages directly, so opening a file costs a single mmap
+ * and its page cache is shared between processes. The file consists of a header, records of pairs in the order
+ * of left keys, and two indexes of record offsets sorted by left and by right keys. A key is stored as its length
+ * and encoding, followed by Latin-1 bytes or UTF-16 chars. The file is mapped in chunks, which records do not cross.
+ * <p>
+ * The bimap must be opened with the comparators it was written with. Natural ordering compares the mapped bytes
+ * without decoding them, other comparators decode keys into strings.
+ */
+public final class MappedBimap implements Bimap {
+    private static final long MAGIC = 0x42494D4150000001L; // "BIMAP", version 1
+    private static final int HEADER_SIZE = 40;
+    static final int DEFAULT_CHUNK_SHIFT = 30;
+
+    private final MappedByteBuffer[] chunks;
+    private final int chunkShift;
+    private final long chunkMask;
+    private final int size;
+    private final Side leftSide;
+    private final Side rightSide;
+
+    private MappedBimap(final FileChannel channel, final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp) throws IOException {
+        final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            // Reads the whole header
+        }
+        header.flip();
+        if (header.remaining() < HEADER_SIZE || header.getLong() != MAGIC) {
+            throw new IOException("Not a bimap file");
+        }
+        chunkShift = header.getInt();
+        header.getInt();
+        final long count = header.getLong();
+        final long leftIndex = header.getLong();
+        final long rightIndex = header.getLong();
+        if (count > Integer.MAX_VALUE || chunkShift < 10 || chunkShift > 30) {
+            throw new IOException("Corrupted bimap file header");
+        }
+        size = (int) count;
+        chunkMask = (1L << chunkShift) - 1;
+        final long length = channel.size();
+        chunks = new MappedByteBuffer[(int) ((length + chunkMask) >>> chunkShift)];
+        for (int i = 0; i < chunks.length; i++) {
+            final long position = (long) i << chunkShift;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(chunkMask + 1, length - position));
+        }
+        leftSide = new Side(leftCmp, leftIndex, false);
+        rightSide = new Side(rightCmp, rightIndex, true);
+        leftSide.other = rightSide;
+        rightSide.other = leftSide;
+    }
+
+    /**
+     * Maps file of a bimap with natural ordering.
+     */
+    public static MappedBimap open(final Path path) throws IOException {
+        return open(path, new NaturalOrderingComparator<>(), new NaturalOrderingComparator<>());
+    }
+
+    /**
+     * Maps file of a bimap with the given comparators.
+     */
+    public static MappedBimap open(final Path path, final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp) throws IOException {
+        // The mapping stays valid after the channel is closed
+        try (final FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new MappedBimap(channel, leftCmp, rightCmp);
+        }
+    }
+
+    private ByteBuffer chunk(final long position) {
+        return chunks[(int) (position >>> chunkShift)];
+    }
+
+    private int offset(final long position) {
+        return (int) (position & chunkMask);
+    }
+
+    private long readLong(final long position) {
+        return chunk(position).getLong(offset(position));
+    }
+
+    private int readInt(final long position) {
+        return chunk(position).getInt(offset(position));
+    }
+
+    /**
+     * Returns the size of the key at the position, including its header.
+     */
+    private long keySize(final long position) {
+        final int header = readInt(position);
+        return 4 + ((header & 1) == 0 ? (long) (header >>> 1) : 2L * (header >>> 1));
+    }
+
+    private String readKey(final long position) {
+        final ByteBuffer chunk = chunk(position);
+        final int offset = offset(position);
+        final int header = chunk.getInt(offset);
+        final int length = header >>> 1;
+        if ((header & 1) == 0) {
+            final byte[] bytes = new byte[length];
+            chunk.get(offset + 4, bytes);
+            return new String(bytes, StandardCharsets.ISO_8859_1);
+        }
+        final char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = chunk.getChar(offset + 4 + 2 * i);
+        }
+        return new String(chars);
+    }
+
+    /**
+     * Compares the key with the one at the position like {@link String#compareTo}.
+     */
+    private int compareNatural(final String key, final long position) {
+        final ByteBuffer chunk = chunk(position);
+        final int offset = offset(position);
+        final int header = chunk.getInt(offset);
+        final int length = header >>> 1;
+        final int n = Math.min(length, key.length());
+        if ((header & 1) == 0) {
+            for (int i = 0; i < n; i++) {
+                final int c = key.charAt(i) - (chunk.get(offset + 4 + i) & 0xFF);
+                if (c != 0) {
+                    return c;
+                }
+            }
+        } else {
+            for (int i = 0; i < n; i++) {
+                final int c = key.charAt(i) - chunk.getChar(offset + 4 + 2 * i);
+                if (c != 0) {
+                    return c;
+                }
+            }
+        }
+        return key.length() - length;
+    }
+
+    /**
+     * One of the indexes with its comparator.
+     */
+    private final class Side {
+        private final Comparator<? super String> cmp;
+        private final boolean natural;
+        private final long index;
+        private final boolean isRight; // right keys follow left ones in records
+        private Side other;
+
+        private Side(final Comparator<? super String> cmp, final long index, final boolean isRight) {
+            this.cmp = cmp;
+            this.natural = cmp instanceof NaturalOrderingComparator;
+            this.index = index;
+            this.isRight = isRight;
+        }
+
+        private long record(final int i) {
+            return readLong(index + 8L * i);
+        }
+
+        private long keyPosition(final long record) {
+            return isRight ? record + keySize(record) : record;
+        }
+
+        private long valuePosition(final long record) {
+            return isRight ? record : record + keySize(record);
+        }
+
+        private String key(final int i) {
+            return readKey(keyPosition(record(i)));
+        }
+
+        private String value(final int i) {
+            return readKey(valuePosition(record(i)));
+        }
+
+        private int compare(final String key, final int i) {
+            final long position = keyPosition(record(i));
+            return natural ? compareNatural(key, position) : cmp.compare(key, readKey(position));
+        }
+
+        /**
+         * Returns index of the key, or {@code -(insertion point) - 1} like {@link Arrays#binarySearch}.
+         */
+        private int search(final String key) {
+            int lo = 0;
+            int hi = size - 1;
+            while (lo <= hi) {
+                final int mid = (lo + hi) >>> 1;
+                final int res = compare(key, mid);
+                if (res > 0) {
+                    lo = mid + 1;
+                } else if (res < 0) {
+                    hi = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(lo + 1);
+        }
+
+        /**
+         * Returns index of the first key greater than (or equal to, if inclusive) the given one.
+         */
+        private int ceiling(final String key, final boolean inclusive) {
+            final int i = search(key);
+            return i >= 0 ? (inclusive ? i : i + 1) : -(i + 1);
+        }
+
+        private String get(final String key) {
+            final int i = search(key);
+            return i < 0 ? null : value(i);
+        }
+    }
+
+    /**
+     * Sorted view of the keys of a side with indexes in {@code [from, to)}.
+     */
+    private final class View extends AbstractMap<String, String> implements SortedMap<String, String> {
+        private final Side side;
+        private final int from;
+        private final int to;
+
+        private View(final Side side, final int from, final int to) {
+            this.side = side;
+            this.from = from;
+            this.to = Math.max(from, to);
+        }
+
+        private boolean inRange(final int i) {
+            return from <= i && i < to;
+        }
+
+        @Override
+        public int size() {
+            return to - from;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return inRange(side.search((String) key));
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            final String key = side.other.get((String) value);
+            return key != null && containsKey(key);
+        }
+
+        @Override
+        public String get(final Object key) {
+            final int i = side.search((String) key);
+            return inRange(i) ? side.value(i) : null;
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return side.cmp;
+        }
+
+        @Override
+        public SortedMap<String, String> subMap(final String fromKey, final String toKey) {
+            if (side.cmp.compare(fromKey, toKey) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            return new View(side, Math.max(from, side.ceiling(fromKey, true)), Math.min(to, side.ceiling(toKey, true)));
+        }
+
+        @Override
+        public SortedMap<String, String> headMap(final String toKey) {
+            return new View(side, from, Math.min(to, side.ceiling(toKey, true)));
+        }
+
+        @Override
+        public SortedMap<String, String> tailMap(final String fromKey) {
+            return new View(side, Math.max(from, side.ceiling(fromKey, true)), to);
+        }
+
+        @Override
+        public String firstKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return side.key(from);
+        }
+
+        @Override
+        public String lastKey() {
+            if (from == to) {
+                throw new NoSuchElementException();
+            }
+            return side.key(to - 1);
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private int next = from;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < to;
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (next >= to) {
+                                throw new NoSuchElementException();
+                            }
+                            final long record = side.record(next++);
+                            return new SimpleImmutableEntry<>(readKey(side.keyPosition(record)), readKey(side.valuePosition(record)));
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return View.this.size();
+                }
+            };
+        }
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public boolean putIfAbsent(final String left, final String right) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String replaceRight(final String left, final String newRight) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String replaceLeft(final String right, final String newLeft) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String computeRightIfAbsent(final String left, final Function<? super String, ? extends String> mapping) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String leftRemove(final String left) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String rightRemove(final String right) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void putAll(final Bimap other) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public SortedMap<String, String> left() {
+        return new View(leftSide, 0, size);
+    }
+
+    @Override
+    public SortedMap<String, String> right() {
+        return new View(rightSide, 0, size);
+    }
+
+    @Override
+    public String toString() {
+        return "MappedBimap{" + "left=" + left() + ", right=" + right() + '}';
+    }
+
+    /**
+     * Writes the bimap, so that no record crosses a chunk of {@code 1 << chunkShift} bytes.
+     */
+    static void write(final TreeBimap bimap, final Path path, final int chunkShift) throws IOException {
+        final long chunkSize = 1L << chunkShift;
+        try (final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            final Writer writer = new Writer(channel);
+            writer.position = HEADER_SIZE;
+
+            final long[] records = new long[bimap.size()];
+            int count = 0;
+            for (final Map.Entry<String, String> entry : bimap.left().entrySet()) {
+                final long recordSize = encodedSize(entry.getKey()) + encodedSize(entry.getValue());
+                if (recordSize > chunkSize) {
+                    throw new IllegalArgumentException("Pair is too large: " + entry.getKey());
+                }
+                if ((writer.position & (chunkSize - 1)) + recordSize > chunkSize) {
+                    writer.pad(chunkSize - (writer.position & (chunkSize - 1)));
+                }
+                records[count++] = writer.position;
+                writer.putKey(entry.getKey());
+                writer.putKey(entry.getValue());
+            }
+
+            writer.pad(-writer.position & 7);
+            final long leftIndex = writer.position;
+            for (final long record : records) {
+                writer.putLong(record);
+            }
+            final long rightIndex = writer.position;
+            for (final String left : bimap.right().values()) {
+                writer.putLong(records[bimap.leftRank(left)]);
+            }
+            writer.flush();
+
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putLong(MAGIC).putInt(chunkShift).putInt(0).putLong(count).putLong(leftIndex).putLong(rightIndex).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    private static boolean isLatin1(final String key) {
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static long encodedSize(final String key) {
+        return 4 + (isLatin1(key) ? key.length() : 2L * key.length());
+    }
+
+    private static final class Writer {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private long position; // in the file, including the buffered bytes
+
+        private Writer(final FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void ensure(final int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            long at = position - buffer.remaining();
+            while (buffer.hasRemaining()) {
+                at += channel.write(buffer, at);
+            }
+            buffer.clear();
+        }
+
+        private void putLong(final long value) throws IOException {
+            ensure(8);
+            buffer.putLong(value);
+            position += 8;
+        }
+
+        private void pad(final long bytes) throws IOException {
+            for (long i = 0; i < bytes; i++) {
+                ensure(1);
+                buffer.put((byte) 0);
+            }
+            position += bytes;
+        }
+
+        private void putKey(final String key) throws IOException {
+            final boolean latin1 = isLatin1(key);
+            ensure(4);
+            buffer.putInt(key.length() << 1 | (latin1 ? 0 : 1));
+            for (int i = 0; i < key.length(); i++) {
+                if (latin1) {
+                    ensure(1);
+                    buffer.put((byte) key.charAt(i));
+                } else {
+                    ensure(2);
+                    buffer.putChar(key.charAt(i));
+                }
+            }
+            position += encodedSize(key);
+        }
+    }
+}
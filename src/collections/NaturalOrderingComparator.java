@@ -1,10 +1,13 @@
 package collections;
 
-import java.util.Comparator;
-
-/* package-private */ class NaturalOrderingComparator<T> implements Comparator<T> {
+/* package-private */ class NaturalOrderingComparator<T> implements AbbreviatingComparator<T> {
     @Override @SuppressWarnings("unchecked")
     public int compare(final T o1, final T o2) {
         return ((Comparable<? super T>) o1).compareTo(o2);
     }
+
+    @Override
+    public long abbreviate(final T key) {
+        return key instanceof String string ? AbbreviatingComparator.prefix(string) : 0;
+    }
 }
@@ -0,0 +1,488 @@
+package collections;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Ordered {@link Bimap} with immutable AVL trees, which are path-copied on modification.
+ * <p>
+ * {@link #snapshot()} takes O(1) time and returns an immutable bimap which shares structure with this one.
+ * Reads and snapshots do not lock and may be done from any thread, while modifications must not run
+ * concurrently with each other, e.g. come from a single writer thread. Every modification publishes a new version,
+ * so a writer applying a batch should hand out a snapshot taken after the batch.
+ */
+public class PersistentTreeBimap implements Bimap {
+    /**
+     * Node of one of the trees, mapping its key to the key of the opposite side.
+     * Unlike {@link TreeBimap}, the trees do not share nodes, as a node with parent links cannot be path-copied.
+     */
+    private static final class Node {
+        final String key;
+        final String value;
+        final Node left;
+        final Node right;
+        final int height;
+        final int size; // of the subtree
+
+        Node(final String key, final String value, final Node left, final Node right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+
+        static int height(final Node node) {
+            return node == null ? 0 : node.height;
+        }
+
+        static int size(final Node node) {
+            return node == null ? 0 : node.size;
+        }
+
+        static Node find(Node node, final String key, final Comparator<? super String> cmp) {
+            while (node != null) {
+                final int c = cmp.compare(key, node.key);
+                if (c == 0) {
+                    return node;
+                }
+                node = c < 0 ? node.left : node.right;
+            }
+            return null;
+        }
+
+        /**
+         * Makes node of the subtrees, whose heights differ by at most 2, restoring the balance.
+         */
+        static Node balance(final String key, final String value, final Node left, final Node right) {
+            if (height(left) > height(right) + 1) {
+                if (height(left.left) >= height(left.right)) {
+                    return new Node(left.key, left.value, left.left, new Node(key, value, left.right, right));
+                }
+                return new Node(left.right.key, left.right.value,
+                        new Node(left.key, left.value, left.left, left.right.left),
+                        new Node(key, value, left.right.right, right));
+            }
+            if (height(right) > height(left) + 1) {
+                if (height(right.right) >= height(right.left)) {
+                    return new Node(right.key, right.value, new Node(key, value, left, right.left), right.right);
+                }
+                return new Node(right.left.key, right.left.value,
+                        new Node(key, value, left, right.left.left),
+                        new Node(right.key, right.value, right.left.right, right.right));
+            }
+            return new Node(key, value, left, right);
+        }
+
+        static Node put(final Node node, final String key, final String value, final Comparator<? super String> cmp) {
+            if (node == null) {
+                return new Node(key, value, null, null);
+            }
+            final int c = cmp.compare(key, node.key);
+            if (c < 0) {
+                return balance(node.key, node.value, put(node.left, key, value, cmp), node.right);
+            } else if (c > 0) {
+                return balance(node.key, node.value, node.left, put(node.right, key, value, cmp));
+            } else {
+                return new Node(key, value, node.left, node.right);
+            }
+        }
+
+        static Node remove(final Node node, final String key, final Comparator<? super String> cmp) {
+            if (node == null) {
+                return null;
+            }
+            final int c = cmp.compare(key, node.key);
+            if (c < 0) {
+                return balance(node.key, node.value, remove(node.left, key, cmp), node.right);
+            } else if (c > 0) {
+                return balance(node.key, node.value, node.left, remove(node.right, key, cmp));
+            } else if (node.left == null) {
+                return node.right;
+            } else if (node.right == null) {
+                return node.left;
+            } else {
+                Node min = node.right;
+                while (min.left != null) {
+                    min = min.left;
+                }
+                return balance(min.key, min.value, node.left, removeMin(node.right));
+            }
+        }
+
+        static Node removeMin(final Node node) {
+            if (node.left == null) {
+                return node.right;
+            }
+            return balance(node.key, node.value, removeMin(node.left), node.right);
+        }
+
+        boolean checkInvariant(final Comparator<? super String> cmp) {
+            return (left == null || cmp.compare(left.key, key) < 0 && left.checkInvariant(cmp))
+                    && (right == null || cmp.compare(key, right.key) < 0 && right.checkInvariant(cmp))
+                    && Math.abs(height(left) - height(right)) <= 1;
+        }
+    }
+
+    private record Version(Node leftRoot, Node rightRoot) {
+        static final Version EMPTY = new Version(null, null);
+
+        int size() {
+            return Node.size(leftRoot);
+        }
+    }
+
+    private final Comparator<? super String> leftCmp;
+    private final Comparator<? super String> rightCmp;
+    private volatile Version version = Version.EMPTY;
+    private final View leftView;
+    private final View rightView;
+
+    public PersistentTreeBimap() {
+        this(new NaturalOrderingComparator<>(), new NaturalOrderingComparator<>());
+    }
+
+    public PersistentTreeBimap(final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp) {
+        this.leftCmp = leftCmp;
+        this.rightCmp = rightCmp;
+        leftView = new View(() -> version, true, this);
+        rightView = new View(() -> version, false, this);
+    }
+
+    public boolean checkInvariant() {
+        final Version current = version;
+        return (current.leftRoot == null || current.leftRoot.checkInvariant(leftCmp))
+                && (current.rightRoot == null || current.rightRoot.checkInvariant(rightCmp))
+                && Node.size(current.leftRoot) == Node.size(current.rightRoot);
+    }
+
+    /**
+     * Returns immutable bimap with the current contents, which is not affected by further modifications.
+     */
+    public Bimap snapshot() {
+        return new Snapshot(version, leftCmp, rightCmp);
+    }
+
+    @Override
+    public int size() {
+        return version.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        forcePut(left, right);
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        final Version current = version;
+        final Node oldLeft = Node.find(current.leftRoot, left, leftCmp);
+        final Node oldRight = Node.find(current.rightRoot, right, rightCmp);
+        if (oldLeft != null && oldRight != null && rightCmp.compare(oldLeft.value, right) == 0) {
+            return oldLeft.value;
+        }
+        Node leftRoot = current.leftRoot;
+        Node rightRoot = current.rightRoot;
+        if (oldLeft != null) {
+            rightRoot = Node.remove(rightRoot, oldLeft.value, rightCmp);
+        }
+        if (oldRight != null) {
+            leftRoot = Node.remove(leftRoot, oldRight.value, leftCmp);
+        }
+        version = new Version(Node.put(leftRoot, left, right, leftCmp), Node.put(rightRoot, right, left, rightCmp));
+        return oldLeft == null ? null : oldLeft.value;
+    }
+
+    @Override
+    public String leftRemove(final String left) {
+        final Version current = version;
+        final Node node = Node.find(current.leftRoot, left, leftCmp);
+        if (node == null) {
+            return null;
+        }
+        version = new Version(Node.remove(current.leftRoot, left, leftCmp), Node.remove(current.rightRoot, node.value, rightCmp));
+        return node.value;
+    }
+
+    @Override
+    public String rightRemove(final String right) {
+        final Version current = version;
+        final Node node = Node.find(current.rightRoot, right, rightCmp);
+        if (node == null) {
+            return null;
+        }
+        version = new Version(Node.remove(current.leftRoot, node.value, leftCmp), Node.remove(current.rightRoot, right, rightCmp));
+        return node.value;
+    }
+
+    @Override
+    public void putAll(final Bimap other) {
+        if (other == this) {
+            return;
+        }
+        for (final Map.Entry<String, String> entry : other.left().entrySet()) {
+            forcePut(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public void clear() {
+        version = Version.EMPTY;
+    }
+
+    @Override
+    public Map<String, String> left() {
+        return leftView;
+    }
+
+    @Override
+    public Map<String, String> right() {
+        return rightView;
+    }
+
+    @Override
+    public String toString() {
+        return "PersistentTreeBimap{" + "left=" + left() + ", right=" + right() + '}';
+    }
+
+    private static final class Snapshot implements Bimap {
+        private final Version version;
+        private final View leftView;
+        private final View rightView;
+
+        private Snapshot(final Version version, final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp) {
+            this.version = version;
+            leftView = new View(() -> version, leftCmp, rightCmp, true, null);
+            rightView = new View(() -> version, rightCmp, leftCmp, false, null);
+        }
+
+        @Override
+        public int size() {
+            return version.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return size() == 0;
+        }
+
+        @Override
+        public void put(final String left, final String right) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String forcePut(final String left, final String right) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean putIfAbsent(final String left, final String right) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String replaceRight(final String left, final String newRight) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String replaceLeft(final String right, final String newLeft) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String computeRightIfAbsent(final String left, final Function<? super String, ? extends String> mapping) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String leftRemove(final String left) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public String rightRemove(final String right) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putAll(final Bimap other) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Map<String, String> left() {
+            return leftView;
+        }
+
+        @Override
+        public Map<String, String> right() {
+            return rightView;
+        }
+
+        @Override
+        public String toString() {
+            return "Snapshot{" + "left=" + left() + ", right=" + right() + '}';
+        }
+    }
+
+    /**
+     * Map view of one of the sides of a version. Iterators traverse the version they were created at.
+     */
+    private static final class View extends AbstractMap<String, String> {
+        private final Supplier<Version> version;
+        private final Comparator<? super String> cmp;
+        private final Comparator<? super String> otherCmp;
+        private final boolean isLeft;
+        private final PersistentTreeBimap owner; // null for immutable views
+
+        private View(final Supplier<Version> version, final boolean isLeft, final PersistentTreeBimap owner) {
+            this(version, isLeft ? owner.leftCmp : owner.rightCmp, isLeft ? owner.rightCmp : owner.leftCmp, isLeft, owner);
+        }
+
+        private View(
+                final Supplier<Version> version,
+                final Comparator<? super String> cmp,
+                final Comparator<? super String> otherCmp,
+                final boolean isLeft,
+                final PersistentTreeBimap owner
+        ) {
+            this.version = version;
+            this.cmp = cmp;
+            this.otherCmp = otherCmp;
+            this.isLeft = isLeft;
+            this.owner = owner;
+        }
+
+        private Node root(final Version version) {
+            return isLeft ? version.leftRoot : version.rightRoot;
+        }
+
+        private Node otherRoot(final Version version) {
+            return isLeft ? version.rightRoot : version.leftRoot;
+        }
+
+        private PersistentTreeBimap owner() {
+            if (owner == null) {
+                throw new UnsupportedOperationException();
+            }
+            return owner;
+        }
+
+        @Override
+        public int size() {
+            return version.get().size();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return Node.find(root(version.get()), (String) key, cmp) != null;
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            return Node.find(otherRoot(version.get()), (String) value, otherCmp) != null;
+        }
+
+        @Override
+        public String get(final Object key) {
+            final Node node = Node.find(root(version.get()), (String) key, cmp);
+            return node == null ? null : node.value;
+        }
+
+        @Override
+        public String put(final String key, final String value) {
+            return isLeft ? owner().forcePut(key, value) : owner().forcePutRight(key, value);
+        }
+
+        @Override
+        public String remove(final Object key) {
+            return isLeft ? owner().leftRemove((String) key) : owner().rightRemove((String) key);
+        }
+
+        @Override
+        public void clear() {
+            owner().clear();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private final Deque<Node> path = new ArrayDeque<>();
+                        private Node lastRet = null;
+
+                        {
+                            descend(root(version.get()));
+                        }
+
+                        private void descend(Node node) {
+                            while (node != null) {
+                                path.push(node);
+                                node = node.left;
+                            }
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return !path.isEmpty();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            if (path.isEmpty()) {
+                                throw new NoSuchElementException();
+                            }
+                            lastRet = path.pop();
+                            descend(lastRet.right);
+                            return new SimpleImmutableEntry<>(lastRet.key, lastRet.value);
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (lastRet == null) {
+                                throw new IllegalStateException();
+                            }
+                            View.this.remove(lastRet.key);
+                            lastRet = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return View.this.size();
+                }
+
+                @Override
+                public void clear() {
+                    View.this.clear();
+                }
+            };
+        }
+    }
+
+    /**
+     * Same as {@link #forcePut} with the arguments swapped, but returns the previous left key.
+     */
+    private String forcePutRight(final String right, final String left) {
+        final String previous = rightView.get(right);
+        forcePut(left, right);
+        return previous;
+    }
+}
@@ -0,0 +1,472 @@
+package collections;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static collections.BimapProtocol.*;
+
+/**
+ * Thread-safe client of a named bimap of a {@link BimapServer}.
+ * <p>
+ * Requests are pipelined: callers write them to the connection without waiting for earlier responses,
+ * which a reader thread matches to the requests in order. Asynchronous methods let one thread keep many requests
+ * in flight, and {@link #leftGetAll}, {@link #rightGetAll} and {@link #putAll} send many keys per request.
+ * Their futures are completed on an executor rather than the reader, so dependent stages may call this bimap.
+ * <p>
+ * Views read and modify the remote bimap per call, and iterate over it in pages of consecutive entries,
+ * so iteration sees changes made between pages.
+ * After an I/O error all calls throw {@link UncheckedIOException}.
+ */
+public final class RemoteBimap implements Bimap, Closeable {
+    private static final int BATCH = 1024;
+
+    private record Call<T>(CompletableFuture<T> future, Function<ByteBuffer, T> decoder) {
+        /**
+         * Decodes the response, which the reader reuses the buffer of, and completes the future on the executor.
+         */
+        void complete(final ByteBuffer frame, final Executor executor) {
+            Runnable completion;
+            try {
+                if (frame.get() == ERROR) {
+                    final IllegalStateException error = new IllegalStateException(getString(frame));
+                    completion = () -> future.completeExceptionally(error);
+                } else {
+                    final T result = decoder.apply(frame);
+                    completion = () -> future.complete(result);
+                }
+            } catch (final RuntimeException e) {
+                completion = () -> future.completeExceptionally(e);
+            }
+            execute(executor, completion);
+        }
+    }
+
+    private static void execute(final Executor executor, final Runnable completion) {
+        try {
+            executor.execute(completion);
+        } catch (final RejectedExecutionException e) {
+            completion.run();
+        }
+    }
+
+    private final SocketChannel channel;
+    private final String name;
+    private final Executor executor; // completes futures
+    private final Output out = new Output(1 << 12); // guarded by writeLock, like writing to the channel
+    private final Object writeLock = new Object();
+    private final Queue<Call<?>> calls = new ArrayDeque<>(); // guarded by itself, never held while writing
+    private IOException failure = null;
+    private final Thread reader;
+    private final int handle;
+    private final View leftView = new View(false);
+    private final View rightView = new View(true);
+
+    private RemoteBimap(final SocketChannel channel, final String name, final Executor executor) {
+        this.channel = channel;
+        this.name = name;
+        this.executor = executor;
+        reader = new Thread(this::read, "bimap-client-" + name);
+        reader.setDaemon(true);
+        reader.start();
+        handle = await(send(OPEN, out -> out.putString(name), ByteBuffer::getInt));
+    }
+
+    /**
+     * Connects to the bimap with the given name, which the server makes if there is none.
+     * Futures are completed on the default executor of {@link CompletableFuture}.
+     */
+    public static RemoteBimap connect(final SocketAddress address, final String name) throws IOException {
+        return connect(address, name, new CompletableFuture<Void>().defaultExecutor());
+    }
+
+    /**
+     * Connects to the bimap with the given name, completing futures on the executor.
+     * An executor which runs tasks in the calling thread makes blocking calls from dependent stages fail.
+     */
+    public static RemoteBimap connect(final SocketAddress address, final String name, final Executor executor) throws IOException {
+        Objects.requireNonNull(executor);
+        final SocketChannel channel = SocketChannel.open(address);
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            return new RemoteBimap(channel, name, executor);
+        } catch (final RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private <T> CompletableFuture<T> send(final byte op, final Consumer<Output> arguments, final Function<ByteBuffer, T> decoder) {
+        final CompletableFuture<T> future = new CompletableFuture<>();
+        // Calls are queued in the order of their requests, but the reader must be able to take responses
+        // while a large request blocks the writer, or the server stops reading and neither side proceeds
+        synchronized (writeLock) {
+            try {
+                out.begin();
+                out.put(op);
+                if (op != OPEN) {
+                    out.putInt(handle);
+                }
+                arguments.accept(out);
+                out.end();
+                final ByteBuffer buffer = out.buffer().flip();
+                synchronized (calls) {
+                    if (failure != null) {
+                        future.completeExceptionally(new UncheckedIOException(failure));
+                        return future;
+                    }
+                    calls.add(new Call<>(future, decoder));
+                }
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (final IOException e) {
+                fail(e);
+            } finally {
+                out.buffer().clear();
+            }
+        }
+        return future;
+    }
+
+    private void read() {
+        ByteBuffer in = ByteBuffer.allocate(1 << 16);
+        try {
+            while (true) {
+                if (channel.read(in) < 0) {
+                    throw new IOException("Connection closed by server");
+                }
+                in.flip();
+                int length;
+                while ((length = frameLength(in)) >= 0) {
+                    final ByteBuffer frame = in.slice(in.position() + 4, length);
+                    in.position(in.position() + 4 + length);
+                    final Call<?> call;
+                    synchronized (calls) {
+                        call = calls.poll();
+                    }
+                    if (call == null) {
+                        throw new IOException("Unexpected response");
+                    }
+                    call.complete(frame, executor);
+                }
+                final int pending = in.remaining() >= 4 ? in.getInt(in.position()) : 0;
+                in = ensureFrame(in.compact(), pending);
+            }
+        } catch (final IOException e) {
+            fail(e);
+        } catch (final Throwable e) {
+            // Calls must not wait for responses which nobody reads anymore
+            fail(new IOException(e));
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private void fail(final IOException e) {
+        synchronized (calls) {
+            if (failure == null) {
+                failure = e;
+            }
+            for (final Call<?> call : calls) {
+                final UncheckedIOException error = new UncheckedIOException(failure);
+                execute(executor, () -> call.future().completeExceptionally(error));
+            }
+            calls.clear();
+        }
+        try {
+            channel.close();
+        } catch (final IOException ignored) {
+            // Nothing to do
+        }
+    }
+
+    private <T> T await(final CompletableFuture<T> future) {
+        if (Thread.currentThread() == reader) {
+            // The response would never be read
+            throw new IllegalStateException("Blocking call on the reader thread of " + this);
+        }
+        try {
+            return future.join();
+        } catch (final CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static byte side(final boolean isRight) {
+        return isRight ? RIGHT : LEFT;
+    }
+
+    private CompletableFuture<String> get(final boolean isRight, final String key) {
+        return send(GET, out -> out.put(side(isRight)).putString(key), BimapProtocol::getString);
+    }
+
+    public CompletableFuture<String> leftGetAsync(final String left) {
+        return get(false, left);
+    }
+
+    public CompletableFuture<String> rightGetAsync(final String right) {
+        return get(true, right);
+    }
+
+    public CompletableFuture<Void> putAsync(final String left, final String right) {
+        return send(PUT, out -> out.putString(left).putString(right), frame -> null);
+    }
+
+    private List<String> getAll(final boolean isRight, final List<String> keys) {
+        final List<CompletableFuture<List<String>>> batches = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += BATCH) {
+            final List<String> batch = keys.subList(from, Math.min(keys.size(), from + BATCH));
+            batches.add(send(MULTI_GET, out -> {
+                out.put(side(isRight)).putInt(batch.size());
+                batch.forEach(out::putString);
+            }, frame -> {
+                final List<String> values = new ArrayList<>(batch.size());
+                for (int i = 0; i < batch.size(); i++) {
+                    values.add(getString(frame));
+                }
+                return values;
+            }));
+        }
+        final List<String> result = new ArrayList<>(keys.size());
+        for (final CompletableFuture<List<String>> batch : batches) {
+            result.addAll(await(batch));
+        }
+        return result;
+    }
+
+    /**
+     * Returns right keys for the left ones, or {@code null}s for absent ones, in batches of requests.
+     */
+    public List<String> leftGetAll(final List<String> lefts) {
+        return getAll(false, lefts);
+    }
+
+    /**
+     * Returns left keys for the right ones, or {@code null}s for absent ones, in batches of requests.
+     */
+    public List<String> rightGetAll(final List<String> rights) {
+        return getAll(true, rights);
+    }
+
+    @Override
+    public int size() {
+        return await(send(SIZE, out -> {
+        }, ByteBuffer::getInt));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        await(putAsync(left, right));
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        return await(forcePut(false, left, right));
+    }
+
+    private CompletableFuture<String> forcePut(final boolean isRight, final String key, final String value) {
+        return send(FORCE_PUT, out -> out.put(side(isRight)).putString(key).putString(value), BimapProtocol::getString);
+    }
+
+    @Override
+    public boolean putIfAbsent(final String left, final String right) {
+        return await(send(PUT_IF_ABSENT, out -> out.putString(left).putString(right), frame -> frame.get() != 0));
+    }
+
+    private String remove(final boolean isRight, final String key) {
+        return await(send(REMOVE, out -> out.put(side(isRight)).putString(key), BimapProtocol::getString));
+    }
+
+    @Override
+    public String leftRemove(final String left) {
+        return remove(false, left);
+    }
+
+    @Override
+    public String rightRemove(final String right) {
+        return remove(true, right);
+    }
+
+    /**
+     * Puts pairs of the other bimap in batches of requests, which are applied one by one.
+     */
+    @Override
+    public void putAll(final Bimap other) {
+        final List<CompletableFuture<Void>> batches = new ArrayList<>();
+        final List<String> batch = new ArrayList<>(2 * BATCH);
+        final Iterator<Map.Entry<String, String>> entries = other.left().entrySet().iterator();
+        while (entries.hasNext()) {
+            final Map.Entry<String, String> entry = entries.next();
+            batch.add(entry.getKey());
+            batch.add(entry.getValue());
+            if (batch.size() == 2 * BATCH || !entries.hasNext()) {
+                batches.add(send(MULTI_PUT, out -> {
+                    out.putInt(batch.size() / 2);
+                    batch.forEach(out::putString);
+                }, frame -> null));
+                batch.clear();
+            }
+        }
+        batches.forEach(this::await);
+    }
+
+    @Override
+    public void clear() {
+        await(send(CLEAR, out -> {
+        }, frame -> null));
+    }
+
+    private record Page(List<Map.Entry<String, String>> entries, boolean hasMore) {
+    }
+
+    /**
+     * Returns entries of the side in its order, fetching pages of them following the key.
+     */
+    private Page entries(final boolean isRight, final String after) {
+        return await(send(ENTRIES, out -> out.put(side(isRight)).putString(after).putInt(BATCH), frame -> {
+            final int count = frame.getInt();
+            final List<Map.Entry<String, String>> entries = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                entries.add(new AbstractMap.SimpleImmutableEntry<>(getString(frame), getString(frame)));
+            }
+            return new Page(entries, frame.get() != 0);
+        }));
+    }
+
+    private final class View extends AbstractMap<String, String> {
+        private final boolean isRight;
+
+        private View(final boolean isRight) {
+            this.isRight = isRight;
+        }
+
+        @Override
+        public int size() {
+            return RemoteBimap.this.size();
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            return value instanceof String string && await(RemoteBimap.this.get(!isRight, string)) != null;
+        }
+
+        @Override
+        public String get(final Object key) {
+            return key instanceof String string ? await(RemoteBimap.this.get(isRight, string)) : null;
+        }
+
+        @Override
+        public String put(final String key, final String value) {
+            return await(forcePut(isRight, key, value));
+        }
+
+        @Override
+        public String remove(final Object key) {
+            return key instanceof String string ? RemoteBimap.this.remove(isRight, string) : null;
+        }
+
+        @Override
+        public void clear() {
+            RemoteBimap.this.clear();
+        }
+
+        @Override
+        public Set<Entry<String, String>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, String>> iterator() {
+                    return new Iterator<>() {
+                        private Page page = entries(isRight, null);
+                        private Iterator<Entry<String, String>> entries = page.entries().iterator();
+                        private Entry<String, String> last = null;
+
+                        @Override
+                        public boolean hasNext() {
+                            return entries.hasNext();
+                        }
+
+                        @Override
+                        public Entry<String, String> next() {
+                            last = entries.next();
+                            // The next page follows the last key, so it is fetched before that can be removed
+                            while (!entries.hasNext() && page.hasMore()) {
+                                page = entries(isRight, last.getKey());
+                                entries = page.entries().iterator();
+                            }
+                            return last;
+                        }
+
+                        @Override
+                        public void remove() {
+                            if (last == null) {
+                                throw new IllegalStateException();
+                            }
+                            View.this.remove(last.getKey());
+                            last = null;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return View.this.size();
+                }
+            };
+        }
+    }
+
+    @Override
+    public Map<String, String> left() {
+        return leftView;
+    }
+
+    @Override
+    public Map<String, String> right() {
+        return rightView;
+    }
+
+    /**
+     * Closes the connection, failing calls in flight.
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        try {
+            reader.join();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RemoteBimap{" + "name=" + name + ", address=" + channel.socket().getRemoteSocketAddress() + '}';
+    }
+}
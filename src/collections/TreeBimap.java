@@ -1,6 +1,16 @@
 package collections;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.BiConsumer;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class TreeBimap implements Bimap {
     private static final class Half {
@@ -8,7 +18,9 @@ public class TreeBimap implements Bimap {
         Node left;
         Node right;
         Node parent;
-        int height;
+        long abbrev; // of the key, if the comparator is abbreviating
+        int height; // of the subtree, or its rank in red-black and WAVL trees
+        int size; // of the subtree
 
         public Half(final String key, final Node parent) {
             this.key = key;
@@ -16,6 +28,7 @@ public class TreeBimap implements Bimap {
             this.right = null;
             this.parent = parent;
             this.height = 1;
+            this.size = 1;
         }
     }
 
@@ -36,23 +49,52 @@ public class TreeBimap implements Bimap {
             return node == null ? 0 : node.rightHalf.height;
         }
 
+        private static int leftSize(final Node node) {
+            return node == null ? 0 : node.leftHalf.size;
+        }
+
+        private static int rightSize(final Node node) {
+            return node == null ? 0 : node.rightHalf.size;
+        }
+
+        // Fixes subtree size as well
         private void leftFixHeight() {
             leftHalf.height = Math.max(leftHeight(leftHalf.left), leftHeight(leftHalf.right)) + 1;
+            leftHalf.size = leftSize(leftHalf.left) + leftSize(leftHalf.right) + 1;
         }
 
+        // Fixes subtree size as well
         private void rightFixHeight() {
             rightHalf.height = Math.max(rightHeight(rightHalf.left), rightHeight(rightHalf.right)) + 1;
+            rightHalf.size = rightSize(rightHalf.left) + rightSize(rightHalf.right) + 1;
         }
 
-        public boolean checkInvariant(final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp) {
-            return (leftHalf.left == null || leftHalf.left.leftHalf.parent == this && leftCmp.compare(leftHalf.left.leftHalf.key, leftHalf.key) < 0 && leftHalf.left.checkInvariant(leftCmp, rightCmp))
-                    && (leftHalf.right == null || leftHalf.right.leftHalf.parent == this && leftCmp.compare(leftHalf.key, leftHalf.right.leftHalf.key) < 0 && leftHalf.right.checkInvariant(leftCmp, rightCmp))
-                    && (rightHalf.left == null || rightHalf.left.rightHalf.parent == this && rightCmp.compare(rightHalf.left.rightHalf.key, rightHalf.key) < 0)
-                    && (rightHalf.right == null || rightHalf.right.rightHalf.parent == this && rightCmp.compare(rightHalf.key, rightHalf.right.rightHalf.key) < 0)
-                    && leftHalf.height == Math.max(leftHeight(leftHalf.left), leftHeight(leftHalf.right)) + 1
-                    && Math.abs(leftHeight(leftHalf.left) - leftHeight(leftHalf.right)) <= 1
-                    && rightHalf.height == Math.max(rightHeight(rightHalf.left), rightHeight(rightHalf.right)) + 1
-                    && Math.abs(rightHeight(rightHalf.left) - rightHeight(rightHalf.right)) <= 1;
+        public boolean leftCheckInvariant(final Comparator<? super String> cmp, final Balancing balancing) {
+            return (leftHalf.left == null || leftHalf.left.leftHalf.parent == this && cmp.compare(leftHalf.left.leftHalf.key, leftHalf.key) < 0 && leftHalf.left.leftCheckInvariant(cmp, balancing))
+                    && (leftHalf.right == null || leftHalf.right.leftHalf.parent == this && cmp.compare(leftHalf.key, leftHalf.right.leftHalf.key) < 0 && leftHalf.right.leftCheckInvariant(cmp, balancing))
+                    && (balancing.isRanked() || leftHalf.height == Math.max(leftHeight(leftHalf.left), leftHeight(leftHalf.right)) + 1)
+                    && leftHalf.size == leftSize(leftHalf.left) + leftSize(leftHalf.right) + 1
+                    && switch (balancing) {
+                case AVL -> Math.abs(leftHeight(leftHalf.left) - leftHeight(leftHalf.right)) <= 1;
+                case WEIGHT -> weightBalanced(leftSize(leftHalf.left) + 1, leftSize(leftHalf.right) + 1);
+                case WAVL -> wavlBalanced(leftHalf.height, leftHeight(leftHalf.left), leftHeight(leftHalf.right));
+                case RED_BLACK -> redBlackBalanced(leftHalf.height, leftHeight(leftHalf.left), leftHeight(leftHalf.right),
+                        leftHalf.parent.leftHalf.parent != null && leftHalf.parent.leftHalf.height == leftHalf.height);
+            };
+        }
+
+        public boolean rightCheckInvariant(final Comparator<? super String> cmp, final Balancing balancing) {
+            return (rightHalf.left == null || rightHalf.left.rightHalf.parent == this && cmp.compare(rightHalf.left.rightHalf.key, rightHalf.key) < 0 && rightHalf.left.rightCheckInvariant(cmp, balancing))
+                    && (rightHalf.right == null || rightHalf.right.rightHalf.parent == this && cmp.compare(rightHalf.key, rightHalf.right.rightHalf.key) < 0 && rightHalf.right.rightCheckInvariant(cmp, balancing))
+                    && (balancing.isRanked() || rightHalf.height == Math.max(rightHeight(rightHalf.left), rightHeight(rightHalf.right)) + 1)
+                    && rightHalf.size == rightSize(rightHalf.left) + rightSize(rightHalf.right) + 1
+                    && switch (balancing) {
+                case AVL -> Math.abs(rightHeight(rightHalf.left) - rightHeight(rightHalf.right)) <= 1;
+                case WEIGHT -> weightBalanced(rightSize(rightHalf.left) + 1, rightSize(rightHalf.right) + 1);
+                case WAVL -> wavlBalanced(rightHalf.height, rightHeight(rightHalf.left), rightHeight(rightHalf.right));
+                case RED_BLACK -> redBlackBalanced(rightHalf.height, rightHeight(rightHalf.left), rightHeight(rightHalf.right),
+                        rightHalf.parent.rightHalf.parent != null && rightHalf.parent.rightHalf.height == rightHalf.height);
+            };
         }
 
         public Node leftMin() {
@@ -221,7 +263,7 @@ public class TreeBimap implements Bimap {
             l.rightFixHeight();
         }
 
-        public void leftFix() {
+        public void leftFix(final BimapMetrics metrics) {
             Node that = this;
             while (that.leftHalf.parent != null) {
                 final int disbalance = leftHeight(that.leftHalf.left) - leftHeight(that.leftHalf.right);
@@ -232,17 +274,29 @@ public class TreeBimap implements Bimap {
                     case -2:
                         if (leftHeight(that.leftHalf.right.leftHalf.right) == leftHeight(that.leftHalf.right) - 1) {
                             that.leftRotateLeft();
+                            if (BimapMetrics.ENABLED) {
+                                metrics.rotation(false);
+                            }
                         } else {
                             that.leftHalf.right.leftRotateRight();
                             that.leftRotateLeft();
+                            if (BimapMetrics.ENABLED) {
+                                metrics.rotation(true);
+                            }
                         }
                         break;
                     case 2:
                         if (leftHeight(that.leftHalf.left.leftHalf.left) == leftHeight(that.leftHalf.left) - 1) {
                             that.leftRotateRight();
+                            if (BimapMetrics.ENABLED) {
+                                metrics.rotation(false);
+                            }
                         } else {
                             that.leftHalf.left.leftRotateLeft();
                             that.leftRotateRight();
+                            if (BimapMetrics.ENABLED) {
+                                metrics.rotation(true);
+                            }
                         }
                         break;
                     default:
@@ -252,7 +306,7 @@ public class TreeBimap implements Bimap {
             }
         }
 
-        public void rightFix() {
+        public void rightFix(final BimapMetrics metrics) {
             Node that = this;
             while (that.rightHalf.parent != null) {
                 final int disbalance = rightHeight(that.rightHalf.left) - rightHeight(that.rightHalf.right);
@@ -263,17 +317,29 @@ public class TreeBimap implements Bimap {
                     case -2:
                         if (rightHeight(that.rightHalf.right.rightHalf.right) == rightHeight(that.rightHalf.right) - 1) {
                             that.rightRotateLeft();
+                            if (BimapMetrics.ENABLED) {
+                                metrics.rotation(false);
+                            }
                         } else {
                             that.rightHalf.right.rightRotateRight();
                             that.rightRotateLeft();
+                            if (BimapMetrics.ENABLED) {
+                                metrics.rotation(true);
+                            }
                         }
                         break;
                     case 2:
                         if (rightHeight(that.rightHalf.left.rightHalf.left) == rightHeight(that.rightHalf.left) - 1) {
                             that.rightRotateRight();
+                            if (BimapMetrics.ENABLED) {
+                                metrics.rotation(false);
+                            }
                         } else {
                             that.rightHalf.left.rightRotateLeft();
                             that.rightRotateRight();
+                            if (BimapMetrics.ENABLED) {
+                                metrics.rotation(true);
+                            }
                         }
                         break;
                     default:
@@ -282,25 +348,245 @@ public class TreeBimap implements Bimap {
                 that = that.rightHalf.parent;
             }
         }
+
+        public void leftFixWeight(final BimapMetrics metrics) {
+            Node that = this;
+            while (that.leftHalf.parent != null) {
+                final int leftWeight = leftSize(that.leftHalf.left) + 1;
+                final int rightWeight = leftSize(that.leftHalf.right) + 1;
+                if (WEIGHT_DELTA * leftWeight < rightWeight) {
+                    final Node right = that.leftHalf.right;
+                    final boolean isDouble = leftSize(right.leftHalf.left) + 1 >= WEIGHT_GAMMA * (leftSize(right.leftHalf.right) + 1);
+                    if (isDouble) {
+                        right.leftRotateRight();
+                    }
+                    that.leftRotateLeft();
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(isDouble);
+                    }
+                } else if (WEIGHT_DELTA * rightWeight < leftWeight) {
+                    final Node left = that.leftHalf.left;
+                    final boolean isDouble = leftSize(left.leftHalf.right) + 1 >= WEIGHT_GAMMA * (leftSize(left.leftHalf.left) + 1);
+                    if (isDouble) {
+                        left.leftRotateLeft();
+                    }
+                    that.leftRotateRight();
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(isDouble);
+                    }
+                } else {
+                    that.leftFixHeight();
+                }
+                that = that.leftHalf.parent;
+            }
+        }
+
+        public void rightFixWeight(final BimapMetrics metrics) {
+            Node that = this;
+            while (that.rightHalf.parent != null) {
+                final int leftWeight = rightSize(that.rightHalf.left) + 1;
+                final int rightWeight = rightSize(that.rightHalf.right) + 1;
+                if (WEIGHT_DELTA * leftWeight < rightWeight) {
+                    final Node right = that.rightHalf.right;
+                    final boolean isDouble = rightSize(right.rightHalf.left) + 1 >= WEIGHT_GAMMA * (rightSize(right.rightHalf.right) + 1);
+                    if (isDouble) {
+                        right.rightRotateRight();
+                    }
+                    that.rightRotateLeft();
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(isDouble);
+                    }
+                } else if (WEIGHT_DELTA * rightWeight < leftWeight) {
+                    final Node left = that.rightHalf.left;
+                    final boolean isDouble = rightSize(left.rightHalf.right) + 1 >= WEIGHT_GAMMA * (rightSize(left.rightHalf.left) + 1);
+                    if (isDouble) {
+                        left.rightRotateLeft();
+                    }
+                    that.rightRotateRight();
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(isDouble);
+                    }
+                } else {
+                    that.rightFixHeight();
+                }
+                that = that.rightHalf.parent;
+            }
+        }
+    }
+
+    /**
+     * How a tree is kept balanced.
+     * <p>
+     * Red-black and WAVL trees are rank-balanced after Haeupler, Sen and Tarjan: nodes keep ranks instead of heights,
+     * missing nodes have rank zero, and balance is defined by the rank differences of parents and children.
+     * Both take amortized O(1) rotations and rank changes per update, but subtree sizes are still fixed up to the root.
+     */
+    public enum Balancing {
+        /**
+         * Heights of sibling subtrees differ by at most one, which keeps the trees lowest,
+         * but removals may rotate all the way up.
+         */
+        AVL,
+        /**
+         * Rank differences are zero or one, and children of zero-children (red nodes) are one-children.
+         * Insertions take at most two rotations and removals at most three.
+         */
+        RED_BLACK,
+        /**
+         * Rank differences are one or two, and leaves have rank one. Without removals the trees are AVL trees,
+         * and with them no higher than red-black ones. Insertions and removals take at most two rotations.
+         */
+        WAVL,
+        /**
+         * Sizes of sibling subtrees differ at most {@link #WEIGHT_DELTA} times, counting one more for each.
+         * Balance is decided by the sizes kept for ranks, and trees may be up to about a third higher than AVL ones.
+         */
+        WEIGHT;
+
+        private boolean isRanked() {
+            return this == RED_BLACK || this == WAVL;
+        }
+    }
+
+    /**
+     * Parameters of weight balance after Nievergelt and Reingold, proven valid for single insertions and removals
+     * by Hirai and Yamamoto: siblings are balanced if neither weighs more than delta times the other,
+     * and the heavy child is rotated up once if its inner child weighs less than gamma times the outer one.
+     */
+    private static final int WEIGHT_DELTA = 3;
+    private static final int WEIGHT_GAMMA = 2;
+
+    private static boolean weightBalanced(final int leftWeight, final int rightWeight) {
+        return WEIGHT_DELTA * leftWeight >= rightWeight && WEIGHT_DELTA * rightWeight >= leftWeight;
+    }
+
+    private static boolean wavlBalanced(final int rank, final int leftRank, final int rightRank) {
+        return rank - leftRank >= 1 && rank - leftRank <= 2 && rank - rightRank >= 1 && rank - rightRank <= 2
+                && (leftRank > 0 || rightRank > 0 || rank == 1);
+    }
+
+    private static boolean redBlackBalanced(final int rank, final int leftRank, final int rightRank, final boolean isZeroChild) {
+        final int minDifference = isZeroChild ? 1 : 0;
+        return rank - leftRank >= minDifference && rank - leftRank <= 1 && rank - rightRank >= minDifference && rank - rightRank <= 1;
     }
 
     private final Comparator<? super String> leftCmp;
     private final Comparator<? super String> rightCmp;
+    private final Balancing leftBalancing;
+    private final Balancing rightBalancing;
+    private final AbbreviatingComparator<? super String> leftAbbreviator; // null if leftCmp is not abbreviating
+    private final AbbreviatingComparator<? super String> rightAbbreviator;
     private Node rootParent = new Node(null, null, null, null); // roots are rootParent.*.right
     private int size = 0;
+    private final BimapMetrics metrics = BimapMetrics.ENABLED ? new BimapMetrics(this) : null;
+    private volatile BimapEventPublisher events = null;
 
     public TreeBimap() {
         this(new NaturalOrderingComparator<>(), new NaturalOrderingComparator<>());
     }
 
     public TreeBimap(final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp) {
+        this(leftCmp, rightCmp, Balancing.AVL);
+    }
+
+    /**
+     * Creates bimap which keeps both trees balanced by the given scheme, which set operations preserve.
+     */
+    public TreeBimap(final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp, final Balancing balancing) {
+        this(leftCmp, rightCmp, balancing, balancing);
+    }
+
+    /**
+     * Creates bimap which keeps each tree balanced by its own scheme, which set operations preserve.
+     */
+    public TreeBimap(
+            final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp,
+            final Balancing leftBalancing, final Balancing rightBalancing
+    ) {
         this.leftCmp = leftCmp;
         this.rightCmp = rightCmp;
+        this.leftBalancing = Objects.requireNonNull(leftBalancing);
+        this.rightBalancing = Objects.requireNonNull(rightBalancing);
+        this.leftAbbreviator = leftCmp instanceof AbbreviatingComparator<? super String> a ? a : null;
+        this.rightAbbreviator = rightCmp instanceof AbbreviatingComparator<? super String> a ? a : null;
     }
 
     public boolean checkInvariant() {
         return (rootParent.leftHalf.right == null && rootParent.rightHalf.right == null)
-                || (rootParent.leftHalf.right != null && rootParent.rightHalf.right != null && rootParent.leftHalf.right.checkInvariant(leftCmp, rightCmp));
+                || (rootParent.leftHalf.right != null && rootParent.rightHalf.right != null
+                && rootParent.leftHalf.right.leftHalf.parent == rootParent && rootParent.leftHalf.right.leftCheckInvariant(leftCmp, leftBalancing)
+                && rootParent.rightHalf.right.rightHalf.parent == rootParent && rootParent.rightHalf.right.rightCheckInvariant(rightCmp, rightBalancing));
+    }
+
+    /**
+     * Returns metrics of this bimap, or {@code null} if they are not {@link BimapMetrics#ENABLED}.
+     */
+    public BimapMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns publisher of batches of changes of this bimap, which are delivered in the common pool.
+     * Batches coalesce the changes made while a subscriber processes the previous one or requests no more.
+     * Changes cost nothing but a check while there are no subscribers, and bulk operations which rebuild trees
+     * may take longer while there are some.
+     */
+    public Flow.Publisher<List<BimapEvent>> events() {
+        BimapEventPublisher result = events;
+        if (result == null) {
+            synchronized (this) {
+                result = events;
+                if (result == null) {
+                    events = result = new BimapEventPublisher(ForkJoinPool.commonPool());
+                }
+            }
+        }
+        return result;
+    }
+
+    private boolean publishing() {
+        final BimapEventPublisher publisher = events;
+        return publisher != null && publisher.isActive();
+    }
+
+    private void publish(final BimapEvent.Type type, final Node node) {
+        events.publish(new BimapEvent(type, node.leftHalf.key, node.rightHalf.key));
+    }
+
+    /**
+     * Publishes put of a pair, given nodes with its left and right keys if any.
+     */
+    private void publishPut(final String left, final Node leftNode, final String right, final Node rightNode) {
+        if (leftNode != null && leftNode == rightNode) {
+            // The pair is present
+            return;
+        }
+        if (leftNode != null) {
+            publish(BimapEvent.Type.EVICT, leftNode);
+        }
+        if (rightNode != null) {
+            publish(BimapEvent.Type.EVICT, rightNode);
+        }
+        events.publish(new BimapEvent(BimapEvent.Type.PUT, left, right));
+    }
+
+    int height(final boolean isRight) {
+        final Side side = isRight ? rightSide : leftSide;
+        return side.treeHeight(side.root());
+    }
+
+    BimapMetrics.Shape shape(final boolean isRight) {
+        final Side side = isRight ? rightSide : leftSide;
+        long depths = 0; // each node adds one to the depth of its subtree
+        int leaning = 0;
+        for (Node node = side.first(); node != null; node = side.next(node)) {
+            final Half half = side.half(node);
+            depths += half.size;
+            if (side.treeHeight(half.left) != side.treeHeight(half.right)) {
+                leaning++;
+            }
+        }
+        return new BimapMetrics.Shape(height(isRight), size == 0 ? 0 : (double) depths / size, leaning);
     }
 
     @Override
@@ -313,37 +599,97 @@ public class TreeBimap implements Bimap {
         return size() == 0;
     }
 
+    private long leftAbbreviate(final String key) {
+        return leftAbbreviator == null ? 0 : leftAbbreviator.abbreviate(key);
+    }
+
+    private long rightAbbreviate(final String key) {
+        return rightAbbreviator == null ? 0 : rightAbbreviator.abbreviate(key);
+    }
+
+    /**
+     * Compares key with the left key of the node, calling the comparator only if abbreviations are equal.
+     */
+    private int leftCompare(final String key, final long abbrev, final Node node) {
+        if (abbrev != node.leftHalf.abbrev) {
+            return Long.compareUnsigned(abbrev, node.leftHalf.abbrev);
+        }
+        if (BimapMetrics.ENABLED) {
+            metrics.comparison();
+        }
+        return leftCmp.compare(key, node.leftHalf.key);
+    }
+
+    private int rightCompare(final String key, final long abbrev, final Node node) {
+        if (abbrev != node.rightHalf.abbrev) {
+            return Long.compareUnsigned(abbrev, node.rightHalf.abbrev);
+        }
+        if (BimapMetrics.ENABLED) {
+            metrics.comparison();
+        }
+        return rightCmp.compare(key, node.rightHalf.key);
+    }
+
+    private void leftSetKey(final Node node, final String key) {
+        node.leftHalf.key = key;
+        node.leftHalf.abbrev = leftAbbreviate(key);
+    }
+
+    private void rightSetKey(final Node node, final String key) {
+        node.rightHalf.key = key;
+        node.rightHalf.abbrev = rightAbbreviate(key);
+    }
+
+    private Node newNode(final String left, final String right) {
+        final Node node = new Node(left, right, null, null);
+        node.leftHalf.abbrev = leftAbbreviate(left);
+        node.rightHalf.abbrev = rightAbbreviate(right);
+        return node;
+    }
+
     private Node leftFind(final String key) {
+        final long abbrev = leftAbbreviate(key);
         Node node = rootParent.leftHalf.right;
+        int visited = 0;
         while (node != null) {
-            int res = leftCmp.compare(key, node.leftHalf.key);
+            visited++;
+            int res = leftCompare(key, abbrev, node);
             if (res < 0) {
                 node = node.leftHalf.left;
             } else if (res > 0) {
                 node = node.leftHalf.right;
             } else {
-                return node;
+                break;
             }
         }
-        return null;
+        if (BimapMetrics.ENABLED) {
+            metrics.search(visited);
+        }
+        return node;
     }
 
     private Node rightFind(final String key) {
+        final long abbrev = rightAbbreviate(key);
         Node node = rootParent.rightHalf.right;
+        int visited = 0;
         while (node != null) {
-            int res = rightCmp.compare(key, node.rightHalf.key);
+            visited++;
+            int res = rightCompare(key, abbrev, node);
             if (res < 0) {
                 node = node.rightHalf.left;
             } else if (res > 0) {
                 node = node.rightHalf.right;
             } else {
-                return node;
+                break;
             }
         }
-        return null;
+        if (BimapMetrics.ENABLED) {
+            metrics.search(visited);
+        }
+        return node;
     }
 
-    private void remove(final Node node) {
+    private void leftUnlink(final Node node) {
         final Node leftToUnlink;
         final Node leftToFix;
         if (node.leftHalf.right != null && node.leftHalf.left != null) {
@@ -358,6 +704,7 @@ public class TreeBimap implements Bimap {
             leftToUnlink = node;
             leftToFix = node.leftHalf.parent;
         }
+        final Node leftChild = leftToUnlink.leftHalf.right == null ? leftToUnlink.leftHalf.left : leftToUnlink.leftHalf.right;
         if (leftToUnlink.leftHalf.right == null) {
             if (leftToUnlink.leftHalf.parent.leftHalf.left == leftToUnlink) {
                 leftToUnlink.leftHalf.parent.leftHalf.left = leftToUnlink.leftHalf.left;
@@ -376,6 +723,7 @@ public class TreeBimap implements Bimap {
             leftToUnlink.leftHalf.right.leftHalf.parent = leftToUnlink.leftHalf.parent;
         }
         if (leftToUnlink != node) {
+            leftToUnlink.leftHalf.height = node.leftHalf.height;
             leftToUnlink.leftHalf.left = node.leftHalf.left;
             if (leftToUnlink.leftHalf.left != null) {
                 leftToUnlink.leftHalf.left.leftHalf.parent = leftToUnlink;
@@ -393,7 +741,10 @@ public class TreeBimap implements Bimap {
             }
             node.leftHalf.left = node.leftHalf.right = node.leftHalf.parent = null;
         }
+        leftRemoved(leftToFix, leftChild);
+    }
 
+    private void rightUnlink(final Node node) {
         final Node rightToUnlink;
         final Node rightToFix;
         if (node.rightHalf.right != null && node.rightHalf.left != null) {
@@ -408,6 +759,7 @@ public class TreeBimap implements Bimap {
             rightToUnlink = node;
             rightToFix = rightToUnlink.rightHalf.parent;
         }
+        final Node rightChild = rightToUnlink.rightHalf.right == null ? rightToUnlink.rightHalf.left : rightToUnlink.rightHalf.right;
         if (rightToUnlink.rightHalf.right == null) {
             if (rightToUnlink.rightHalf.parent.rightHalf.left == rightToUnlink) {
                 rightToUnlink.rightHalf.parent.rightHalf.left = rightToUnlink.rightHalf.left;
@@ -426,6 +778,7 @@ public class TreeBimap implements Bimap {
             rightToUnlink.rightHalf.right.rightHalf.parent = rightToUnlink.rightHalf.parent;
         }
         if (rightToUnlink != node) {
+            rightToUnlink.rightHalf.height = node.rightHalf.height;
             rightToUnlink.rightHalf.left = node.rightHalf.left;
             if (rightToUnlink.rightHalf.left != null) {
                 rightToUnlink.rightHalf.left.rightHalf.parent = rightToUnlink;
@@ -443,334 +796,2703 @@ public class TreeBimap implements Bimap {
             }
             node.rightHalf.left = node.rightHalf.right = node.rightHalf.parent = null;
         }
+        rightRemoved(rightToFix, rightChild);
+    }
+
+    /**
+     * Restores balance of the left tree after the node has been attached as a leaf.
+     */
+    private void leftInserted(final Node node) {
+        switch (leftBalancing) {
+            case AVL -> node.leftHalf.parent.leftFix(metrics);
+            case WEIGHT -> node.leftHalf.parent.leftFixWeight(metrics);
+            default -> {
+                leftSide.fixSizes(node.leftHalf.parent);
+                leftSide.rebalanceInserted(node);
+            }
+        }
+    }
+
+    private void rightInserted(final Node node) {
+        switch (rightBalancing) {
+            case AVL -> node.rightHalf.parent.rightFix(metrics);
+            case WEIGHT -> node.rightHalf.parent.rightFixWeight(metrics);
+            default -> {
+                rightSide.fixSizes(node.rightHalf.parent);
+                rightSide.rebalanceInserted(node);
+            }
+        }
+    }
+
+    /**
+     * Restores balance of the left tree after a node has been unlinked from under the parent,
+     * and the child, possibly {@code null}, has taken its place.
+     */
+    private void leftRemoved(final Node parent, final Node child) {
+        switch (leftBalancing) {
+            case AVL -> parent.leftFix(metrics);
+            case WEIGHT -> parent.leftFixWeight(metrics);
+            default -> {
+                leftSide.fixSizes(parent);
+                leftSide.rebalanceRemoved(parent, child);
+            }
+        }
+    }
 
-        leftToFix.leftFix();
-        rightToFix.rightFix();
+    private void rightRemoved(final Node parent, final Node child) {
+        switch (rightBalancing) {
+            case AVL -> parent.rightFix(metrics);
+            case WEIGHT -> parent.rightFixWeight(metrics);
+            default -> {
+                rightSide.fixSizes(parent);
+                rightSide.rebalanceRemoved(parent, child);
+            }
+        }
+    }
 
+    private void remove(final Node node) {
+        if (publishing()) {
+            publish(BimapEvent.Type.REMOVE, node);
+        }
+        leftUnlink(node);
+        rightUnlink(node);
         size--;
     }
 
     @Override
     public void clear() {
+        if (size > 0 && publishing()) {
+            events.publish(BimapEvent.CLEARED);
+        }
         rootParent.leftHalf.right = null;
         rootParent.rightHalf.right = null;
         size = 0;
     }
 
-    @Override
-    public void put(final String left, final String right) {
-        if (rootParent.leftHalf.right == null) {
-            assert rootParent.rightHalf.right == null;
-            rootParent.leftHalf.right = rootParent.rightHalf.right = new Node(left, right, rootParent, rootParent);
-            size++;
-            return;
+    /**
+     * Result of {@link #leftSearch} or {@link #rightSearch}: the node with equal key and zero,
+     * or the node to attach such key to (possibly {@link #rootParent}) and the side to attach it from.
+     */
+    private record Search(Node node, int side) {
+        boolean found() {
+            return side == 0;
         }
-        {
-            final Node currentRight = leftFind(left);
-            if (currentRight != null) {
-                remove(currentRight);
+    }
+
+    /**
+     * Finds node with equal left key, or the node to attach such key to.
+     */
+    private Search leftSearch(final String key) {
+        final long abbrev = leftAbbreviate(key);
+        Node parent = rootParent;
+        Node node = rootParent.leftHalf.right;
+        int res = 1;
+        int visited = 0;
+        while (node != null) {
+            visited++;
+            res = leftCompare(key, abbrev, node);
+            if (res == 0) {
+                break;
             }
-            final Node currentLeft = rightFind(right);
-            if (currentLeft != null) {
-                remove(currentLeft);
+            parent = node;
+            node = res < 0 ? node.leftHalf.left : node.leftHalf.right;
+        }
+        if (BimapMetrics.ENABLED) {
+            metrics.search(visited);
+        }
+        return new Search(res == 0 ? node : parent, res);
+    }
+
+    private Search rightSearch(final String key) {
+        final long abbrev = rightAbbreviate(key);
+        Node parent = rootParent;
+        Node node = rootParent.rightHalf.right;
+        int res = 1;
+        int visited = 0;
+        while (node != null) {
+            visited++;
+            res = rightCompare(key, abbrev, node);
+            if (res == 0) {
+                break;
             }
+            parent = node;
+            node = res < 0 ? node.rightHalf.left : node.rightHalf.right;
+        }
+        if (BimapMetrics.ENABLED) {
+            metrics.search(visited);
         }
+        return new Search(res == 0 ? node : parent, res);
+    }
 
-        Node leftNode = rootParent.leftHalf.right;
-        Node rightNode = rootParent.rightHalf.right;
-        enum SearchResult {
-            TO_LEFT, TO_RIGHT
+    private void leftAttach(final Node node, final Node parent, final int side) {
+        assert side != 0;
+        node.leftHalf.left = node.leftHalf.right = null;
+        node.leftHalf.height = node.leftHalf.size = 1;
+        node.leftHalf.parent = parent;
+        if (side < 0) {
+            parent.leftHalf.left = node;
+        } else {
+            parent.leftHalf.right = node;
         }
-        final SearchResult leftResult;
-        final SearchResult rightResult;
-        while (true) {
-            final int res = leftCmp.compare(left, leftNode.leftHalf.key);
-            if (res < 0) {
-                if (leftNode.leftHalf.left == null) {
-                    leftResult = SearchResult.TO_LEFT;
-                    break;
-                }
-                leftNode = leftNode.leftHalf.left;
-            } else {
-                assert res > 0;
-                if (leftNode.leftHalf.right == null) {
-                    leftResult = SearchResult.TO_RIGHT;
-                    break;
-                }
-                leftNode = leftNode.leftHalf.right;
+        leftInserted(node);
+    }
+
+    private void rightAttach(final Node node, final Node parent, final int side) {
+        assert side != 0;
+        node.rightHalf.left = node.rightHalf.right = null;
+        node.rightHalf.height = node.rightHalf.size = 1;
+        node.rightHalf.parent = parent;
+        if (side < 0) {
+            parent.rightHalf.left = node;
+        } else {
+            parent.rightHalf.right = node;
+        }
+        rightInserted(node);
+    }
+
+    /**
+     * Moves node in the left tree to the new key, which is not in the tree
+     * and should be attached to {@code parent} from the given {@code side}.
+     */
+    private void leftRelink(final Node node, final String key, final Node parent, final int side) {
+        Node neighbour = parent;
+        if (side < 0) {
+            while (neighbour.leftHalf.parent != null && neighbour == neighbour.leftHalf.parent.leftHalf.left) {
+                neighbour = neighbour.leftHalf.parent;
+            }
+        } else {
+            while (neighbour.leftHalf.parent != null && neighbour == neighbour.leftHalf.parent.leftHalf.right) {
+                neighbour = neighbour.leftHalf.parent;
             }
         }
-        while (true) {
-            final int res = rightCmp.compare(right, rightNode.rightHalf.key);
-            if (res < 0) {
-                if (rightNode.rightHalf.left == null) {
-                    rightResult = SearchResult.TO_LEFT;
-                    break;
-                }
-                rightNode = rightNode.rightHalf.left;
+        if (node == parent || node == neighbour.leftHalf.parent) {
+            // The new key falls into the gap next to the node, so the order is kept as is
+            leftSetKey(node, key);
+        } else {
+            leftUnlink(node);
+            leftSetKey(node, key);
+            final Search search = leftSearch(key);
+            leftAttach(node, search.node(), search.side());
+        }
+    }
+
+    private void rightRelink(final Node node, final String key, final Node parent, final int side) {
+        Node neighbour = parent;
+        if (side < 0) {
+            while (neighbour.rightHalf.parent != null && neighbour == neighbour.rightHalf.parent.rightHalf.left) {
+                neighbour = neighbour.rightHalf.parent;
+            }
+        } else {
+            while (neighbour.rightHalf.parent != null && neighbour == neighbour.rightHalf.parent.rightHalf.right) {
+                neighbour = neighbour.rightHalf.parent;
+            }
+        }
+        if (node == parent || node == neighbour.rightHalf.parent) {
+            // The new key falls into the gap next to the node, so the order is kept as is
+            rightSetKey(node, key);
+        } else {
+            rightUnlink(node);
+            rightSetKey(node, key);
+            final Search search = rightSearch(key);
+            rightAttach(node, search.node(), search.side());
+        }
+    }
+
+    /**
+     * Puts {@code other} node in place of {@code node} in the right tree.
+     */
+    private static void rightSubstitute(final Node node, final Node other) {
+        other.rightHalf.height = node.rightHalf.height;
+        other.rightHalf.size = node.rightHalf.size;
+        other.rightSetLeft(node.rightHalf.left);
+        other.rightSetRight(node.rightHalf.right);
+        node.rightReplaceWith(other);
+    }
+
+    private static void leftSubstitute(final Node node, final Node other) {
+        other.leftHalf.height = node.leftHalf.height;
+        other.leftHalf.size = node.leftHalf.size;
+        other.leftSetLeft(node.leftHalf.left);
+        other.leftSetRight(node.leftHalf.right);
+        node.leftReplaceWith(other);
+    }
+
+    /**
+     * Puts pair given results of {@link #leftSearch} and {@link #rightSearch} for its keys.
+     * Existing nodes are relinked in one of the trees instead of being reallocated.
+     *
+     * @return previous right key for the left one, or {@code null}
+     */
+    private String put(final String left, final Search leftSearch, final String right, final Search rightSearch) {
+        final Node leftNode = leftSearch.node();
+        final int leftResult = leftSearch.side();
+        final Node rightNode = rightSearch.node();
+        final int rightResult = rightSearch.side();
+        if (publishing()) {
+            publishPut(left, leftResult == 0 ? leftNode : null, right, rightResult == 0 ? rightNode : null);
+        }
+        if (leftResult != 0) {
+            if (rightResult != 0) {
+                final Node node = newNode(left, right);
+                leftAttach(node, leftNode, leftResult);
+                rightAttach(node, rightNode, rightResult);
+                size++;
             } else {
-                assert res > 0;
-                if (rightNode.rightHalf.right == null) {
-                    rightResult = SearchResult.TO_RIGHT;
-                    break;
-                }
-                rightNode = rightNode.rightHalf.right;
+                leftRelink(rightNode, left, leftNode, leftResult);
+                rightSetKey(rightNode, right);
             }
+            return null;
         }
 
-        final Node newNode = new Node(left, right, leftNode, rightNode);
-        if (leftResult == SearchResult.TO_LEFT) {
-            leftNode.leftHalf.left = newNode;
+        final String previous = leftNode.rightHalf.key;
+        if (rightResult != 0) {
+            rightRelink(leftNode, right, rightNode, rightResult);
+        } else if (leftNode != rightNode) {
+            // Node with the left key takes place of the node with the right key in the right tree
+            rightUnlink(leftNode);
+            rightSubstitute(rightNode, leftNode);
+            leftUnlink(rightNode);
+            rightSetKey(leftNode, right);
+            size--;
         } else {
-            leftNode.leftHalf.right = newNode;
+            rightSetKey(leftNode, right);
         }
-        if (rightResult == SearchResult.TO_LEFT) {
-            rightNode.rightHalf.left = newNode;
-        } else {
-            rightNode.rightHalf.right = newNode;
+        leftSetKey(leftNode, left);
+        return previous;
+    }
+
+    @Override
+    public void put(final String left, final String right) {
+        forcePut(left, right);
+    }
+
+    @Override
+    public String forcePut(final String left, final String right) {
+        final long start = BimapMetrics.ENABLED ? System.nanoTime() : 0;
+        final String previous = put(left, leftSearch(left), right, rightSearch(right));
+        if (BimapMetrics.ENABLED) {
+            metrics.put(start);
         }
+        return previous;
+    }
 
-        leftNode.leftFix();
-        rightNode.rightFix();
-        size++;
+    @Override
+    public boolean putIfAbsent(final String left, final String right) {
+        final Search leftSearch = leftSearch(left);
+        if (leftSearch.found()) {
+            return false;
+        }
+        final Search rightSearch = rightSearch(right);
+        if (rightSearch.found()) {
+            return false;
+        }
+        put(left, leftSearch, right, rightSearch);
+        return true;
     }
 
     @Override
-    public String leftRemove(final String left) {
-        final Node node = leftFind(left);
-        if (node != null) {
-            remove(node);
-            return node.rightHalf.key;
-        } else {
+    public String replaceRight(final String left, final String newRight) {
+        final Search leftSearch = leftSearch(left);
+        if (!leftSearch.found()) {
             return null;
         }
+        return put(left, leftSearch, newRight, rightSearch(newRight));
     }
 
     @Override
-    public String rightRemove(final String right) {
-        final Node node = rightFind(right);
-        if (node != null) {
-            remove(node);
-            return node.leftHalf.key;
-        } else {
+    public String replaceLeft(final String right, final String newLeft) {
+        final Search rightSearch = rightSearch(right);
+        if (!rightSearch.found()) {
             return null;
         }
+        final String previous = rightSearch.node().leftHalf.key;
+        put(newLeft, leftSearch(newLeft), right, rightSearch);
+        return previous;
     }
 
     @Override
-    public void putAll(final Bimap other) {
-        other.left().forEach(this::put);
+    public String computeRightIfAbsent(final String left, final Function<? super String, ? extends String> mapping) {
+        final Search leftSearch = leftSearch(left);
+        if (leftSearch.found()) {
+            return leftSearch.node().rightHalf.key;
+        }
+        final String right = mapping.apply(left);
+        if (right != null) {
+            put(left, leftSearch, right, rightSearch(right));
+        }
+        return right;
     }
 
-    private record Entry(String key, String value) implements Map.Entry<String, String> {
-        @Override
-        public String getKey() {
-            return key();
+    @Override
+    public String leftRemove(final String left) {
+        final long start = BimapMetrics.ENABLED ? System.nanoTime() : 0;
+        final Node node = leftFind(left);
+        if (node != null) {
+            remove(node);
         }
-
-        @Override
-        public String getValue() {
-            return value();
+        if (BimapMetrics.ENABLED) {
+            metrics.remove(start);
         }
+        return node == null ? null : node.rightHalf.key;
+    }
 
-        @Override
-        public String setValue(final String value) {
-            throw new UnsupportedOperationException("Bimap.Entry setValue");
+    @Override
+    public String rightRemove(final String right) {
+        final long start = BimapMetrics.ENABLED ? System.nanoTime() : 0;
+        final Node node = rightFind(right);
+        if (node != null) {
+            remove(node);
         }
+        if (BimapMetrics.ENABLED) {
+            metrics.remove(start);
+        }
+        return node == null ? null : node.leftHalf.key;
     }
 
-    @Override
-    public Map<String, String> left() {
-        return new AbstractMap<>() {
-            @Override
-            public Set<Entry<String, String>> entrySet() {
-                return new AbstractSet<>() {
-                    @Override
-                    public Iterator<Entry<String, String>> iterator() {
-                        return new Iterator<>() {
-                            private Node node = rootParent;
-                            private boolean removeValid = false;
-
-                            @Override
-                            public boolean hasNext() {
-                                if (node.leftHalf.right != null) {
-                                    return true;
-                                } else {
-                                    Node that = node;
-                                    while (that.leftHalf.parent != null && that == that.leftHalf.parent.leftHalf.right) {
-                                        that = that.leftHalf.parent;
-                                    }
-                                    return that.leftHalf.parent != null;
-                                }
-                            }
+    /**
+     * Removes pairs with left keys from the collection.
+     *
+     * @return whether any pair was removed
+     */
+    public boolean leftRemoveAll(final Collection<?> keys) {
+        return removeAll(leftSide, keys, false);
+    }
 
-                            @Override
-                            public Entry<String, String> next() {
-                                if (!hasNext()) {
-                                    throw new NoSuchElementException();
-                                }
-                                node = node.leftNext();
-                                removeValid = true;
-                                return new TreeBimap.Entry(node.leftHalf.key, node.rightHalf.key);
-                            }
+    public boolean rightRemoveAll(final Collection<?> keys) {
+        return removeAll(rightSide, keys, false);
+    }
 
-                            @Override
-                            public void remove() {
-                                if (!removeValid) {
-                                    throw new IllegalStateException();
-                                }
-                                final Node prev = node.leftPrev();
-                                TreeBimap.this.remove(node);
-                                removeValid = false;
-                                node = prev;
-                            }
-                        };
-                    }
+    /**
+     * Removes pairs with left keys not in the collection.
+     *
+     * @return whether any pair was removed
+     */
+    public boolean leftRetainAll(final Collection<?> keys) {
+        return removeAll(leftSide, keys, true);
+    }
 
-                    @Override
-                    public boolean contains(final Object o) {
-                        @SuppressWarnings("unchecked") final Entry<String, String> entry = (Entry<String, String>) o;
-                        final Node node = TreeBimap.this.leftFind(entry.getKey());
-                        return node != null && rightCmp.compare(node.rightHalf.key, entry.getValue()) == 0;
-                    }
+    public boolean rightRetainAll(final Collection<?> keys) {
+        return removeAll(rightSide, keys, true);
+    }
 
-                    @Override
-                    public int size() {
-                        return TreeBimap.this.size();
-                    }
+    /**
+     * Removes pairs for which the filter, called with left and right keys in the order of left keys, returns true.
+     * The filter should not modify this bimap.
+     *
+     * @return whether any pair was removed
+     */
+    public boolean removeIf(final BiPredicate<? super String, ? super String> filter) {
+        Objects.requireNonNull(filter);
+        return removeNodes(leftSide, node -> filter.test(node.leftHalf.key, node.rightHalf.key));
+    }
 
-                    @Override
-                    public void clear() {
-                        TreeBimap.this.clear();
+    /**
+     * Removes pairs with keys of the side which are (or are not, if retaining) in the collection,
+     * comparing keys by the comparator of the side.
+     */
+    private boolean removeAll(final Side side, final Collection<?> keys, final boolean retain) {
+        if (!retain && (long) keys.size() * BUILD_FRACTION < size) {
+            final int oldSize = size;
+            for (final Object key : keys) {
+                final Node node = side.find((String) key);
+                if (node != null) {
+                    remove(node);
+                }
+            }
+            return size != oldSize;
+        }
+        final Predicate<Node> contained;
+        if ((long) keys.size() * BUILD_FRACTION < size) {
+            final Set<Node> nodes = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (final Object key : keys) {
+                nodes.add(side.find((String) key));
+            }
+            contained = nodes::contains;
+        } else {
+            // Sorted keys are merged with the walk over the tree rather than looked up one by one
+            final String[] sorted = keys.toArray(new String[0]);
+            Arrays.sort(sorted, side.cmp());
+            contained = new Predicate<>() {
+                private int next = 0;
+
+                @Override
+                public boolean test(final Node node) {
+                    int res = -1;
+                    while (next < sorted.length && (res = side.cmp().compare(sorted[next], side.key(node))) < 0) {
+                        next++;
                     }
+                    return res == 0;
+                }
+            };
+        }
+        return removeNodes(side, retain ? contained.negate() : contained);
+    }
 
-                    @Override
-                    public boolean remove(final Object o) {
-                        @SuppressWarnings("unchecked") final Entry<String, String> entry = (Entry<String, String>) o;
-                        final Node node = TreeBimap.this.leftFind(entry.getKey());
-                        if (node != null && rightCmp.compare(node.rightHalf.key, entry.getValue()) == 0) {
-                            TreeBimap.this.remove(node);
-                            return true;
-                        } else {
-                            return false;
-                        }
-                    }
-                };
+    /**
+     * Walks the side in order and removes nodes accepted by the filter, one by one if there are few of them,
+     * or rebuilding both trees from the rest in linear time.
+     */
+    private boolean removeNodes(final Side side, final Predicate<Node> filter) {
+        final Node[] kept = new Node[size];
+        final List<Node> removed = new ArrayList<>();
+        int count = 0;
+        for (Node node = side.first(); node != null; node = side.next(node)) {
+            if (filter.test(node)) {
+                removed.add(node);
+            } else {
+                kept[count++] = node;
             }
-
-            @Override
-            public boolean containsKey(final Object key) {
-                return TreeBimap.this.leftFind((String) key) != null;
+        }
+        if (removed.isEmpty()) {
+            return false;
+        }
+        if ((long) removed.size() * BUILD_FRACTION < size) {
+            for (final Node node : removed) {
+                remove(node);
             }
+            return true;
+        }
 
-            @Override
-            public String get(final Object key) {
-                final Node node = TreeBimap.this.leftFind((String) key);
-                return node == null ? null : node.rightHalf.key;
+        // Heights are recalculated by linking, so meanwhile zero height marks a removed node
+        final boolean publishing = publishing();
+        for (final Node node : removed) {
+            node.leftHalf.height = 0;
+            if (publishing) {
+                publish(BimapEvent.Type.REMOVE, node);
             }
-
-            @Override
-            public String remove(final Object key) {
-                return TreeBimap.this.leftRemove((String) key);
+        }
+        final Side other = side.opposite();
+        final Node[] otherKept = new Node[count];
+        int otherCount = 0;
+        for (Node node = other.first(); node != null; node = other.next(node)) {
+            if (node.leftHalf.height != 0) {
+                otherKept[otherCount++] = node;
             }
-        };
+        }
+        assert otherCount == count;
+
+        final Node[] byLeft = side == leftSide ? kept : otherKept;
+        final Node[] byRight = side == leftSide ? otherKept : kept;
+        rootParent.leftHalf.right = leftLink(byLeft, 0, count, rootParent);
+        rootParent.rightHalf.right = rightLink(byRight, 0, count, rootParent);
+        size = count;
+        return true;
     }
 
-    @Override
-    public Map<String, String> right() {
-        return new AbstractMap<>() {
-            @Override
-            public Set<Entry<String, String>> entrySet() {
-                return new AbstractSet<>() {
-                    @Override
-                    public Iterator<Entry<String, String>> iterator() {
-                        return new Iterator<>() {
-                            private Node node = rootParent;
-                            private boolean removeValid = false;
-
-                            @Override
-                            public boolean hasNext() {
-                                if (node.rightHalf.right != null) {
-                                    return true;
-                                } else {
-                                    Node that = node;
-                                    while (that.rightHalf.parent != null && that == that.rightHalf.parent.rightHalf.right) {
-                                        that = that.rightHalf.parent;
-                                    }
-                                    return that.rightHalf.parent != null;
-                                }
-                            }
+    /**
+     * Removes pairs with left keys from the given one inclusive to the other one exclusive.
+     * The interval is cut from the left tree by splits and joins in O(log n), and its pairs are removed
+     * from the right tree in O(log n) each, unless that tree is rebuilt.
+     *
+     * @return number of removed pairs
+     * @throws IllegalArgumentException if the first key is greater than the second one
+     */
+    public int leftRemoveRange(final String fromInclusive, final String toExclusive) {
+        return removeRange(leftSide, fromInclusive, toExclusive);
+    }
+
+    /**
+     * Removes pairs with right keys from the given one inclusive to the other one exclusive,
+     * like {@link #leftRemoveRange}.
+     *
+     * @return number of removed pairs
+     * @throws IllegalArgumentException if the first key is greater than the second one
+     */
+    public int rightRemoveRange(final String fromInclusive, final String toExclusive) {
+        return removeRange(rightSide, fromInclusive, toExclusive);
+    }
+
+    private int removeRange(final Side side, final String fromInclusive, final String toExclusive) {
+        final int res = side.cmp().compare(fromInclusive, toExclusive);
+        if (res > 0) {
+            throw new IllegalArgumentException("fromKey > toKey");
+        }
+        if (res == 0) {
+            return 0;
+        }
+        final Split low = side.split(side.root(), fromInclusive, side.abbreviate(fromInclusive));
+        final Split high = side.split(low.right(), toExclusive, side.abbreviate(toExclusive));
+        final List<Node> removed = new ArrayList<>();
+        if (low.found() != null) {
+            removed.add(low.found());
+        }
+        side.collect(high.left(), removed);
+        final Node rest = high.found() == null ? high.right() : side.join(null, high.found(), high.right());
+        side.setRoot(side.join2(low.left(), rest));
+        if (removed.isEmpty()) {
+            return 0;
+        }
+        if (publishing()) {
+            for (final Node node : removed) {
+                publish(BimapEvent.Type.REMOVE, node);
+            }
+        }
+
+        final Side other = side.opposite();
+        final int count = size - removed.size();
+        if ((long) removed.size() * BUILD_FRACTION < size) {
+            for (final Node node : removed) {
+                if (other == leftSide) {
+                    leftUnlink(node);
+                } else {
+                    rightUnlink(node);
+                }
+            }
+        } else {
+            // Removed nodes are detached from the tree of the side, so zero height of that half marks them
+            for (final Node node : removed) {
+                side.half(node).height = 0;
+            }
+            final Node[] kept = new Node[count];
+            int keptCount = 0;
+            for (Node node = other.first(); node != null; node = other.next(node)) {
+                if (side.half(node).height != 0) {
+                    kept[keptCount++] = node;
+                }
+            }
+            assert keptCount == count;
+            other.setRoot(other == leftSide ? leftLink(kept, 0, count, null) : rightLink(kept, 0, count, null));
+        }
+        size = count;
+        return removed.size();
+    }
+
+    /**
+     * Bulk operations rebuild trees instead of putting or removing one by one if they affect
+     * at least this fraction of this bimap, like {@link #putAll} of another bimap.
+     */
+    private static final int BUILD_FRACTION = 8;
+
+    @Override
+    public void putAll(final Bimap other) {
+        if (other == this) {
+            return;
+        }
+        // Putting one by one tells evicted pairs to subscribers
+        if ((long) other.size() * BUILD_FRACTION < size || publishing()) {
+            other.left().forEach(this::put);
+            return;
+        }
+
+        final Node[] byLeft = new Node[size + other.size()];
+        final Node[] byRight = new Node[byLeft.length];
+        Node leftNode = rootParent;
+        Node rightNode = rootParent;
+        for (int i = 0; i < size; i++) {
+            leftNode = leftNode.leftNext();
+            rightNode = rightNode.rightNext();
+            byLeft[i] = leftNode;
+            byRight[i] = rightNode;
+        }
+        int count = size;
+        for (final Map.Entry<String, String> entry : other.left().entrySet()) {
+            byLeft[count] = byRight[count] = newNode(entry.getKey(), entry.getValue());
+            count++;
+        }
+        build(Arrays.copyOf(byLeft, count), Arrays.copyOf(byRight, count));
+    }
+
+    /**
+     * Creates bimap with natural ordering from entries sorted by left key in linear time.
+     * Entries with equal left or right keys are resolved as if they were {@link #put} one by one.
+     *
+     * @throws IllegalArgumentException if entries are not sorted by left key
+     */
+    public static TreeBimap fromSorted(final Iterator<? extends Map.Entry<String, String>> entries) {
+        return fromSorted(entries, new NaturalOrderingComparator<>(), new NaturalOrderingComparator<>());
+    }
+
+    /**
+     * Creates bimap with given comparators from entries sorted by left key in linear time.
+     * Entries with equal left or right keys are resolved as if they were {@link #put} one by one.
+     *
+     * @throws IllegalArgumentException if entries are not sorted by left key
+     */
+    public static TreeBimap fromSorted(
+            final Iterator<? extends Map.Entry<String, String>> entries,
+            final Comparator<? super String> leftCmp,
+            final Comparator<? super String> rightCmp
+    ) {
+        final TreeBimap result = new TreeBimap(leftCmp, rightCmp);
+        final List<Node> nodes = new ArrayList<>();
+        while (entries.hasNext()) {
+            final Map.Entry<String, String> entry = entries.next();
+            if (!nodes.isEmpty() && leftCmp.compare(nodes.get(nodes.size() - 1).leftHalf.key, entry.getKey()) > 0) {
+                throw new IllegalArgumentException("Entries are not sorted by left key at " + entry.getKey());
+            }
+            nodes.add(result.newNode(entry.getKey(), entry.getValue()));
+        }
+        final Node[] byLeft = nodes.toArray(Node[]::new);
+        result.build(byLeft, byLeft.clone());
+        return result;
+    }
+
+    /**
+     * Writes this bimap to a file, which can be opened by {@link MappedBimap#open} with the same comparators.
+     * Keys may not be {@code null}.
+     */
+    public void writeTo(final Path path) throws IOException {
+        MappedBimap.write(this, path, MappedBimap.DEFAULT_CHUNK_SHIFT);
+    }
+
+    /**
+     * {@link #union} merges subtrees of at least this size in parallel.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 13;
+
+    /**
+     * Puts all pairs of the other bimap, which should have the same ordering, evicting pairs with equal left
+     * or right keys like {@link #putAll}. Merging the trees by joins takes O(m log(n/m + 1)) comparisons
+     * for m pairs put into n ones, plus O(log n) for each evicted pair.
+     */
+    public void union(final TreeBimap other) {
+        union(other, null);
+    }
+
+    /**
+     * Same as {@link #union(TreeBimap)}, merging both trees and large subtrees in parallel in the pool.
+     * Comparators should be thread-safe.
+     */
+    public void union(final TreeBimap other, final ForkJoinPool pool) {
+        if (other == this || other.isEmpty()) {
+            return;
+        }
+        // Copies of the pairs make perfectly balanced trees, which are merged into these ones
+        final Node[] byLeft = new Node[other.size];
+        int count = 0;
+        for (Node node = other.leftSide.first(); node != null; node = other.leftSide.next(node)) {
+            byLeft[count++] = newNode(node.leftHalf.key, node.rightHalf.key);
+        }
+        final Node[] byRight = byLeft.clone();
+        // Linear if the other bimap has the same left ordering
+        Arrays.sort(byLeft, (a, b) -> leftCompare(a.leftHalf.key, a.leftHalf.abbrev, b));
+        Arrays.sort(byRight, (a, b) -> rightCompare(a.rightHalf.key, a.rightHalf.abbrev, b));
+        final Node leftOther = leftLink(byLeft, 0, count, null);
+        final Node rightOther = rightLink(byRight, 0, count, null);
+
+        final List<Node> leftDropped = pool == null ? new ArrayList<>() : Collections.synchronizedList(new ArrayList<>());
+        final List<Node> rightDropped = pool == null ? new ArrayList<>() : Collections.synchronizedList(new ArrayList<>());
+        final Runnable leftUnion = () -> leftSide.setRoot(leftSide.union(leftSide.root(), leftOther, leftDropped, pool != null));
+        final Runnable rightUnion = () -> rightSide.setRoot(rightSide.union(rightSide.root(), rightOther, rightDropped, pool != null));
+        if (pool == null) {
+            leftUnion.run();
+            rightUnion.run();
+        } else {
+            pool.invoke(ForkJoinTask.adapt(() -> ForkJoinTask.invokeAll(ForkJoinTask.adapt(leftUnion), ForkJoinTask.adapt(rightUnion))));
+        }
+
+        // An evicted pair has been dropped from one of the trees or both, and is unlinked from the other one
+        final boolean publishing = publishing();
+        final Set<Node> onlyRightDropped = Collections.newSetFromMap(new IdentityHashMap<>());
+        onlyRightDropped.addAll(rightDropped);
+        int evicted = onlyRightDropped.size();
+        for (final Node node : leftDropped) {
+            if (!onlyRightDropped.remove(node)) {
+                rightUnlink(node);
+                evicted++;
+            }
+            if (publishing) {
+                publish(BimapEvent.Type.EVICT, node);
+            }
+        }
+        for (final Node node : onlyRightDropped) {
+            leftUnlink(node);
+            if (publishing) {
+                publish(BimapEvent.Type.EVICT, node);
+            }
+        }
+        size += count - evicted;
+        if (publishing) {
+            for (final Node node : byLeft) {
+                publish(BimapEvent.Type.PUT, node);
+            }
+        }
+    }
+
+    /**
+     * Retains only pairs which are in the other bimap too, which should have the same ordering,
+     * in O(m log(n/m + 1)) comparisons for m pairs of the other bimap, plus sorting the result by right key.
+     */
+    public void intersection(final TreeBimap other) {
+        if (other == this) {
+            return;
+        }
+        final List<Node> kept = new ArrayList<>();
+        leftSide.setRoot(leftSide.intersection(leftSide.root(), other.leftSide.root(), kept));
+        if (publishing()) {
+            // The right tree still has all pairs
+            final Set<Node> keptSet = Collections.newSetFromMap(new IdentityHashMap<>());
+            keptSet.addAll(kept);
+            for (Node node = rightSide.first(); node != null; node = rightSide.next(node)) {
+                if (!keptSet.contains(node)) {
+                    publish(BimapEvent.Type.REMOVE, node);
+                }
+            }
+        }
+        final Node[] byRight = kept.toArray(Node[]::new);
+        Arrays.sort(byRight, (a, b) -> rightCompare(a.rightHalf.key, a.rightHalf.abbrev, b));
+        rightSide.setRoot(rightLink(byRight, 0, byRight.length, null));
+        size = byRight.length;
+    }
+
+    /**
+     * Removes pairs which are in the other bimap, which should have the same ordering,
+     * in O(m log(n/m + 1)) comparisons for m pairs of the other bimap, plus O(log n) for each removed pair.
+     */
+    public void difference(final TreeBimap other) {
+        if (other == this) {
+            clear();
+            return;
+        }
+        final List<Node> dropped = new ArrayList<>();
+        leftSide.setRoot(leftSide.difference(leftSide.root(), other.leftSide.root(), dropped));
+        final boolean publishing = publishing();
+        for (final Node node : dropped) {
+            rightUnlink(node);
+            if (publishing) {
+                publish(BimapEvent.Type.REMOVE, node);
+            }
+        }
+        size -= dropped.size();
+    }
+
+    /**
+     * Moves pairs with left keys greater than or equal to the given one into a new bimap with the same comparators.
+     * The left tree is split in O(log n), while pairs of the smaller part are unlinked from the right tree
+     * in O(log n) each, and make a new right tree.
+     *
+     * @return bimap with the moved pairs
+     */
+    public TreeBimap splitAtLeft(final String key) {
+        final Split split = leftSide.split(leftSide.root(), key, leftAbbreviate(key));
+        final Node high = split.found() == null ? split.right() : leftSide.join(null, split.found(), split.right());
+        final TreeBimap result = new TreeBimap(leftCmp, rightCmp, leftBalancing, rightBalancing);
+        leftSide.setRoot(split.left());
+        result.leftSide.setRoot(high);
+        result.size = leftSide.size(high);
+        size -= result.size;
+        if (publishing()) {
+            for (Node node = result.leftSide.first(); node != null; node = result.leftSide.next(node)) {
+                publish(BimapEvent.Type.REMOVE, node);
+            }
+        }
+
+        final TreeBimap smaller = result.size <= size ? result : this;
+        final Node[] nodes = new Node[smaller.size];
+        int count = 0;
+        for (Node node = smaller.leftSide.first(); node != null; node = smaller.leftSide.next(node)) {
+            nodes[count++] = node;
+        }
+        for (final Node node : nodes) {
+            rightUnlink(node);
+        }
+        Arrays.sort(nodes, (a, b) -> rightCompare(a.rightHalf.key, a.rightHalf.abbrev, b));
+        if (smaller != result) {
+            result.rightSide.setRoot(rightSide.root());
+        }
+        smaller.rightSide.setRoot(rightLink(nodes, 0, count, null));
+        return result;
+    }
+
+    /**
+     * Replaces both trees with perfectly balanced ones built from the given nodes.
+     * Both arrays contain the same nodes in put order, except that already sorted prefixes are allowed.
+     * A node is dropped if a later one has equal left or right key, just like {@link #put} would do.
+     */
+    private void build(final Node[] byLeft, final Node[] byRight) {
+        // Stable sorts keep put order among equal keys, and are linear for already sorted input
+        Arrays.sort(byLeft, (a, b) -> leftCompare(a.leftHalf.key, a.leftHalf.abbrev, b));
+        Arrays.sort(byRight, (a, b) -> rightCompare(a.rightHalf.key, a.rightHalf.abbrev, b));
+
+        // Heights are recalculated by linking, so meanwhile zero height marks a node evicted by a later one
+        for (final Node node : byLeft) {
+            node.leftHalf.height = node.rightHalf.height = 1;
+        }
+        for (int i = 0; i + 1 < byLeft.length; i++) {
+            if (leftCompare(byLeft[i].leftHalf.key, byLeft[i].leftHalf.abbrev, byLeft[i + 1]) == 0) {
+                byLeft[i].leftHalf.height = 0;
+            }
+        }
+        for (int i = 0; i + 1 < byRight.length; i++) {
+            if (rightCompare(byRight[i].rightHalf.key, byRight[i].rightHalf.abbrev, byRight[i + 1]) == 0) {
+                byRight[i].rightHalf.height = 0;
+            }
+        }
+
+        int leftCount = 0;
+        for (final Node node : byLeft) {
+            if (node.leftHalf.height != 0 && node.rightHalf.height != 0) {
+                byLeft[leftCount++] = node;
+            }
+        }
+        int rightCount = 0;
+        for (final Node node : byRight) {
+            if (node.leftHalf.height != 0 && node.rightHalf.height != 0) {
+                byRight[rightCount++] = node;
+            }
+        }
+        assert leftCount == rightCount;
+
+        rootParent.leftHalf.right = leftLink(byLeft, 0, leftCount, rootParent);
+        rootParent.rightHalf.right = rightLink(byRight, 0, rightCount, rootParent);
+        size = leftCount;
+    }
+
+    private Node leftLink(final Node[] nodes, final int from, final int to, final Node parent) {
+        if (from == to) {
+            return null;
+        }
+        final int mid = (from + to) >>> 1;
+        final Node node = nodes[mid];
+        node.leftHalf.parent = parent;
+        node.leftHalf.left = leftLink(nodes, from, mid, node);
+        node.leftHalf.right = leftLink(nodes, mid + 1, to, node);
+        node.leftFixHeight();
+        if (leftBalancing == Balancing.RED_BLACK) {
+            node.leftHalf.height = redBlackRank(node.leftHalf.size);
+        }
+        return node;
+    }
+
+    private Node rightLink(final Node[] nodes, final int from, final int to, final Node parent) {
+        if (from == to) {
+            return null;
+        }
+        final int mid = (from + to) >>> 1;
+        final Node node = nodes[mid];
+        node.rightHalf.parent = parent;
+        node.rightHalf.left = rightLink(nodes, from, mid, node);
+        node.rightHalf.right = rightLink(nodes, mid + 1, to, node);
+        node.rightFixHeight();
+        if (rightBalancing == Balancing.RED_BLACK) {
+            node.rightHalf.height = redBlackRank(node.rightHalf.size);
+        }
+        return node;
+    }
+
+    /**
+     * Returns rank of a subtree of the given size in a perfectly balanced red-black tree,
+     * where only nodes at the lowest level of an incomplete tree are zero-children.
+     */
+    private static int redBlackRank(final int size) {
+        return 31 - Integer.numberOfLeadingZeros(size + 1);
+    }
+
+    /**
+     * Result of {@link Side#split}: trees with lesser and greater keys, and the node with equal key or {@code null}.
+     */
+    private record Split(Node left, Node found, Node right) {
+        static final Split EMPTY = new Split(null, null, null);
+    }
+
+    private record Entry(String key, String value) implements Map.Entry<String, String> {
+        @Override
+        public String getKey() {
+            return key();
+        }
+
+        @Override
+        public String getValue() {
+            return value();
+        }
+
+        @Override
+        public String setValue(final String value) {
+            throw new UnsupportedOperationException("Bimap.Entry setValue");
+        }
+
+        // As specified by Map.Entry, so that entries are equal to those of other maps
+        @Override
+        public boolean equals(final Object o) {
+            return o instanceof Map.Entry<?, ?> entry && Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+    }
+
+    /**
+     * Accessors for one of the trees, so that code which does not care about the side is written once.
+     */
+    private abstract class Side {
+        abstract Half half(Node node);
+
+        abstract Balancing balancing();
+
+        abstract Comparator<? super String> cmp();
+
+        abstract long abbreviate(String key);
+
+        abstract Side opposite();
+
+        abstract Node find(String key);
+
+        /**
+         * Same as {@link Map#put}.
+         */
+        abstract String put(String key, String value);
+
+        /**
+         * Same as {@link Map#remove}.
+         */
+        abstract String remove(String key);
+
+        final String key(final Node node) {
+            return half(node).key;
+        }
+
+        /**
+         * Compares key with the key of the node, calling the comparator only if abbreviations are equal.
+         */
+        final int compare(final String key, final long abbrev, final Node node) {
+            final Half half = half(node);
+            if (abbrev != half.abbrev) {
+                return Long.compareUnsigned(abbrev, half.abbrev);
+            }
+            if (BimapMetrics.ENABLED) {
+                metrics.comparison();
+            }
+            return cmp().compare(key, half.key);
+        }
+
+        final String value(final Node node) {
+            return opposite().half(node).key;
+        }
+
+        final Map.Entry<String, String> entry(final Node node) {
+            return node == null ? null : new TreeBimap.Entry(key(node), value(node));
+        }
+
+        final Node root() {
+            return half(rootParent).right;
+        }
+
+        final Node first() {
+            Node node = root();
+            if (node != null) {
+                while (half(node).left != null) {
+                    node = half(node).left;
+                }
+            }
+            return node;
+        }
+
+        final Node last() {
+            Node node = root();
+            if (node != null) {
+                while (half(node).right != null) {
+                    node = half(node).right;
+                }
+            }
+            return node;
+        }
+
+        /**
+         * Returns the next node, or {@code null} if this one is the last.
+         */
+        final Node next(Node node) {
+            if (half(node).right != null) {
+                node = half(node).right;
+                while (half(node).left != null) {
+                    node = half(node).left;
+                }
+                return node;
+            }
+            Node parent = half(node).parent;
+            while (parent != rootParent && node == half(parent).right) {
+                node = parent;
+                parent = half(parent).parent;
+            }
+            return parent == rootParent ? null : parent;
+        }
+
+        /**
+         * Returns the previous node, or {@code null} if this one is the first.
+         */
+        final Node prev(Node node) {
+            if (half(node).left != null) {
+                node = half(node).left;
+                while (half(node).right != null) {
+                    node = half(node).right;
+                }
+                return node;
+            }
+            Node parent = half(node).parent;
+            while (parent != rootParent && node == half(parent).left) {
+                node = parent;
+                parent = half(parent).parent;
+            }
+            return parent == rootParent ? null : parent;
+        }
+
+        final int size(final Node node) {
+            return node == null ? 0 : half(node).size;
+        }
+
+        final void forEach(final BiConsumer<? super String, ? super String> action) {
+            Objects.requireNonNull(action);
+            for (Node node = first(); node != null; node = next(node)) {
+                action.accept(key(node), value(node));
+            }
+        }
+
+        /**
+         * Returns the number of keys less than (or equal to, if inclusive) the given one.
+         */
+        final int rank(final String key, final boolean inclusive) {
+            final long abbrev = abbreviate(key);
+            Node node = root();
+            int result = 0;
+            while (node != null) {
+                final int res = compare(key, abbrev, node);
+                if (res < 0 || res == 0 && !inclusive) {
+                    node = half(node).left;
+                } else {
+                    result += size(half(node).left) + 1;
+                    if (res == 0) {
+                        break;
+                    }
+                    node = half(node).right;
+                }
+            }
+            return result;
+        }
+
+        final Node select(int index) {
+            Objects.checkIndex(index, size);
+            Node node = root();
+            while (true) {
+                final int leftSize = size(half(node).left);
+                if (index < leftSize) {
+                    node = half(node).left;
+                } else if (index == leftSize) {
+                    return node;
+                } else {
+                    index -= leftSize + 1;
+                    node = half(node).right;
+                }
+            }
+        }
+
+        final int countInRange(final String from, final String to) {
+            if (cmp().compare(from, to) > 0) {
+                throw new IllegalArgumentException("from > to");
+            }
+            return rank(to, false) - rank(from, false);
+        }
+
+        /**
+         * Returns the first node with key greater than (or equal to, if inclusive) the given one.
+         */
+        final Node ceiling(final String key, final boolean inclusive) {
+            final long abbrev = abbreviate(key);
+            Node node = root();
+            Node result = null;
+            while (node != null) {
+                final int res = compare(key, abbrev, node);
+                if (res < 0) {
+                    result = node;
+                    node = half(node).left;
+                } else if (res == 0 && inclusive) {
+                    return node;
+                } else {
+                    node = half(node).right;
+                }
+            }
+            return result;
+        }
+
+        /**
+         * Returns the last node with key less than (or equal to, if inclusive) the given one.
+         */
+        final Node floor(final String key, final boolean inclusive) {
+            final long abbrev = abbreviate(key);
+            Node node = root();
+            Node result = null;
+            while (node != null) {
+                final int res = compare(key, abbrev, node);
+                if (res > 0) {
+                    result = node;
+                    node = half(node).right;
+                } else if (res == 0 && inclusive) {
+                    return node;
+                } else {
+                    node = half(node).left;
+                }
+            }
+            return result;
+        }
+
+        // Join-based primitives, which work on detached subtrees and leave the parent of the returned root unset
+
+        final void collect(final Node node, final List<Node> nodes) {
+            if (node != null) {
+                collect(half(node).left, nodes);
+                nodes.add(node);
+                collect(half(node).right, nodes);
+            }
+        }
+
+        final void setRoot(final Node root) {
+            half(rootParent).right = root;
+            if (root != null) {
+                half(root).parent = rootParent;
+            }
+        }
+
+        final int height(final Node node) {
+            return node == null ? 0 : half(node).height;
+        }
+
+        /**
+         * Returns height of the subtree, which only stored heights of AVL and weight-balanced trees give.
+         */
+        final int treeHeight(final Node node) {
+            if (node == null || !balancing().isRanked()) {
+                return height(node);
+            }
+            return Math.max(treeHeight(half(node).left), treeHeight(half(node).right)) + 1;
+        }
+
+        private void setChildren(final Node node, final Node left, final Node right) {
+            final Half half = half(node);
+            half.left = left;
+            half.right = right;
+            if (left != null) {
+                half(left).parent = node;
+            }
+            if (right != null) {
+                half(right).parent = node;
+            }
+            if (!balancing().isRanked()) {
+                half.height = Math.max(height(left), height(right)) + 1;
+            }
+            half.size = size(left) + size(right) + 1;
+        }
+
+        private Node rotateLeft(final Node node) {
+            final Node right = half(node).right;
+            setChildren(node, half(node).left, half(right).left);
+            setChildren(right, node, half(right).right);
+            return right;
+        }
+
+        private Node rotateRight(final Node node) {
+            final Node left = half(node).left;
+            setChildren(node, half(left).right, half(node).right);
+            setChildren(left, half(left).left, node);
+            return left;
+        }
+
+        /**
+         * Joins trees with keys less and greater than the key of the node, in time proportional to their height difference,
+         * keeping the balance of this bimap.
+         */
+        final Node join(final Node left, final Node node, final Node right) {
+            if (balancing().isRanked()) {
+                return joinRanked(left, node, right);
+            }
+            if (balancing() == Balancing.WEIGHT) {
+                if (WEIGHT_DELTA * weight(left) < weight(right)) {
+                    return joinLeftWeight(left, node, right);
+                }
+                if (WEIGHT_DELTA * weight(right) < weight(left)) {
+                    return joinRightWeight(left, node, right);
+                }
+                setChildren(node, left, right);
+                return node;
+            }
+            if (height(left) > height(right) + 1) {
+                return joinRight(left, node, right);
+            }
+            if (height(right) > height(left) + 1) {
+                return joinLeft(left, node, right);
+            }
+            setChildren(node, left, right);
+            return node;
+        }
+
+        /**
+         * Joins along the right spine of the higher left tree.
+         */
+        private Node joinRight(final Node left, final Node node, final Node right) {
+            final Node l = half(left).left;
+            final Node c = half(left).right;
+            if (height(c) <= height(right) + 1) {
+                setChildren(node, c, right);
+                if (height(node) <= height(l) + 1) {
+                    setChildren(left, l, node);
+                    return left;
+                }
+                setChildren(left, l, rotateRight(node));
+                return rotateLeft(left);
+            }
+            final Node joined = joinRight(c, node, right);
+            setChildren(left, l, joined);
+            return height(joined) <= height(l) + 1 ? left : rotateLeft(left);
+        }
+
+        private Node joinLeft(final Node left, final Node node, final Node right) {
+            final Node c = half(right).left;
+            final Node r = half(right).right;
+            if (height(c) <= height(left) + 1) {
+                setChildren(node, left, c);
+                if (height(node) <= height(r) + 1) {
+                    setChildren(right, node, r);
+                    return right;
+                }
+                setChildren(right, rotateLeft(node), r);
+                return rotateRight(right);
+            }
+            final Node joined = joinLeft(left, node, c);
+            setChildren(right, joined, r);
+            return height(joined) <= height(r) + 1 ? right : rotateRight(right);
+        }
+
+        private int weight(final Node node) {
+            return size(node) + 1;
+        }
+
+        /**
+         * Joins along the right spine of the heavier left tree, after Blelloch, Ferizovic and Sun.
+         */
+        private Node joinRightWeight(final Node left, final Node node, final Node right) {
+            if (weightBalanced(weight(left), weight(right))) {
+                setChildren(node, left, right);
+                return node;
+            }
+            final Node l = half(left).left;
+            final Node joined = joinRightWeight(half(left).right, node, right);
+            setChildren(left, l, joined);
+            if (weightBalanced(weight(l), weight(joined))) {
+                return left;
+            }
+            final Node inner = half(joined).left;
+            if (weightBalanced(weight(l), weight(inner)) && weightBalanced(weight(l) + weight(inner), weight(half(joined).right))) {
+                return rotateLeft(left);
+            }
+            setChildren(left, l, rotateRight(joined));
+            return rotateLeft(left);
+        }
+
+        private Node joinLeftWeight(final Node left, final Node node, final Node right) {
+            if (weightBalanced(weight(left), weight(right))) {
+                setChildren(node, left, right);
+                return node;
+            }
+            final Node r = half(right).right;
+            final Node joined = joinLeftWeight(left, node, half(right).left);
+            setChildren(right, joined, r);
+            if (weightBalanced(weight(joined), weight(r))) {
+                return right;
+            }
+            final Node inner = half(joined).right;
+            if (weightBalanced(weight(r), weight(inner)) && weightBalanced(weight(r) + weight(inner), weight(half(joined).left))) {
+                return rotateRight(right);
+            }
+            setChildren(right, rotateLeft(joined), r);
+            return rotateRight(right);
+        }
+
+        // Rank-balanced trees, whose rebalancing only relies on parent links and fixes sizes up to the root first
+
+        /**
+         * Fixes subtree sizes from the node up to the root.
+         */
+        final void fixSizes(Node node) {
+            while (half(node).parent != null) {
+                final Half half = half(node);
+                half.size = size(half.left) + size(half.right) + 1;
+                node = half.parent;
+            }
+        }
+
+        /**
+         * Rotates the node above its parent, fixing sizes but not ranks.
+         */
+        private void rotateUp(final Node node) {
+            final Half half = half(node);
+            final Node parent = half.parent;
+            final Half parentHalf = half(parent);
+            final Half grandparentHalf = half(parentHalf.parent);
+            if (grandparentHalf.left == parent) {
+                grandparentHalf.left = node;
+            } else {
+                grandparentHalf.right = node;
+            }
+            half.parent = parentHalf.parent;
+            if (parentHalf.left == node) {
+                parentHalf.left = half.right;
+                if (half.right != null) {
+                    half(half.right).parent = parent;
+                }
+                half.right = parent;
+            } else {
+                parentHalf.right = half.left;
+                if (half.left != null) {
+                    half(half.left).parent = parent;
+                }
+                half.left = parent;
+            }
+            parentHalf.parent = node;
+            half.size = parentHalf.size;
+            parentHalf.size = size(parentHalf.left) + size(parentHalf.right) + 1;
+        }
+
+        /**
+         * Restores ranks after the node has been attached with a rank one more than that of its children.
+         */
+        final void rebalanceInserted(final Node node) {
+            if (balancing() == Balancing.RED_BLACK) {
+                redBlackInserted(node);
+            } else {
+                wavlInserted(node);
+            }
+        }
+
+        /**
+         * Restores ranks after a node has been unlinked from under the parent, and the child took its place.
+         */
+        final void rebalanceRemoved(final Node parent, final Node child) {
+            if (balancing() == Balancing.RED_BLACK) {
+                redBlackRemoved(parent, child);
+            } else {
+                wavlRemoved(parent, child);
+            }
+        }
+
+        private void redBlackInserted(Node node) {
+            while (true) {
+                final Node parent = half(node).parent;
+                final Node grandparent = half(parent).parent;
+                // Only a zero-child of a zero-child violates the balance, and the root is no zero-child
+                if (grandparent == null || half(grandparent).parent == null
+                        || height(node) != height(parent) || height(parent) != height(grandparent)) {
+                    return;
+                }
+                final boolean isLeft = half(parent).left == node;
+                final boolean isParentLeft = half(grandparent).left == parent;
+                final Node uncle = isParentLeft ? half(grandparent).right : half(grandparent).left;
+                if (height(uncle) == height(grandparent)) {
+                    half(grandparent).height++;
+                    node = grandparent;
+                } else if (isLeft == isParentLeft) {
+                    rotateUp(parent);
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(false);
+                    }
+                    return;
+                } else {
+                    rotateUp(node);
+                    rotateUp(node);
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(true);
+                    }
+                    return;
+                }
+            }
+        }
+
+        private void wavlInserted(Node node) {
+            while (true) {
+                final Node parent = half(node).parent;
+                final Half parentHalf = half(parent);
+                if (parentHalf.parent == null || height(node) != parentHalf.height) {
+                    return;
+                }
+                final int rank = parentHalf.height;
+                final boolean isLeft = parentHalf.left == node;
+                if (rank - height(isLeft ? parentHalf.right : parentHalf.left) == 1) {
+                    parentHalf.height++;
+                    node = parent;
+                    continue;
+                }
+                // The sibling is a two-child
+                final Node inner = isLeft ? half(node).right : half(node).left;
+                final Node outer = isLeft ? half(node).left : half(node).right;
+                if (rank - height(inner) == 2) {
+                    rotateUp(node);
+                    parentHalf.height--;
+                } else if (rank - height(outer) == 2) {
+                    rotateUp(inner);
+                    rotateUp(inner);
+                    half(inner).height = rank;
+                    half(node).height = rank - 1;
+                    parentHalf.height = rank - 1;
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(true);
+                    }
+                    return;
+                } else {
+                    // Both children of the node are one-children, which only happens in joins, so it rises further
+                    rotateUp(node);
+                    half(node).height++;
+                }
+                if (BimapMetrics.ENABLED) {
+                    metrics.rotation(false);
+                }
+                if (half(node).height == rank) {
+                    return;
+                }
+            }
+        }
+
+        private void redBlackRemoved(Node parent, Node node) {
+            // The node has lost a rank if it is a two-child
+            while (half(parent).parent != null && half(parent).height - height(node) == 2) {
+                final Half parentHalf = half(parent);
+                final boolean isLeft = parentHalf.left == node;
+                Node sibling = isLeft ? parentHalf.right : parentHalf.left;
+                if (height(sibling) == parentHalf.height) {
+                    // The sibling rises, and the parent becomes its zero-child with a one-child sibling
+                    rotateUp(sibling);
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(false);
+                    }
+                    sibling = isLeft ? parentHalf.right : parentHalf.left;
+                }
+                final Half siblingHalf = half(sibling);
+                final Node inner = isLeft ? siblingHalf.left : siblingHalf.right;
+                final Node outer = isLeft ? siblingHalf.right : siblingHalf.left;
+                if (height(outer) == siblingHalf.height) {
+                    rotateUp(sibling);
+                    siblingHalf.height = parentHalf.height--;
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(false);
+                    }
+                    return;
+                }
+                if (height(inner) == siblingHalf.height) {
+                    rotateUp(inner);
+                    rotateUp(inner);
+                    half(inner).height = parentHalf.height--;
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(true);
+                    }
+                    return;
+                }
+                final Node grandparent = parentHalf.parent;
+                final boolean isZeroChild = half(grandparent).parent != null && half(grandparent).height == parentHalf.height;
+                parentHalf.height--;
+                if (isZeroChild) {
+                    return;
+                }
+                node = parent;
+                parent = grandparent;
+            }
+        }
+
+        private void wavlRemoved(Node parent, Node node) {
+            final Half removedFrom = half(parent);
+            if (removedFrom.parent != null && removedFrom.left == null && removedFrom.right == null && removedFrom.height == 2) {
+                // Leaves have rank one
+                removedFrom.height = 1;
+                node = parent;
+                parent = removedFrom.parent;
+            }
+            while (half(parent).parent != null && half(parent).height - height(node) == 3) {
+                final Half parentHalf = half(parent);
+                final int rank = parentHalf.height;
+                final boolean isLeft = parentHalf.left == node;
+                final Node sibling = isLeft ? parentHalf.right : parentHalf.left;
+                if (rank - height(sibling) == 2) {
+                    parentHalf.height--;
+                    node = parent;
+                    parent = parentHalf.parent;
+                    continue;
+                }
+                final Half siblingHalf = half(sibling);
+                final Node inner = isLeft ? siblingHalf.left : siblingHalf.right;
+                final Node outer = isLeft ? siblingHalf.right : siblingHalf.left;
+                if (rank - height(inner) == 3 && rank - height(outer) == 3) {
+                    parentHalf.height--;
+                    siblingHalf.height--;
+                    node = parent;
+                    parent = parentHalf.parent;
+                    continue;
+                }
+                if (rank - height(outer) == 2) {
+                    rotateUp(sibling);
+                    siblingHalf.height++;
+                    parentHalf.height = parentHalf.left == null && parentHalf.right == null ? 1 : rank - 1;
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(false);
+                    }
+                } else {
+                    rotateUp(inner);
+                    rotateUp(inner);
+                    half(inner).height = rank;
+                    siblingHalf.height = rank - 2;
+                    parentHalf.height = rank - 2;
+                    if (BimapMetrics.ENABLED) {
+                        metrics.rotation(true);
+                    }
+                }
+                return;
+            }
+        }
+
+        /**
+         * Joins rank-balanced trees: the node takes place of the subtree of the same rank as the lower tree
+         * on the spine of the higher one, gets the lower tree and that subtree as children, and is rebalanced
+         * as if it were inserted.
+         */
+        private Node joinRanked(final Node left, final Node node, final Node right) {
+            final int leftRank = height(left);
+            final int rightRank = height(right);
+            if (leftRank == rightRank || balancing() == Balancing.WAVL && Math.abs(leftRank - rightRank) == 1) {
+                setChildren(node, left, right);
+                half(node).height = Math.max(leftRank, rightRank) + 1;
+                return node;
+            }
+            final boolean isLeftHigher = leftRank > rightRank;
+            final Node higher = isLeftHigher ? left : right;
+            final Node lower = isLeftHigher ? right : left;
+            final int rank = height(lower);
+            // Stops fixing sizes and rebalancing above the root, like rootParent does
+            final Node sentinel = new Node(null, null, null, null);
+            half(sentinel).right = higher;
+            half(higher).parent = sentinel;
+            Node parent = higher;
+            Node child = isLeftHigher ? half(higher).right : half(higher).left;
+            while (height(child) > rank) {
+                parent = child;
+                child = isLeftHigher ? half(child).right : half(child).left;
+            }
+            if (isLeftHigher) {
+                setChildren(node, child, lower);
+                half(parent).right = node;
+            } else {
+                setChildren(node, lower, child);
+                half(parent).left = node;
+            }
+            half(node).parent = parent;
+            half(node).height = rank + 1;
+            fixSizes(parent);
+            rebalanceInserted(node);
+            return half(sentinel).right;
+        }
+
+        /**
+         * Joins trees with keys less and greater than each other.
+         */
+        final Node join2(final Node left, final Node right) {
+            if (left == null) {
+                return right;
+            }
+            Node last = left;
+            while (half(last).right != null) {
+                last = half(last).right;
+            }
+            return join(withoutLast(left), last, right);
+        }
+
+        private Node withoutLast(final Node node) {
+            final Half half = half(node);
+            if (half.right == null) {
+                return half.left;
+            }
+            final Node left = half.left;
+            return join(left, node, withoutLast(half.right));
+        }
+
+        /**
+         * Splits tree into trees with keys less and greater than the given one, and the node with equal key if any.
+         */
+        final Split split(final Node node, final String key, final long abbrev) {
+            if (node == null) {
+                return Split.EMPTY;
+            }
+            final Node left = half(node).left;
+            final Node right = half(node).right;
+            final int res = compare(key, abbrev, node);
+            if (res == 0) {
+                return new Split(left, node, right);
+            } else if (res < 0) {
+                final Split split = split(left, key, abbrev);
+                return new Split(split.left, split.found, join(split.right, node, right));
+            } else {
+                final Split split = split(right, key, abbrev);
+                return new Split(join(left, node, split.left), split.found, split.right);
+            }
+        }
+
+        /**
+         * Merges the second tree into the first one, dropping nodes of the first tree with keys equal to those
+         * of the second one. The first tree is split by the root of the second one, so the second should be the smaller.
+         * Halves are merged in parallel if asked to, and if large enough.
+         */
+        final Node union(final Node node, final Node other, final Collection<Node> dropped, final boolean parallel) {
+            if (node == null) {
+                return other;
+            }
+            if (other == null) {
+                return node;
+            }
+            final boolean fork = parallel && size(node) + size(other) >= PARALLEL_THRESHOLD;
+            final Half otherHalf = half(other);
+            final Node otherLeft = otherHalf.left;
+            final Node otherRight = otherHalf.right;
+            final Split split = split(node, otherHalf.key, otherHalf.abbrev);
+            final Node left;
+            final Node right;
+            if (fork) {
+                final ForkJoinTask<Node> task = ForkJoinTask.adapt(() -> union(split.left, otherLeft, dropped, true)).fork();
+                right = union(split.right, otherRight, dropped, true);
+                left = task.join();
+            } else {
+                left = union(split.left, otherLeft, dropped, false);
+                right = union(split.right, otherRight, dropped, false);
+            }
+            if (split.found != null) {
+                dropped.add(split.found);
+            }
+            return join(left, other, right);
+        }
+
+        /**
+         * Keeps nodes of the first tree whose pairs are in the second one, which is not modified and may be of another bimap.
+         */
+        final Node intersection(final Node node, final Node other, final List<Node> kept) {
+            if (node == null || other == null) {
+                return null;
+            }
+            final Half otherHalf = half(other);
+            final Split split = split(node, otherHalf.key, abbreviate(otherHalf.key));
+            final Node left = intersection(split.left, otherHalf.left, kept);
+            final Node right = intersection(split.right, otherHalf.right, kept);
+            if (split.found != null && opposite().cmp().compare(value(split.found), value(other)) == 0) {
+                kept.add(split.found);
+                return join(left, split.found, right);
+            }
+            return join2(left, right);
+        }
+
+        /**
+         * Drops nodes of the first tree whose pairs are in the second one, which is not modified and may be of another bimap.
+         */
+        final Node difference(final Node node, final Node other, final List<Node> dropped) {
+            if (node == null || other == null) {
+                return node;
+            }
+            final Half otherHalf = half(other);
+            final Split split = split(node, otherHalf.key, abbreviate(otherHalf.key));
+            final Node left = difference(split.left, otherHalf.left, dropped);
+            final Node right = difference(split.right, otherHalf.right, dropped);
+            if (split.found == null) {
+                return join2(left, right);
+            }
+            if (opposite().cmp().compare(value(split.found), value(other)) == 0) {
+                dropped.add(split.found);
+                return join2(left, right);
+            }
+            return join(left, split.found, right);
+        }
+    }
+
+    private final Side leftSide = new Side() {
+        @Override
+        Half half(final Node node) {
+            return node.leftHalf;
+        }
+
+        @Override
+        Balancing balancing() {
+            return leftBalancing;
+        }
+
+        @Override
+        Comparator<? super String> cmp() {
+            return leftCmp;
+        }
+
+        @Override
+        long abbreviate(final String key) {
+            return leftAbbreviate(key);
+        }
+
+        @Override
+        Side opposite() {
+            return rightSide;
+        }
+
+        @Override
+        Node find(final String key) {
+            final long start = BimapMetrics.ENABLED ? System.nanoTime() : 0;
+            final Node node = leftFind(key);
+            if (BimapMetrics.ENABLED) {
+                metrics.lookup(start);
+            }
+            return node;
+        }
+
+        @Override
+        String put(final String key, final String value) {
+            return forcePut(key, value);
+        }
+
+        @Override
+        String remove(final String key) {
+            return leftRemove(key);
+        }
+    };
+
+    private final Side rightSide = new Side() {
+        @Override
+        Half half(final Node node) {
+            return node.rightHalf;
+        }
+
+        @Override
+        Balancing balancing() {
+            return rightBalancing;
+        }
+
+        @Override
+        Comparator<? super String> cmp() {
+            return rightCmp;
+        }
+
+        @Override
+        long abbreviate(final String key) {
+            return rightAbbreviate(key);
+        }
+
+        @Override
+        Side opposite() {
+            return leftSide;
+        }
+
+        @Override
+        Node find(final String key) {
+            final long start = BimapMetrics.ENABLED ? System.nanoTime() : 0;
+            final Node node = rightFind(key);
+            if (BimapMetrics.ENABLED) {
+                metrics.lookup(start);
+            }
+            return node;
+        }
+
+        @Override
+        String put(final String key, final String value) {
+            final Node node = rightFind(key);
+            final String previous = node == null ? null : node.leftHalf.key;
+            TreeBimap.this.put(value, key);
+            return previous;
+        }
+
+        @Override
+        String remove(final String key) {
+            return rightRemove(key);
+        }
+    };
+
+    /**
+     * Live view of one of the trees, possibly restricted to a range of keys and reversed.
+     * Bounds are kept in ascending order of the tree regardless of the direction of the view.
+     */
+    private final class View extends AbstractMap<String, String> implements NavigableMap<String, String> {
+        private final Side side;
+        private final boolean descending;
+        private final boolean fromStart;
+        private final String lo;
+        private final boolean loInclusive;
+        private final boolean toEnd;
+        private final String hi;
+        private final boolean hiInclusive;
+        private Set<Map.Entry<String, String>> entrySet;
+        private NavigableSet<String> keySet;
+
+        private View(final Side side) {
+            this(side, false, true, null, true, true, null, true);
+        }
+
+        private View(
+                final Side side, final boolean descending,
+                final boolean fromStart, final String lo, final boolean loInclusive,
+                final boolean toEnd, final String hi, final boolean hiInclusive
+        ) {
+            if (!fromStart && !toEnd && side.cmp().compare(lo, hi) > 0) {
+                throw new IllegalArgumentException("fromKey > toKey");
+            }
+            this.side = side;
+            this.descending = descending;
+            this.fromStart = fromStart;
+            this.lo = lo;
+            this.loInclusive = loInclusive;
+            this.toEnd = toEnd;
+            this.hi = hi;
+            this.hiInclusive = hiInclusive;
+        }
+
+        private boolean isFull() {
+            return fromStart && toEnd;
+        }
+
+        private boolean tooLow(final String key) {
+            if (fromStart) {
+                return false;
+            }
+            final int res = side.cmp().compare(key, lo);
+            return res < 0 || res == 0 && !loInclusive;
+        }
+
+        private boolean tooHigh(final String key) {
+            if (toEnd) {
+                return false;
+            }
+            final int res = side.cmp().compare(key, hi);
+            return res > 0 || res == 0 && !hiInclusive;
+        }
+
+        private boolean inRange(final String key) {
+            return !tooLow(key) && !tooHigh(key);
+        }
+
+        /**
+         * Whether the key may be a bound of a nested view with the given inclusiveness.
+         */
+        private boolean inRange(final String key, final boolean inclusive) {
+            return inclusive
+                    ? inRange(key)
+                    : (fromStart || side.cmp().compare(key, lo) >= 0) && (toEnd || side.cmp().compare(key, hi) <= 0);
+        }
+
+        private Node bounded(final Node node) {
+            return node == null || tooLow(side.key(node)) || tooHigh(side.key(node)) ? null : node;
+        }
+
+        private Node absLowest() {
+            return bounded(fromStart ? side.first() : side.ceiling(lo, loInclusive));
+        }
+
+        private Node absHighest() {
+            return bounded(toEnd ? side.last() : side.floor(hi, hiInclusive));
+        }
+
+        private Node absCeiling(final String key, final boolean inclusive) {
+            return tooLow(key) ? absLowest() : bounded(side.ceiling(key, inclusive));
+        }
+
+        private Node absFloor(final String key, final boolean inclusive) {
+            return tooHigh(key) ? absHighest() : bounded(side.floor(key, inclusive));
+        }
+
+        // Navigation in the order of the view
+
+        private Node firstNode() {
+            return descending ? absHighest() : absLowest();
+        }
+
+        private Node lastNode() {
+            return descending ? absLowest() : absHighest();
+        }
+
+        private Node ceilingNode(final String key, final boolean inclusive) {
+            return descending ? absFloor(key, inclusive) : absCeiling(key, inclusive);
+        }
+
+        private Node floorNode(final String key, final boolean inclusive) {
+            return descending ? absCeiling(key, inclusive) : absFloor(key, inclusive);
+        }
+
+        private Node nextNode(final Node node) {
+            return bounded(descending ? side.prev(node) : side.next(node));
+        }
+
+        private static String key(final Map.Entry<String, String> entry) {
+            if (entry == null) {
+                throw new NoSuchElementException();
+            }
+            return entry.getKey();
+        }
+
+        private static String keyOrNull(final Map.Entry<String, String> entry) {
+            return entry == null ? null : entry.getKey();
+        }
+
+        private Map.Entry<String, String> poll(final Node node) {
+            if (node == null) {
+                return null;
+            }
+            final Map.Entry<String, String> result = side.entry(node);
+            TreeBimap.this.remove(node);
+            return result;
+        }
+
+        /**
+         * Index of the first node of the range in ascending order.
+         */
+        private int fromIndex() {
+            return fromStart ? 0 : side.rank(lo, !loInclusive);
+        }
+
+        /**
+         * Index after the last node of the range in ascending order.
+         */
+        private int toIndex() {
+            return toEnd ? TreeBimap.this.size() : side.rank(hi, hiInclusive);
+        }
+
+        @Override
+        public int size() {
+            return Math.max(0, toIndex() - fromIndex());
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return isFull() ? TreeBimap.this.isEmpty() : firstNode() == null;
+        }
+
+        @Override
+        public boolean containsKey(final Object key) {
+            return inRange((String) key) && side.find((String) key) != null;
+        }
+
+        @Override
+        public boolean containsValue(final Object value) {
+            final Node node = side.opposite().find((String) value);
+            return node != null && inRange(side.key(node));
+        }
+
+        @Override
+        public String get(final Object key) {
+            final Node node = inRange((String) key) ? side.find((String) key) : null;
+            return node == null ? null : side.value(node);
+        }
+
+        @Override
+        public String put(final String key, final String value) {
+            if (!inRange(key)) {
+                throw new IllegalArgumentException("key out of range");
+            }
+            return side.put(key, value);
+        }
+
+        @Override
+        public String remove(final Object key) {
+            return inRange((String) key) ? side.remove((String) key) : null;
+        }
+
+        @Override
+        public void clear() {
+            if (isFull()) {
+                TreeBimap.this.clear();
+            } else {
+                for (Node node = firstNode(); node != null; ) {
+                    final Node next = nextNode(node);
+                    TreeBimap.this.remove(node);
+                    node = next;
+                }
+            }
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            final Comparator<? super String> cmp = side.cmp() instanceof NaturalOrderingComparator ? null : side.cmp();
+            return descending ? Collections.reverseOrder(cmp) : cmp;
+        }
+
+        @Override
+        public Map.Entry<String, String> firstEntry() {
+            return side.entry(firstNode());
+        }
+
+        @Override
+        public Map.Entry<String, String> lastEntry() {
+            return side.entry(lastNode());
+        }
+
+        @Override
+        public Map.Entry<String, String> pollFirstEntry() {
+            return poll(firstNode());
+        }
+
+        @Override
+        public Map.Entry<String, String> pollLastEntry() {
+            return poll(lastNode());
+        }
+
+        @Override
+        public Map.Entry<String, String> lowerEntry(final String key) {
+            return side.entry(floorNode(key, false));
+        }
+
+        @Override
+        public Map.Entry<String, String> floorEntry(final String key) {
+            return side.entry(floorNode(key, true));
+        }
+
+        @Override
+        public Map.Entry<String, String> ceilingEntry(final String key) {
+            return side.entry(ceilingNode(key, true));
+        }
+
+        @Override
+        public Map.Entry<String, String> higherEntry(final String key) {
+            return side.entry(ceilingNode(key, false));
+        }
+
+        @Override
+        public String firstKey() {
+            return key(firstEntry());
+        }
+
+        @Override
+        public String lastKey() {
+            return key(lastEntry());
+        }
+
+        @Override
+        public String lowerKey(final String key) {
+            return keyOrNull(lowerEntry(key));
+        }
+
+        @Override
+        public String floorKey(final String key) {
+            return keyOrNull(floorEntry(key));
+        }
 
-                            @Override
-                            public Entry<String, String> next() {
-                                if (!hasNext()) {
-                                    throw new NoSuchElementException();
-                                }
-                                node = node.rightNext();
-                                removeValid = true;
-                                return new TreeBimap.Entry(node.rightHalf.key, node.leftHalf.key);
-                            }
+        @Override
+        public String ceilingKey(final String key) {
+            return keyOrNull(ceilingEntry(key));
+        }
 
-                            @Override
-                            public void remove() {
-                                if (!removeValid) {
-                                    throw new IllegalStateException();
-                                }
-                                final Node prev = node.rightPrev();
-                                TreeBimap.this.remove(node);
-                                removeValid = false;
-                                node = prev;
-                            }
-                        };
-                    }
+        @Override
+        public String higherKey(final String key) {
+            return keyOrNull(higherEntry(key));
+        }
 
-                    @Override
-                    public boolean contains(final Object o) {
-                        @SuppressWarnings("unchecked") final Entry<String, String> entry = (Entry<String, String>) o;
-                        final Node node = TreeBimap.this.rightFind(entry.getValue());
-                        return node != null && leftCmp.compare(node.leftHalf.key, entry.getKey()) == 0;
-                    }
+        @Override
+        public NavigableMap<String, String> descendingMap() {
+            return new View(side, !descending, fromStart, lo, loInclusive, toEnd, hi, hiInclusive);
+        }
+
+        @Override
+        public NavigableMap<String, String> subMap(
+                final String fromKey, final boolean fromInclusive,
+                final String toKey, final boolean toInclusive
+        ) {
+            if (!inRange(fromKey, fromInclusive)) {
+                throw new IllegalArgumentException("fromKey out of range");
+            }
+            if (!inRange(toKey, toInclusive)) {
+                throw new IllegalArgumentException("toKey out of range");
+            }
+            return descending
+                    ? new View(side, true, false, toKey, toInclusive, false, fromKey, fromInclusive)
+                    : new View(side, false, false, fromKey, fromInclusive, false, toKey, toInclusive);
+        }
+
+        @Override
+        public NavigableMap<String, String> headMap(final String toKey, final boolean inclusive) {
+            if (!inRange(toKey, inclusive)) {
+                throw new IllegalArgumentException("toKey out of range");
+            }
+            return descending
+                    ? new View(side, true, false, toKey, inclusive, toEnd, hi, hiInclusive)
+                    : new View(side, false, fromStart, lo, loInclusive, false, toKey, inclusive);
+        }
+
+        @Override
+        public NavigableMap<String, String> tailMap(final String fromKey, final boolean inclusive) {
+            if (!inRange(fromKey, inclusive)) {
+                throw new IllegalArgumentException("fromKey out of range");
+            }
+            return descending
+                    ? new View(side, true, fromStart, lo, loInclusive, false, fromKey, inclusive)
+                    : new View(side, false, false, fromKey, inclusive, toEnd, hi, hiInclusive);
+        }
+
+        @Override
+        public SortedMap<String, String> subMap(final String fromKey, final String toKey) {
+            return subMap(fromKey, true, toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, String> headMap(final String toKey) {
+            return headMap(toKey, false);
+        }
+
+        @Override
+        public SortedMap<String, String> tailMap(final String fromKey) {
+            return tailMap(fromKey, true);
+        }
+
+        @Override
+        public NavigableSet<String> navigableKeySet() {
+            if (keySet == null) {
+                keySet = new KeySet(this);
+            }
+            return keySet;
+        }
+
+        @Override
+        public NavigableSet<String> keySet() {
+            return navigableKeySet();
+        }
+
+        @Override
+        public NavigableSet<String> descendingKeySet() {
+            return descendingMap().navigableKeySet();
+        }
+
+        @Override
+        public Set<Map.Entry<String, String>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new EntrySet();
+            }
+            return entrySet;
+        }
+
+        private <T> Spliterator<T> spliterator(
+                final Function<Node, ? extends T> element,
+                final Comparator<? super T> comparator,
+                final int characteristics
+        ) {
+            final int from = fromIndex();
+            return new NodeSpliterator<>(element, comparator, characteristics, from, Math.max(from, toIndex()), null);
+        }
+
+        private Comparator<? super String> absoluteComparator() {
+            return descending ? Collections.reverseOrder(side.cmp()) : side.cmp();
+        }
+
+        private Spliterator<String> keySpliterator() {
+            return spliterator(side::key, comparator(), Spliterator.DISTINCT);
+        }
+
+        /**
+         * Spliterator over a range of node indices, which splits it in halves using {@link Side#select}.
+         * Like iterators of the views, it is not fail-fast.
+         */
+        private final class NodeSpliterator<T> implements Spliterator<T> {
+            private final Function<Node, ? extends T> element;
+            private final Comparator<? super T> comparator;
+            private final int characteristics;
+            private int from;
+            private int to;
+            private Node next; // node at the current position if already found
+
+            private NodeSpliterator(
+                    final Function<Node, ? extends T> element,
+                    final Comparator<? super T> comparator,
+                    final int characteristics,
+                    final int from,
+                    final int to,
+                    final Node next
+            ) {
+                this.element = element;
+                this.comparator = comparator;
+                this.characteristics = characteristics | ORDERED | SORTED | SIZED | SUBSIZED;
+                this.from = from;
+                this.to = to;
+                this.next = next;
+            }
+
+            @Override
+            public boolean tryAdvance(final Consumer<? super T> action) {
+                if (from >= to) {
+                    return false;
+                }
+                final Node node;
+                if (descending) {
+                    node = next == null ? side.select(to - 1) : next;
+                    to--;
+                    next = from < to ? side.prev(node) : null;
+                } else {
+                    node = next == null ? side.select(from) : next;
+                    from++;
+                    next = from < to ? side.next(node) : null;
+                }
+                action.accept(element.apply(node));
+                return true;
+            }
+
+            @Override
+            public void forEachRemaining(final Consumer<? super T> action) {
+                while (tryAdvance(action)) {
+                    // continue
+                }
+            }
+
+            @Override
+            public Spliterator<T> trySplit() {
+                if (to - from < 2) {
+                    return null;
+                }
+                final int mid = (from + to) >>> 1;
+                final Spliterator<T> prefix;
+                if (descending) {
+                    prefix = new NodeSpliterator<>(element, comparator, characteristics, mid, to, next);
+                    to = mid;
+                } else {
+                    prefix = new NodeSpliterator<>(element, comparator, characteristics, from, mid, next);
+                    from = mid;
+                }
+                next = null;
+                return prefix;
+            }
+
+            @Override
+            public long estimateSize() {
+                return to - from;
+            }
+
+            @Override
+            public int characteristics() {
+                return characteristics;
+            }
+
+            @Override
+            public Comparator<? super T> getComparator() {
+                return comparator;
+            }
+        }
+
+        /**
+         * Walks nodes directly, without entries of {@link #entrySet}.
+         */
+        @Override
+        public void forEach(final BiConsumer<? super String, ? super String> action) {
+            Objects.requireNonNull(action);
+            for (Node node = firstNode(); node != null; node = nextNode(node)) {
+                action.accept(side.key(node), side.value(node));
+            }
+        }
+
+        private final class EntrySet extends AbstractSet<Map.Entry<String, String>> {
+            @Override
+            public Iterator<Map.Entry<String, String>> iterator() {
+                return new Iterator<>() {
+                    private Node next = firstNode();
+                    private Node lastReturned = null;
 
                     @Override
-                    public int size() {
-                        return TreeBimap.this.size();
+                    public boolean hasNext() {
+                        return next != null;
                     }
 
                     @Override
-                    public void clear() {
-                        TreeBimap.this.clear();
+                    public Map.Entry<String, String> next() {
+                        if (next == null) {
+                            throw new NoSuchElementException();
+                        }
+                        lastReturned = next;
+                        next = nextNode(next);
+                        return side.entry(lastReturned);
                     }
 
                     @Override
-                    public boolean remove(final Object o) {
-                        @SuppressWarnings("unchecked") final Entry<String, String> entry = (Entry<String, String>) o;
-                        final Node node = TreeBimap.this.rightFind(entry.getValue());
-                        if (node != null && leftCmp.compare(node.leftHalf.key, entry.getKey()) == 0) {
-                            TreeBimap.this.remove(node);
-                            return true;
-                        } else {
-                            return false;
+                    public void remove() {
+                        if (lastReturned == null) {
+                            throw new IllegalStateException();
                         }
+                        TreeBimap.this.remove(lastReturned);
+                        lastReturned = null;
                     }
                 };
             }
 
+            private Node find(final Object o) {
+                if (!(o instanceof Map.Entry<?, ?> entry) || !inRange((String) entry.getKey())) {
+                    return null;
+                }
+                final Node node = side.find((String) entry.getKey());
+                return node != null && side.opposite().cmp().compare(side.value(node), (String) entry.getValue()) == 0 ? node : null;
+            }
+
+            @Override
+            public boolean contains(final Object o) {
+                return find(o) != null;
+            }
+
+            @Override
+            public boolean remove(final Object o) {
+                final Node node = find(o);
+                if (node != null) {
+                    TreeBimap.this.remove(node);
+                    return true;
+                } else {
+                    return false;
+                }
+            }
+
+            @Override
+            public int size() {
+                return View.this.size();
+            }
+
             @Override
-            public boolean containsKey(final Object key) {
-                return TreeBimap.this.rightFind((String) key) != null;
+            public boolean isEmpty() {
+                return View.this.isEmpty();
             }
 
             @Override
-            public String get(final Object key) {
-                final Node node = TreeBimap.this.rightFind((String) key);
-                return node == null ? null : node.leftHalf.key;
+            public Spliterator<Map.Entry<String, String>> spliterator() {
+                return View.this.spliterator(
+                        side::entry,
+                        Map.Entry.comparingByKey(absoluteComparator()),
+                        Spliterator.DISTINCT | Spliterator.NONNULL
+                );
             }
 
             @Override
-            public String remove(final Object key) {
-                return TreeBimap.this.rightRemove((String) key);
+            public void clear() {
+                View.this.clear();
+            }
+        }
+    }
+
+    /**
+     * Navigable set of keys of a navigable map.
+     */
+    private static final class KeySet extends AbstractSet<String> implements NavigableSet<String> {
+        private final NavigableMap<String, String> map;
+
+        private KeySet(final NavigableMap<String, String> map) {
+            this.map = map;
+        }
+
+        private static String keyOrNull(final Map.Entry<String, String> entry) {
+            return entry == null ? null : entry.getKey();
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            final Iterator<Map.Entry<String, String>> entries = map.entrySet().iterator();
+            return new Iterator<>() {
+                @Override
+                public boolean hasNext() {
+                    return entries.hasNext();
+                }
+
+                @Override
+                public String next() {
+                    return entries.next().getKey();
+                }
+
+                @Override
+                public void remove() {
+                    entries.remove();
+                }
+            };
+        }
+
+        @Override
+        public Iterator<String> descendingIterator() {
+            return descendingSet().iterator();
+        }
+
+        @Override
+        public Spliterator<String> spliterator() {
+            return map instanceof View view ? view.keySpliterator() : super.spliterator();
+        }
+
+        @Override
+        public int size() {
+            return map.size();
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return map.isEmpty();
+        }
+
+        @Override
+        public boolean contains(final Object o) {
+            return map.containsKey(o);
+        }
+
+        @Override
+        public boolean remove(final Object o) {
+            if (map.containsKey(o)) {
+                map.remove(o);
+                return true;
+            } else {
+                return false;
+            }
+        }
+
+        @Override
+        public void clear() {
+            map.clear();
+        }
+
+        @Override
+        public Comparator<? super String> comparator() {
+            return map.comparator();
+        }
+
+        @Override
+        public String lower(final String key) {
+            return map.lowerKey(key);
+        }
+
+        @Override
+        public String floor(final String key) {
+            return map.floorKey(key);
+        }
+
+        @Override
+        public String ceiling(final String key) {
+            return map.ceilingKey(key);
+        }
+
+        @Override
+        public String higher(final String key) {
+            return map.higherKey(key);
+        }
+
+        @Override
+        public String first() {
+            return map.firstKey();
+        }
+
+        @Override
+        public String last() {
+            return map.lastKey();
+        }
+
+        @Override
+        public String pollFirst() {
+            return keyOrNull(map.pollFirstEntry());
+        }
+
+        @Override
+        public String pollLast() {
+            return keyOrNull(map.pollLastEntry());
+        }
+
+        @Override
+        public NavigableSet<String> descendingSet() {
+            return new KeySet(map.descendingMap());
+        }
+
+        @Override
+        public NavigableSet<String> subSet(
+                final String fromElement, final boolean fromInclusive,
+                final String toElement, final boolean toInclusive
+        ) {
+            return new KeySet(map.subMap(fromElement, fromInclusive, toElement, toInclusive));
+        }
+
+        @Override
+        public NavigableSet<String> headSet(final String toElement, final boolean inclusive) {
+            return new KeySet(map.headMap(toElement, inclusive));
+        }
+
+        @Override
+        public NavigableSet<String> tailSet(final String fromElement, final boolean inclusive) {
+            return new KeySet(map.tailMap(fromElement, inclusive));
+        }
+
+        @Override
+        public SortedSet<String> subSet(final String fromElement, final String toElement) {
+            return subSet(fromElement, true, toElement, false);
+        }
+
+        @Override
+        public SortedSet<String> headSet(final String toElement) {
+            return headSet(toElement, false);
+        }
+
+        @Override
+        public SortedSet<String> tailSet(final String fromElement) {
+            return tailSet(fromElement, true);
+        }
+    }
+
+    /**
+     * Returns the number of left keys less than the given one in O(log n).
+     */
+    public int leftRank(final String left) {
+        return leftSide.rank(left, false);
+    }
+
+    /**
+     * Returns the number of right keys less than the given one in O(log n).
+     */
+    public int rightRank(final String right) {
+        return rightSide.rank(right, false);
+    }
+
+    /**
+     * Returns (left, right) pair with the given index in the order of left keys in O(log n).
+     *
+     * @throws IndexOutOfBoundsException if index is not in {@code [0, size())}
+     */
+    public Map.Entry<String, String> leftSelect(final int index) {
+        return leftSide.entry(leftSide.select(index));
+    }
+
+    /**
+     * Returns (right, left) pair with the given index in the order of right keys in O(log n).
+     *
+     * @throws IndexOutOfBoundsException if index is not in {@code [0, size())}
+     */
+    public Map.Entry<String, String> rightSelect(final int index) {
+        return rightSide.entry(rightSide.select(index));
+    }
+
+    /**
+     * Returns the number of left keys in {@code [from, to)} in O(log n).
+     */
+    public int leftCountInRange(final String from, final String to) {
+        return leftSide.countInRange(from, to);
+    }
+
+    /**
+     * Returns the number of right keys in {@code [from, to)} in O(log n).
+     */
+    public int rightCountInRange(final String from, final String to) {
+        return rightSide.countInRange(from, to);
+    }
+
+    private final View leftView = new View(leftSide);
+    private final View rightView = new View(rightSide);
+
+    private final class Cursor implements BimapCursor {
+        private final Side side;
+        private Node node = null;
+
+        private Cursor(final Side side) {
+            this.side = side;
+        }
+
+        private Node current() {
+            if (node == null) {
+                throw new NoSuchElementException();
             }
-        };
+            return node;
+        }
+
+        @Override
+        public boolean first() {
+            node = side.first();
+            return node != null;
+        }
+
+        @Override
+        public boolean last() {
+            node = side.last();
+            return node != null;
+        }
+
+        @Override
+        public boolean seek(final String key) {
+            node = side.ceiling(key, true);
+            return node != null;
+        }
+
+        @Override
+        public boolean next() {
+            node = side.next(current());
+            return node != null;
+        }
+
+        @Override
+        public boolean prev() {
+            node = side.prev(current());
+            return node != null;
+        }
+
+        @Override
+        public boolean isValid() {
+            return node != null;
+        }
+
+        @Override
+        public String key() {
+            return side.key(current());
+        }
+
+        @Override
+        public String value() {
+            return side.value(current());
+        }
+    }
+
+    /**
+     * Calls the action for left and right keys of each pair in the order of left keys, without allocating.
+     */
+    public void forEachLeft(final BiConsumer<? super String, ? super String> action) {
+        leftSide.forEach(action);
+    }
+
+    /**
+     * Calls the action for right and left keys of each pair in the order of right keys, without allocating.
+     */
+    public void forEachRight(final BiConsumer<? super String, ? super String> action) {
+        rightSide.forEach(action);
+    }
+
+    /**
+     * Returns an invalid cursor over left keys.
+     */
+    public BimapCursor leftCursor() {
+        return new Cursor(leftSide);
+    }
+
+    /**
+     * Returns an invalid cursor over right keys.
+     */
+    public BimapCursor rightCursor() {
+        return new Cursor(rightSide);
+    }
+
+    /**
+     * Returns a view of pairs with left keys starting with the prefix, which seeks to the first such key
+     * and stops at the first other one. Its size is counted by ranks in O(log n).
+     *
+     * @throws UnsupportedOperationException if left keys are not in natural or reverse natural order,
+     *                                       where keys with a prefix are not contiguous
+     */
+    public NavigableMap<String, String> leftPrefixScan(final String prefix) {
+        return prefixScan(leftSide, prefix);
+    }
+
+    /**
+     * Returns a view of pairs with right keys starting with the prefix, like {@link #leftPrefixScan}.
+     *
+     * @throws UnsupportedOperationException if right keys are not in natural or reverse natural order
+     */
+    public NavigableMap<String, String> rightPrefixScan(final String prefix) {
+        return prefixScan(rightSide, prefix);
+    }
+
+    private NavigableMap<String, String> prefixScan(final Side side, final String prefix) {
+        final String successor = prefixSuccessor(prefix);
+        if (side.cmp() instanceof NaturalOrderingComparator || side.cmp() == Comparator.naturalOrder()) {
+            return new View(side, false, false, prefix, true, successor == null, successor, false);
+        }
+        if (side.cmp() == Comparator.reverseOrder()) {
+            return new View(side, false, successor == null, successor, false, false, prefix, true);
+        }
+        throw new UnsupportedOperationException("Prefix scan needs natural ordering");
+    }
+
+    /**
+     * Returns the least string greater than all strings with the prefix, or {@code null} if there is none.
+     */
+    private static String prefixSuccessor(final String prefix) {
+        int end = prefix.length();
+        while (end > 0 && prefix.charAt(end - 1) == Character.MAX_VALUE) {
+            end--;
+        }
+        return end == 0 ? null : prefix.substring(0, end - 1) + (char) (prefix.charAt(end - 1) + 1);
+    }
+
+    @Override
+    public NavigableMap<String, String> left() {
+        return leftView;
+    }
+
+    @Override
+    public NavigableMap<String, String> right() {
+        return rightView;
     }
 
     @Override
@@ -4,6 +4,7 @@ import org.junit.Assert;
 
 import java.util.Iterator;
 import java.util.Map;
+import java.util.function.Function;
 
 public class BimapChecker implements Bimap {
     private final Bimap expected;
@@ -109,6 +110,71 @@ public class BimapChecker implements Bimap {
         invariantChecker.run();
     }
 
+    @Override
+    public String forcePut(final String left, final String right) {
+        final String expectedAndActual = expectedAndActual();
+        final String result = expected.forcePut(left, right);
+        Assert.assertEquals(
+                "forcePut(" + left + ", " + right + ") of " + expectedAndActual + " are not equal",
+                result,
+                actual.forcePut(left, right));
+        assertEqualsOrdered(expectedAndActual + " are not equal after forcePut(" + left + ", " + right + ")");
+        invariantChecker.run();
+        return result;
+    }
+
+    @Override
+    public boolean putIfAbsent(final String left, final String right) {
+        final String expectedAndActual = expectedAndActual();
+        final boolean result = expected.putIfAbsent(left, right);
+        Assert.assertEquals(
+                "putIfAbsent(" + left + ", " + right + ") of " + expectedAndActual + " are not equal",
+                result,
+                actual.putIfAbsent(left, right));
+        assertEqualsOrdered(expectedAndActual + " are not equal after putIfAbsent(" + left + ", " + right + ")");
+        invariantChecker.run();
+        return result;
+    }
+
+    @Override
+    public String replaceRight(final String left, final String newRight) {
+        final String expectedAndActual = expectedAndActual();
+        final String result = expected.replaceRight(left, newRight);
+        Assert.assertEquals(
+                "replaceRight(" + left + ", " + newRight + ") of " + expectedAndActual + " are not equal",
+                result,
+                actual.replaceRight(left, newRight));
+        assertEqualsOrdered(expectedAndActual + " are not equal after replaceRight(" + left + ", " + newRight + ")");
+        invariantChecker.run();
+        return result;
+    }
+
+    @Override
+    public String replaceLeft(final String right, final String newLeft) {
+        final String expectedAndActual = expectedAndActual();
+        final String result = expected.replaceLeft(right, newLeft);
+        Assert.assertEquals(
+                "replaceLeft(" + right + ", " + newLeft + ") of " + expectedAndActual + " are not equal",
+                result,
+                actual.replaceLeft(right, newLeft));
+        assertEqualsOrdered(expectedAndActual + " are not equal after replaceLeft(" + right + ", " + newLeft + ")");
+        invariantChecker.run();
+        return result;
+    }
+
+    @Override
+    public String computeRightIfAbsent(final String left, final Function<? super String, ? extends String> mapping) {
+        final String expectedAndActual = expectedAndActual();
+        final String result = expected.computeRightIfAbsent(left, mapping);
+        Assert.assertEquals(
+                "computeRightIfAbsent(" + left + ") of " + expectedAndActual + " are not equal",
+                result,
+                actual.computeRightIfAbsent(left, mapping));
+        assertEqualsOrdered(expectedAndActual + " are not equal after computeRightIfAbsent(" + left + ")");
+        invariantChecker.run();
+        return result;
+    }
+
     @Override
     public void clear() {
         final String expectedAndActual = expectedAndActual();
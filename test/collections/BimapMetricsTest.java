@@ -0,0 +1,141 @@
+package collections;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.MethodSorters;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Path;
+import java.util.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BimapMetricsTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(4402836591264410513L);
+
+    @Before
+    public void enabled() {
+        Assume.assumeTrue("run with -Dcollections.metrics=true", BimapMetrics.ENABLED);
+    }
+
+    @Test
+    public void test01Histogram() {
+        final BimapMetrics.Histogram histogram = new BimapMetrics.Histogram();
+        Assert.assertEquals(0, histogram.percentile(0.5));
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        Assert.assertEquals(1000, histogram.count());
+        for (final double fraction : new double[]{0.01, 0.5, 0.9, 0.99, 1}) {
+            final long exact = (long) Math.ceil(fraction * 1000);
+            final long percentile = histogram.percentile(fraction);
+            Assert.assertTrue(fraction + ": " + percentile, percentile >= exact && percentile <= exact * 5 / 4);
+        }
+        Assert.assertEquals(1000, histogram.percentile(1));
+        Assert.assertEquals(500, (long) histogram.summary().get("mean"));
+        histogram.record(Long.MAX_VALUE);
+        Assert.assertEquals(Long.MAX_VALUE, histogram.percentile(1));
+    }
+
+    @Test
+    public void test02Counters() {
+        // Without abbreviations every visited node is compared
+        final TreeBimap bimap = new TreeBimap(Comparator.naturalOrder(), Comparator.naturalOrder());
+        final BimapMetrics metrics = bimap.metrics();
+        for (int i = 0; i < 1000; i++) {
+            // Ascending keys keep rotating
+            bimap.put(String.format("%04d", i), Integer.toString(random.nextInt()));
+        }
+        Assert.assertTrue(metrics.getRotations() > 900);
+        Assert.assertTrue(metrics.getComparisons() > 10000);
+        Assert.assertEquals(1000, (long) metrics.getPutLatencyNanos().get("count"));
+        Assert.assertEquals(2000, metrics.getSearches());
+
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(bimap.left().containsKey(String.format("%04d", i)));
+        }
+        for (int i = 0; i < 100; i++) {
+            Assert.assertNotNull(bimap.leftRemove(String.format("%04d", 2 * i)));
+        }
+        Assert.assertEquals(100, (long) metrics.getLookupLatencyNanos().get("count"));
+        Assert.assertEquals(100, (long) metrics.getRemoveLatencyNanos().get("count"));
+        Assert.assertTrue(metrics.getNodesVisited().get("max") <= metrics.getOptimalHeight() * 3 / 2);
+
+        metrics.reset();
+        Assert.assertEquals(0, metrics.getComparisons());
+        Assert.assertEquals(0, metrics.getSearches());
+        Assert.assertEquals(0, (long) metrics.getPutLatencyNanos().get("count"));
+    }
+
+    @Test
+    public void test03Shape() {
+        final TreeBimap bimap = new TreeBimap();
+        Assert.assertEquals(new BimapMetrics.Shape(0, 0, 0), bimap.metrics().leftShape());
+        for (int i = 0; i < 7; i++) {
+            bimap.put(Integer.toString(i), Integer.toString(6 - i));
+        }
+        // Seven ascending keys make a perfect tree
+        Assert.assertEquals(new BimapMetrics.Shape(3, 17 / 7.0, 0), bimap.metrics().leftShape());
+        Assert.assertEquals(new BimapMetrics.Shape(3, 17 / 7.0, 0), bimap.metrics().rightShape());
+        bimap.leftRemove("0");
+        Assert.assertEquals(new BimapMetrics.Shape(3, 14 / 6.0, 1), bimap.metrics().leftShape());
+
+        for (int i = 0; i < 10000; i++) {
+            bimap.put(Integer.toString(random.nextInt()), Integer.toString(random.nextInt()));
+        }
+        final BimapMetrics metrics = bimap.metrics();
+        Assert.assertEquals(metrics.getLeftHeight(), metrics.leftShape().height());
+        Assert.assertTrue(metrics.getLeftHeight() <= 1.45 * metrics.getOptimalHeight());
+        Assert.assertTrue(metrics.getRightHeight() <= 1.45 * metrics.getOptimalHeight());
+        Assert.assertTrue(metrics.rightShape().averageDepth() < metrics.getRightHeight());
+    }
+
+    @Test
+    public void test04Jmx() throws Exception {
+        final TreeBimap bimap = new TreeBimap();
+        bimap.put("a", "b");
+        final ObjectName name = bimap.metrics().register("test \"04\"");
+        try {
+            final var server = ManagementFactory.getPlatformMBeanServer();
+            Assert.assertEquals(1, server.getAttribute(name, "Size"));
+            Assert.assertEquals(1, server.getAttribute(name, "LeftHeight"));
+            Assert.assertNotNull(server.getAttribute(name, "PutLatencyNanos"));
+            bimap.metrics().setSlowThresholdNanos(42);
+            Assert.assertEquals(42L, server.getAttribute(name, "SlowThresholdNanos"));
+        } finally {
+            BimapMetrics.unregister(name);
+        }
+    }
+
+    @Test
+    public void test05SlowOperationEvents() throws Exception {
+        final TreeBimap bimap = new TreeBimap();
+        bimap.metrics().setSlowThresholdNanos(0);
+        final Path path = folder.newFile().toPath();
+        try (final Recording recording = new Recording()) {
+            recording.enable(BimapMetrics.SlowOperation.class);
+            recording.start();
+            bimap.put("a", "b");
+            bimap.right().containsKey("b");
+            bimap.rightRemove("b");
+            recording.stop();
+            recording.dump(path);
+        }
+        final List<String> operations = new ArrayList<>();
+        for (final RecordedEvent event : RecordingFile.readAllEvents(path)) {
+            operations.add(event.getString("operation"));
+        }
+        Assert.assertEquals(List.of("put", "lookup", "remove"), operations);
+    }
+}
@@ -0,0 +1,225 @@
+package collections;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class BoundedBimapTest {
+    private final Random random = new Random(6370251844093817236L);
+
+    private static void assertInverse(final Bimap bimap) {
+        final Map<String, String> inverse = new HashMap<>();
+        bimap.right().forEach((right, left) -> inverse.put(left, right));
+        Assert.assertEquals("sides are not inverse in " + bimap, new HashMap<>(bimap.left()), inverse);
+    }
+
+    @Test
+    public void test01Unbounded() {
+        for (final BoundedBimap.Eviction eviction : BoundedBimap.Eviction.values()) {
+            final SimpleBimap expected = new SimpleBimap(HashMap::new);
+            final BoundedBimap actual = new BoundedBimap(1000, eviction);
+            for (int i = 0; i < 10000; i++) {
+                final String left = Integer.toString(random.nextInt(100));
+                final String right = Integer.toString(random.nextInt(100));
+                switch (random.nextInt(9)) {
+                    case 0 -> {
+                        expected.put(left, right);
+                        actual.put(left, right);
+                    }
+                    case 1 -> Assert.assertEquals(expected.forcePut(left, right), actual.forcePut(left, right));
+                    case 2 -> Assert.assertEquals(expected.putIfAbsent(left, right), actual.putIfAbsent(left, right));
+                    case 3 -> Assert.assertEquals(expected.replaceRight(left, right), actual.replaceRight(left, right));
+                    case 4 -> Assert.assertEquals(expected.replaceLeft(right, left), actual.replaceLeft(right, left));
+                    case 5 -> {
+                        final String previous = expected.right().get(right);
+                        expected.put(left, right);
+                        Assert.assertEquals(previous, actual.right().put(right, left));
+                    }
+                    case 6 -> Assert.assertEquals(expected.left().get(left), actual.left().get(left));
+                    case 7 -> Assert.assertEquals(expected.leftRemove(left), actual.leftRemove(left));
+                    default -> Assert.assertEquals(expected.rightRemove(right), actual.rightRemove(right));
+                }
+                if (i % 100 == 0) {
+                    Assert.assertTrue(actual.checkInvariant());
+                    Assert.assertEquals(expected.left(), actual.left());
+                    Assert.assertEquals(expected.right(), actual.right());
+                }
+            }
+            actual.right().keySet().removeIf(right -> right.endsWith("3"));
+            expected.right().keySet().removeIf(right -> right.endsWith("3"));
+            Assert.assertEquals(expected.left(), actual.left());
+            Assert.assertTrue(actual.checkInvariant());
+            Assert.assertEquals(0, actual.stats().evictions());
+        }
+    }
+
+    @Test
+    public void test02Lru() {
+        final BoundedBimap bimap = new BoundedBimap(3, BoundedBimap.Eviction.LRU);
+        bimap.put("a", "1");
+        bimap.put("b", "2");
+        bimap.put("c", "3");
+        Assert.assertEquals("a", bimap.right().get("1"));
+        bimap.put("d", "4");
+        Assert.assertEquals(Set.of("a", "c", "d"), bimap.left().keySet());
+        Assert.assertEquals("3", bimap.left().get("c"));
+        bimap.put("a", "5"); // replacing the right key refreshes the pair
+        bimap.put("e", "6");
+        Assert.assertNull(bimap.left().get("d"));
+        Assert.assertEquals(new BoundedBimap.Stats(2, 1, 2), bimap.stats());
+        Assert.assertEquals(2.0 / 3, bimap.stats().hitRate(), 1e-9);
+        Assert.assertEquals(Map.of("a", "5", "c", "3", "e", "6"), bimap.left());
+        Assert.assertTrue(bimap.checkInvariant());
+    }
+
+    @Test
+    public void test03Lfu() {
+        final BoundedBimap bimap = new BoundedBimap(3, BoundedBimap.Eviction.LFU);
+        bimap.put("a", "1");
+        bimap.put("b", "2");
+        bimap.put("c", "3");
+        for (int i = 0; i < 3; i++) {
+            bimap.left().get("a");
+            bimap.right().get("2");
+        }
+        bimap.left().get("c");
+        bimap.put("d", "4");
+        Assert.assertEquals(Set.of("a", "b", "c"), bimap.left().keySet());
+        bimap.left().get("c");
+        bimap.put("e", "5");
+        Assert.assertEquals(Set.of("a", "b", "c"), bimap.left().keySet());
+        bimap.leftRemove("a");
+        bimap.put("f", "6");
+        Assert.assertEquals(Set.of("b", "c", "f"), bimap.left().keySet());
+        Assert.assertEquals(2, bimap.stats().evictions());
+        Assert.assertTrue(bimap.checkInvariant());
+    }
+
+    /**
+     * Hot keys are looked up with each key of a scan, which LRU lets evict them and Window TinyLFU does not.
+     */
+    private static double scanHitRate(final BoundedBimap.Eviction eviction) {
+        final BoundedBimap bimap = new BoundedBimap(100, eviction);
+        for (int i = 0; i < 20000; i++) {
+            final String hot = "hot" + i % 50;
+            if (bimap.left().get(hot) == null) {
+                bimap.put(hot, hot);
+            }
+            for (int j = 0; j < 2; j++) {
+                final String scan = "scan" + (2 * i + j);
+                bimap.computeRightIfAbsent(scan, key -> key);
+            }
+        }
+        Assert.assertTrue(bimap.checkInvariant());
+        Assert.assertEquals(100, bimap.size());
+        assertInverse(bimap);
+        final BoundedBimap.Stats stats = bimap.stats();
+        return (double) stats.hits() / 20000;
+    }
+
+    @Test
+    public void test04TinyLfuResistsScans() {
+        final double lru = scanHitRate(BoundedBimap.Eviction.LRU);
+        final double tinyLfu = scanHitRate(BoundedBimap.Eviction.WINDOW_TINY_LFU);
+        Assert.assertTrue("LRU hit rate " + lru, lru < 0.1);
+        Assert.assertTrue("Window TinyLFU hit rate " + tinyLfu, tinyLfu > 0.9);
+    }
+
+    @Test
+    public void test05Weight() {
+        for (final BoundedBimap.Eviction eviction : BoundedBimap.Eviction.values()) {
+            final BoundedBimap bimap = new BoundedBimap(1000, (left, right) -> left.length() + right.length(), eviction);
+            for (int i = 0; i < 5000; i++) {
+                final String left = "k".repeat(random.nextInt(20)) + random.nextInt(500);
+                final String right = "v".repeat(random.nextInt(20)) + random.nextInt(500);
+                bimap.put(left, right);
+                bimap.left().get(Integer.toString(random.nextInt(500)));
+                Assert.assertTrue(bimap.checkInvariant());
+            }
+            Assert.assertTrue(bimap.stats().evictions() > 0);
+            bimap.put("z", "y");
+            final Map<String, String> kept = new HashMap<>(bimap.left());
+            kept.remove("z");
+            final long evictions = bimap.stats().evictions();
+            bimap.put("x".repeat(1001), "y");
+            Assert.assertFalse(bimap.left().containsKey("x".repeat(1001)));
+            Assert.assertEquals(kept, bimap.left());
+            Assert.assertEquals(evictions + 1, bimap.stats().evictions());
+            Assert.assertTrue(bimap.checkInvariant());
+            Assert.assertThrows(IllegalArgumentException.class, () -> new BoundedBimap(1, (left, right) -> -1, eviction).put("a", "b"));
+            bimap.clear();
+            Assert.assertTrue(bimap.isEmpty());
+            Assert.assertTrue(bimap.checkInvariant());
+        }
+    }
+
+    @Test
+    public void test06Concurrent() throws Exception {
+        for (final BoundedBimap.Eviction eviction : BoundedBimap.Eviction.values()) {
+            final BoundedBimap bimap = new BoundedBimap(200, eviction);
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                final List<Future<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    tasks.add(executor.submit(() -> {
+                        final ThreadLocalRandom random = ThreadLocalRandom.current();
+                        for (int i = 0; i < 20000; i++) {
+                            final String left = Integer.toString(random.nextInt(400));
+                            final String right = Integer.toString(random.nextInt(400));
+                            switch (random.nextInt(8)) {
+                                case 0 -> bimap.put(left, right);
+                                case 1 -> bimap.leftRemove(left);
+                                case 2 -> bimap.computeRightIfAbsent(left, key -> right);
+                                case 3 -> bimap.right().get(right);
+                                default -> bimap.left().get(left);
+                            }
+                        }
+                    }));
+                }
+                for (final Future<?> task : tasks) {
+                    task.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            Assert.assertTrue(bimap.checkInvariant());
+            Assert.assertTrue(bimap.size() <= 200);
+            assertInverse(bimap);
+            final BoundedBimap.Stats stats = bimap.stats();
+            Assert.assertTrue(stats.hits() + stats.misses() > 40000);
+        }
+    }
+
+    @Test
+    public void test07SketchSize() {
+        final BoundedBimap.FrequencySketch sketch = new BoundedBimap.FrequencySketch();
+        Assert.assertEquals(8, sketch.capacity());
+        sketch.increment("a");
+        sketch.ensureCapacity(8);
+        Assert.assertEquals(1, sketch.frequency("a"));
+        sketch.ensureCapacity(1000);
+        Assert.assertEquals(1024, sketch.capacity());
+        Assert.assertEquals(0, sketch.frequency("a"));
+        sketch.ensureCapacity(Integer.MAX_VALUE);
+        Assert.assertEquals(1 << 24, sketch.capacity());
+
+        // The sketch follows the number of pairs, not their weight
+        final BoundedBimap bimap = new BoundedBimap(1L << 30, (left, right) -> left.length() + right.length(),
+                BoundedBimap.Eviction.WINDOW_TINY_LFU);
+        for (int i = 0; i < 3000; i++) {
+            bimap.put("k" + i, "v" + i);
+            bimap.left().get("k" + random.nextInt(i + 1));
+        }
+        Assert.assertEquals(3000, bimap.size());
+        Assert.assertTrue(bimap.checkInvariant());
+        Assert.assertEquals(4096, bimap.sketchCapacity());
+    }
+}
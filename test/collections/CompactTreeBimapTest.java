@@ -0,0 +1,151 @@
+package collections;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class CompactTreeBimapTest {
+    private static void testCorrectness(final Bimap expected, final CompactTreeBimap actual, final Consumer<? super BimapChecker> operation) {
+        operation.accept(new BimapChecker(expected, actual).invariantChecker(
+                () -> Assert.assertTrue("Invariant is not satisfied " + actual, actual.checkInvariant())
+        ));
+    }
+
+    private final Random random = new Random(6008239841245309117L);
+
+    private String randomString(final int maxLength) {
+        return random.ints(random.nextInt(1, maxLength + 1), 'a', 'e')
+                .collect(
+                        StringBuilder::new,
+                        StringBuilder::appendCodePoint,
+                        StringBuilder::append
+                ).toString();
+    }
+
+    @Test
+    public void test01Simple() {
+        testCorrectness(
+                new SimpleBimap(),
+                new CompactTreeBimap(),
+                b -> {
+                    b.put("hello", "cruel");
+                    b.put("cruel", "unhappy");
+                    b.put("unhappy", "world");
+                    b.put("world", "hello");
+
+                    b.put("cruel", "cruel");
+                    b.put("unhappy", "cruel");
+                    b.leftRemove("hello");
+                    b.rightRemove("cruel");
+                    b.put("test", "lol");
+                }
+        );
+    }
+
+    @Test
+    public void test02CustomCmp() {
+        testCorrectness(
+                new SimpleBimap(
+                        Comparator.nullsLast(Comparator.comparing(s -> new StringBuilder(s).reverse().toString())),
+                        Comparator.reverseOrder()
+                ),
+                new CompactTreeBimap(
+                        Comparator.nullsLast(Comparator.comparing(s -> new StringBuilder(s).reverse().toString())),
+                        Comparator.reverseOrder()
+                ),
+                b -> {
+                    b.put("cruel", "unhappy");
+                    b.put(null, "null");
+                    b.put("null", "no nulls");
+                    b.rightRemove("null");
+                    b.leftRemove(null);
+                    b.leftRemove("does not exist");
+                }
+        );
+    }
+
+    @Test
+    public void test03Randomized() {
+        testCorrectness(
+                new SimpleBimap(),
+                new CompactTreeBimap(),
+                b -> {
+                    for (int i = 0; i < 20000; i++) {
+                        final String left = randomString(4);
+                        final String right = randomString(4);
+                        switch (random.nextInt(7)) {
+                            case 0, 1 -> b.put(left, right);
+                            case 2 -> b.forcePut(left, right);
+                            case 3 -> b.replaceLeft(right, left);
+                            case 4 -> b.leftRemove(left);
+                            case 5 -> b.rightRemove(right);
+                            default -> b.size();
+                        }
+                    }
+                    b.clear();
+                    b.put("after", "clear");
+                }
+        );
+    }
+
+    @Test
+    public void test04Views() {
+        final SimpleBimap expected = new SimpleBimap();
+        final CompactTreeBimap actual = new CompactTreeBimap();
+        for (int i = 0; i < 1000; i++) {
+            final String left = randomString(5);
+            final String right = randomString(5);
+            final String previous = expected.right().get(right);
+            expected.put(left, right);
+            Assert.assertEquals(previous, actual.right().put(right, left));
+        }
+        for (final Iterator<Map.Entry<String, String>> it = actual.right().entrySet().iterator(); it.hasNext(); ) {
+            final Map.Entry<String, String> entry = it.next();
+            if (random.nextBoolean()) {
+                it.remove();
+                expected.rightRemove(entry.getKey());
+            }
+        }
+        Assert.assertTrue(actual.checkInvariant());
+        Assert.assertEquals(List.copyOf(expected.left().entrySet()), List.copyOf(actual.left().entrySet()));
+        Assert.assertEquals(List.copyOf(expected.right().entrySet()), List.copyOf(actual.right().entrySet()));
+        for (final String key : expected.left().keySet()) {
+            Assert.assertTrue(actual.right().containsValue(key));
+            Assert.assertEquals(expected.left().get(key), actual.left().remove(key));
+        }
+        Assert.assertTrue(actual.isEmpty());
+    }
+
+    @Test
+    public void test05Arena() {
+        final KeyArena arena = new KeyArena();
+        testCorrectness(
+                new SimpleBimap(),
+                new CompactTreeBimap(arena),
+                b -> {
+                    for (int i = 0; i < 20000; i++) {
+                        final String left = randomString(4);
+                        final String right = random.nextInt(4) == 0 ? left : randomString(4) + "\u0442\uD83D\uDE00";
+                        switch (random.nextInt(6)) {
+                            case 0, 1 -> b.put(left, right);
+                            case 2 -> b.replaceLeft(right, left);
+                            case 3 -> b.leftRemove(left);
+                            case 4 -> b.rightRemove(right);
+                            default -> b.left().get(left);
+                        }
+                    }
+                }
+        );
+
+        final int count = arena.count();
+        final CompactTreeBimap other = new CompactTreeBimap(arena);
+        other.put("a", "a");
+        other.put("abcd", "dcba");
+        Assert.assertEquals("keys should be shared between bimaps", count, arena.count());
+    }
+}
@@ -0,0 +1,193 @@
+package collections;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class ConcurrentBimapTest {
+    private static final String[] KEYS = {"a", "b", "c"};
+
+    private final Random random = new Random(8142035530945126715L);
+
+    private static void assertInverse(final Bimap bimap) {
+        final Map<String, String> inverse = new HashMap<>();
+        bimap.right().forEach((right, left) -> inverse.put(left, right));
+        Assert.assertEquals("sides are not inverse in " + bimap, new HashMap<>(bimap.left()), inverse);
+        Assert.assertEquals(bimap.left().size(), bimap.right().size());
+    }
+
+    @Test
+    public void test01Sequential() {
+        final SimpleBimap expected = new SimpleBimap(HashMap::new);
+        final ConcurrentBimap actual = new ConcurrentBimap(4);
+        for (int i = 0; i < 20000; i++) {
+            final String left = Integer.toString(random.nextInt(100));
+            final String right = Integer.toString(random.nextInt(100));
+            switch (random.nextInt(7)) {
+                case 0 -> {
+                    expected.put(left, right);
+                    actual.put(left, right);
+                }
+                case 1 -> Assert.assertEquals(expected.forcePut(left, right), actual.forcePut(left, right));
+                case 2 -> Assert.assertEquals(expected.putIfAbsent(left, right), actual.putIfAbsent(left, right));
+                case 3 -> Assert.assertEquals(expected.replaceRight(left, right), actual.replaceRight(left, right));
+                case 4 -> Assert.assertEquals(expected.replaceLeft(right, left), actual.replaceLeft(right, left));
+                case 5 -> Assert.assertEquals(expected.leftRemove(left), actual.leftRemove(left));
+                default -> Assert.assertEquals(expected.rightRemove(right), actual.rightRemove(right));
+            }
+            Assert.assertEquals(expected.size(), actual.size());
+            Assert.assertEquals(expected.left(), actual.left());
+            Assert.assertEquals(expected.right(), actual.right());
+        }
+    }
+
+    private record Operation(int type, String left, String right) {
+        /**
+         * Applies the operation and encodes its result as a string.
+         */
+        String apply(final Bimap bimap) {
+            return switch (type) {
+                case 0 -> String.valueOf(bimap.forcePut(left, right));
+                case 1 -> String.valueOf(bimap.putIfAbsent(left, right));
+                case 2 -> String.valueOf(bimap.leftRemove(left));
+                case 3 -> String.valueOf(bimap.rightRemove(right));
+                case 4 -> String.valueOf(bimap.left().get(left));
+                case 5 -> String.valueOf(bimap.right().get(right));
+                default -> String.valueOf(bimap.replaceRight(left, right));
+            };
+        }
+    }
+
+    private record Call(Operation operation, long invoked, long returned, String result) {
+    }
+
+    private static SimpleBimap copy(final SimpleBimap bimap) {
+        final SimpleBimap result = new SimpleBimap(HashMap::new);
+        result.putAll(bimap);
+        return result;
+    }
+
+    /**
+     * Searches for a sequential order of calls which respects their real-time order, gives the same results
+     * and ends in the given state.
+     */
+    private static boolean linearizable(final List<Call> calls, final SimpleBimap state, final Map<String, String> end) {
+        if (calls.isEmpty()) {
+            return new HashMap<>(state.left()).equals(end);
+        }
+        for (final Call call : calls) {
+            if (calls.stream().anyMatch(other -> other.returned < call.invoked)) {
+                continue;
+            }
+            final SimpleBimap next = copy(state);
+            if (call.operation.apply(next).equals(call.result)) {
+                final List<Call> rest = new ArrayList<>(calls);
+                rest.remove(call);
+                if (linearizable(rest, next, end)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Waits for the tasks, rethrowing their failures.
+     */
+    private static void join(final List<Future<?>> tasks) throws Exception {
+        for (final Future<?> task : tasks) {
+            task.get();
+        }
+    }
+
+    @Test
+    public void test02Linearizable() throws Exception {
+        final int threads = 3;
+        final int operations = 4;
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            for (int round = 0; round < 2000; round++) {
+                final ConcurrentBimap bimap = new ConcurrentBimap(1 + random.nextInt(2));
+                final SimpleBimap initial = new SimpleBimap(HashMap::new);
+                for (final String key : KEYS) {
+                    if (random.nextBoolean()) {
+                        final String right = KEYS[random.nextInt(KEYS.length)];
+                        bimap.put(key, right);
+                        initial.put(key, right);
+                    }
+                }
+
+                final List<List<Operation>> plans = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final List<Operation> plan = new ArrayList<>();
+                    for (int i = 0; i < operations; i++) {
+                        plan.add(new Operation(random.nextInt(7), KEYS[random.nextInt(KEYS.length)], KEYS[random.nextInt(KEYS.length)]));
+                    }
+                    plans.add(plan);
+                }
+
+                final List<Call> calls = Collections.synchronizedList(new ArrayList<>());
+                final CyclicBarrier barrier = new CyclicBarrier(threads);
+                final List<Future<?>> workers = new ArrayList<>();
+                for (final List<Operation> plan : plans) {
+                    workers.add(executor.submit(() -> {
+                        barrier.await();
+                        for (final Operation operation : plan) {
+                            final long invoked = System.nanoTime();
+                            final String result = operation.apply(bimap);
+                            calls.add(new Call(operation, invoked, System.nanoTime(), result));
+                        }
+                        return null;
+                    }));
+                }
+                join(workers);
+
+                final Map<String, String> end = new HashMap<>(bimap.left());
+                Assert.assertTrue("not linearizable from " + initial + " to " + end + ": " + calls, linearizable(calls, initial, end));
+                assertInverse(bimap);
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void test03Stress() throws Exception {
+        final ConcurrentBimap bimap = new ConcurrentBimap();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        final List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            workers.add(executor.submit(() -> {
+                final ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < 200_000; i++) {
+                    final String left = Integer.toString(random.nextInt(64));
+                    final String right = Integer.toString(random.nextInt(64));
+                    switch (random.nextInt(4)) {
+                        case 0 -> bimap.put(left, right);
+                        case 1 -> bimap.leftRemove(left);
+                        case 2 -> bimap.rightRemove(right);
+                        default -> {
+                            bimap.left().get(left);
+                            bimap.right().get(right);
+                        }
+                    }
+                }
+            }));
+        }
+        try {
+            join(workers);
+        } finally {
+            executor.shutdown();
+        }
+        assertInverse(bimap);
+    }
+}
@@ -0,0 +1,171 @@
+package collections;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class DurableBimapTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(6107263357216954417L);
+
+    private void randomOperations(final TreeBimap expected, final DurableBimap actual, final int count) {
+        for (int i = 0; i < count; i++) {
+            final String left = Integer.toString(random.nextInt(200));
+            final String right = random.nextInt(50) == 0 ? "\uD83D" + random.nextInt(10) : Integer.toString(random.nextInt(200));
+            switch (random.nextInt(8)) {
+                case 0 -> {
+                    expected.put(left, right);
+                    actual.put(left, right);
+                }
+                case 1 -> Assert.assertEquals(expected.forcePut(left, right), actual.forcePut(left, right));
+                case 2 -> Assert.assertEquals(expected.putIfAbsent(left, right), actual.putIfAbsent(left, right));
+                case 3 -> Assert.assertEquals(expected.replaceLeft(right, left), actual.replaceLeft(right, left));
+                case 4 -> Assert.assertEquals(expected.leftRemove(left), actual.leftRemove(left));
+                case 5 -> Assert.assertEquals(expected.rightRemove(right), actual.rightRemove(right));
+                case 6 -> Assert.assertEquals(expected.right().put(right, left), actual.right().put(right, left));
+                default -> {
+                    if (random.nextInt(100) == 0) {
+                        expected.clear();
+                        actual.clear();
+                    }
+                }
+            }
+        }
+        assertSame(expected, actual);
+    }
+
+    private static void assertSame(final TreeBimap expected, final DurableBimap actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        synchronized (actual) {
+            Assert.assertEquals(List.copyOf(expected.left().entrySet()), List.copyOf(actual.left().entrySet()));
+            Assert.assertEquals(List.copyOf(expected.right().entrySet()), List.copyOf(actual.right().entrySet()));
+        }
+    }
+
+    @Test
+    public void test01Replay() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final TreeBimap expected = new TreeBimap();
+        for (final DurableBimap.SyncPolicy policy : List.of(DurableBimap.SyncPolicy.perOperation(), DurableBimap.SyncPolicy.group())) {
+            try (final DurableBimap actual = DurableBimap.open(directory, policy)) {
+                assertSame(expected, actual);
+                randomOperations(expected, actual, 3000);
+            }
+        }
+        try (final DurableBimap actual = DurableBimap.open(directory, DurableBimap.SyncPolicy.group())) {
+            assertSame(expected, actual);
+        }
+    }
+
+    @Test
+    public void test02TornTail() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final TreeBimap expected = new TreeBimap();
+        try (final DurableBimap actual = DurableBimap.open(directory, DurableBimap.SyncPolicy.group())) {
+            randomOperations(expected, actual, 1000);
+        }
+        final Path log = directory.resolve("log-0");
+        final long length = Files.size(log);
+        // A partially written record, then one with a wrong checksum
+        Files.write(log, new byte[]{0, 0, 0, 9, 1, 2}, StandardOpenOption.APPEND);
+        try (final DurableBimap actual = DurableBimap.open(directory, DurableBimap.SyncPolicy.group())) {
+            assertSame(expected, actual);
+            Assert.assertEquals(length, Files.size(log));
+        }
+        Files.write(log, new byte[]{0, 0, 0, 1, 1, 2, 3, 4, 4}, StandardOpenOption.APPEND);
+        try (final DurableBimap actual = DurableBimap.open(directory, DurableBimap.SyncPolicy.group())) {
+            assertSame(expected, actual);
+            randomOperations(expected, actual, 1000);
+        }
+        try (final DurableBimap actual = DurableBimap.open(directory, DurableBimap.SyncPolicy.group())) {
+            assertSame(expected, actual);
+        }
+    }
+
+    @Test
+    public void test03Checkpoint() throws IOException {
+        final Path directory = folder.newFolder().toPath();
+        final TreeBimap expected = new TreeBimap();
+        try (final DurableBimap actual = DurableBimap.open(directory, DurableBimap.SyncPolicy.group(), 4096)) {
+            randomOperations(expected, actual, 5000);
+        }
+        try (final var files = Files.list(directory)) {
+            final List<String> names = files.map(file -> file.getFileName().toString()).sorted().toList();
+            Assert.assertEquals(2, names.size());
+            Assert.assertTrue(names.get(0).startsWith("log-"));
+            Assert.assertEquals("snapshot-" + names.get(0).substring("log-".length()), names.get(1));
+        }
+        try (final DurableBimap actual = DurableBimap.open(directory, DurableBimap.SyncPolicy.group())) {
+            assertSame(expected, actual);
+            actual.checkpoint();
+            Assert.assertEquals(0, Files.size(directory.resolve("log-" + latest(directory))));
+            randomOperations(expected, actual, 100);
+        }
+        // An unfinished checkpoint is ignored
+        Files.write(directory.resolve("snapshot-" + (latest(directory) + 1) + ".tmp"), new byte[]{1, 2, 3});
+        try (final DurableBimap actual = DurableBimap.open(directory, DurableBimap.SyncPolicy.group())) {
+            assertSame(expected, actual);
+        }
+    }
+
+    private static long latest(final Path directory) throws IOException {
+        try (final var files = Files.list(directory)) {
+            return files.map(file -> file.getFileName().toString())
+                    .filter(name -> name.startsWith("snapshot-") && !name.endsWith(".tmp"))
+                    .mapToLong(name -> Long.parseLong(name.substring("snapshot-".length())))
+                    .max().orElse(0);
+        }
+    }
+
+    @Test
+    public void test04Concurrent() throws Exception {
+        for (final DurableBimap.SyncPolicy policy : List.of(DurableBimap.SyncPolicy.group(), DurableBimap.SyncPolicy.interval(Duration.ofMillis(5)))) {
+            final Path directory = folder.newFolder().toPath();
+            final int threads = 8;
+            final int perThread = 500;
+            try (final DurableBimap bimap = DurableBimap.open(directory, policy, 1 << 16)) {
+                final List<Thread> workers = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final int thread = t;
+                    workers.add(new Thread(() -> {
+                        for (int i = 0; i < perThread; i++) {
+                            bimap.put(thread + ":" + i, i + ":" + thread);
+                            if (i % 3 == 0) {
+                                bimap.leftRemove(thread + ":" + (i / 2));
+                            }
+                        }
+                    }));
+                }
+                workers.forEach(Thread::start);
+                for (final Thread worker : workers) {
+                    worker.join();
+                }
+            }
+            final TreeBimap expected = new TreeBimap();
+            for (int t = 0; t < threads; t++) {
+                for (int i = 0; i < perThread; i++) {
+                    expected.put(t + ":" + i, i + ":" + t);
+                    if (i % 3 == 0) {
+                        expected.leftRemove(t + ":" + (i / 2));
+                    }
+                }
+            }
+            try (final DurableBimap actual = DurableBimap.open(directory, policy)) {
+                assertSame(expected, actual);
+            }
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package collections;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class HashBimapTest {
+    private final Random random = new Random(1407215468216923013L);
+
+    private static void assertEquals(final SimpleBimap expected, final HashBimap actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.left(), actual.left());
+        Assert.assertEquals(expected.right(), actual.right());
+        Assert.assertEquals(expected.left(), new HashMap<>(actual.left()));
+        Assert.assertTrue("invariant is not satisfied " + actual, actual.checkInvariant());
+    }
+
+    private String randomKey(final int bound) {
+        final int key = random.nextInt(bound + 1);
+        return key == bound ? null : Integer.toString(key);
+    }
+
+    @Test
+    public void test01Random() {
+        final SimpleBimap expected = new SimpleBimap(HashMap::new);
+        final HashBimap actual = new HashBimap();
+        for (int i = 0; i < 50000; i++) {
+            final String left = randomKey(300);
+            final String right = randomKey(300);
+            switch (random.nextInt(9)) {
+                case 0, 1 -> {
+                    expected.put(left, right);
+                    actual.put(left, right);
+                }
+                case 2 -> Assert.assertEquals(expected.forcePut(left, right), actual.forcePut(left, right));
+                case 3 -> Assert.assertEquals(expected.putIfAbsent(left, right), actual.putIfAbsent(left, right));
+                case 4 -> Assert.assertEquals(expected.replaceLeft(right, left), actual.replaceLeft(right, left));
+                case 5 -> Assert.assertEquals(expected.leftRemove(left), actual.leftRemove(left));
+                case 6 -> Assert.assertEquals(expected.rightRemove(right), actual.rightRemove(right));
+                case 7 -> {
+                    final String previous = expected.right().get(right);
+                    expected.put(left, right);
+                    Assert.assertEquals(previous, actual.right().put(right, left));
+                }
+                default -> {
+                    Assert.assertEquals(expected.left().get(left), actual.left().get(left));
+                    Assert.assertEquals(expected.right().containsKey(right), actual.right().containsKey(right));
+                    Assert.assertEquals(expected.left().containsValue(right), actual.left().containsValue(right));
+                }
+            }
+            if (i % 100 == 0) {
+                assertEquals(expected, actual);
+            }
+        }
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void test02IteratorRemove() {
+        final SimpleBimap expected = new SimpleBimap(HashMap::new);
+        final HashBimap actual = new HashBimap();
+        for (int i = 0; i < 1000; i++) {
+            expected.put(Integer.toString(i), Integer.toString(i * 7));
+            actual.put(Integer.toString(i), Integer.toString(i * 7));
+        }
+        int visited = 0;
+        for (final Iterator<Map.Entry<String, String>> it = actual.right().entrySet().iterator(); it.hasNext(); visited++) {
+            final Map.Entry<String, String> entry = it.next();
+            if (Integer.parseInt(entry.getValue()) % 3 == 0) {
+                it.remove();
+                expected.rightRemove(entry.getKey());
+            }
+        }
+        Assert.assertEquals(1000, visited);
+        assertEquals(expected, actual);
+
+        actual.left().keySet().removeIf(key -> key.endsWith("1"));
+        expected.left().keySet().stream().filter(key -> key.endsWith("1")).toList().forEach(expected::leftRemove);
+        assertEquals(expected, actual);
+
+        final Iterator<String> it = actual.left().keySet().iterator();
+        it.next();
+        actual.put("new", "new");
+        Assert.assertThrows(ConcurrentModificationException.class, it::next);
+    }
+
+    @Test
+    public void test03Resize() {
+        final HashBimap actual = new HashBimap();
+        final int n = 300_000;
+        for (int i = 0; i < n; i++) {
+            actual.put("l" + i, "r" + i);
+            if (i % 10007 == 0) {
+                Assert.assertTrue(actual.checkInvariant());
+            }
+        }
+        Assert.assertEquals(n, actual.size());
+        for (int i = 0; i < n; i += 2) {
+            Assert.assertEquals("r" + i, actual.leftRemove("l" + i));
+        }
+        for (int i = 0; i < n; i++) {
+            Assert.assertEquals(i % 2 == 0 ? null : "l" + i, actual.right().get("r" + i));
+        }
+        Assert.assertTrue(actual.checkInvariant());
+        actual.clear();
+        Assert.assertTrue(actual.isEmpty());
+        actual.put(null, null);
+        Assert.assertNull(actual.left().get(null));
+        Assert.assertTrue(actual.right().containsKey(null));
+    }
+}
@@ -0,0 +1,66 @@
+package collections;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class KeyArenaTest {
+    private final Random random = new Random(4309847732940189432L);
+
+    private String randomString() {
+        final char[] chars = new char[random.nextInt(6)];
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = switch (random.nextInt(5)) {
+                case 0 -> (char) random.nextInt(0x80);
+                case 1 -> (char) random.nextInt(0x80, 0x100);
+                case 2 -> (char) random.nextInt(0x100, 0x800);
+                case 3 -> (char) random.nextInt(0xD800, 0xE000);
+                default -> (char) random.nextInt(0x800, 0x10000);
+            };
+        }
+        return new String(chars);
+    }
+
+    @Test
+    public void test01RoundTrip() {
+        final KeyArena arena = new KeyArena();
+        final Map<String, Integer> refs = new HashMap<>();
+        for (int i = 0; i < 10000; i++) {
+            final String key = randomString();
+            final int ref = arena.intern(key);
+            Assert.assertEquals(key, arena.get(ref));
+            Assert.assertEquals("equal keys should be interned once", refs.computeIfAbsent(key, k -> ref).intValue(), ref);
+        }
+        Assert.assertEquals(refs.size(), arena.count());
+    }
+
+    @Test
+    public void test02Compare() {
+        final KeyArena arena = new KeyArena();
+        for (int i = 0; i < 10000; i++) {
+            final String a = randomString();
+            final String b = random.nextInt(4) == 0 ? a.substring(0, a.length() / 2) : randomString();
+            final int refA = arena.intern(a);
+            final int refB = arena.intern(b);
+            final int expected = Integer.signum(a.compareTo(b));
+            Assert.assertEquals(a + " vs " + b, expected, Integer.signum(arena.compare(a, refB)));
+            Assert.assertEquals(a + " vs " + b, expected, Integer.signum(arena.compare(refA, refB)));
+        }
+    }
+
+    @Test
+    public void test03LargeKeys() {
+        final KeyArena arena = new KeyArena();
+        final String large = "x".repeat(3_000_000);
+        final int small = arena.intern("small");
+        final int ref = arena.intern(large);
+        Assert.assertEquals(large, arena.get(ref));
+        Assert.assertEquals("small", arena.get(small));
+        Assert.assertEquals("after", arena.get(arena.intern("after")));
+        Assert.assertTrue(arena.compare(ref, small) > 0);
+    }
+}
@@ -0,0 +1,110 @@
+package collections;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class MappedBimapTest {
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private final Random random = new Random(2756096354230931874L);
+
+    private String randomString(final int maxLength) {
+        final char[] chars = new char[random.nextInt(maxLength + 1)];
+        final boolean latin1 = random.nextBoolean();
+        for (int i = 0; i < chars.length; i++) {
+            chars[i] = (char) (latin1 ? random.nextInt('a', 'e') : random.nextInt(0xE4, 0x444));
+        }
+        return new String(chars);
+    }
+
+    private TreeBimap randomBimap(final int size, final Comparator<? super String> leftCmp, final Comparator<? super String> rightCmp) {
+        final TreeBimap bimap = new TreeBimap(leftCmp, rightCmp);
+        for (int i = 0; i < size; i++) {
+            bimap.put(randomString(6), randomString(6));
+        }
+        return bimap;
+    }
+
+    private static void assertSame(final TreeBimap expected, final MappedBimap actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(List.copyOf(expected.left().entrySet()), List.copyOf(actual.left().entrySet()));
+        Assert.assertEquals(List.copyOf(expected.right().entrySet()), List.copyOf(actual.right().entrySet()));
+        Assert.assertEquals(expected.left(), actual.left());
+        Assert.assertEquals(expected.right(), actual.right());
+    }
+
+    @Test
+    public void test01RoundTrip() throws IOException {
+        final TreeBimap expected = randomBimap(5000, new NaturalOrderingComparator<>(), new NaturalOrderingComparator<>());
+        final Path path = folder.newFile().toPath();
+        expected.writeTo(path);
+        final MappedBimap actual = MappedBimap.open(path);
+        assertSame(expected, actual);
+
+        for (int i = 0; i < 5000; i++) {
+            final String key = randomString(6);
+            Assert.assertEquals(expected.left().get(key), actual.left().get(key));
+            Assert.assertEquals(expected.right().get(key), actual.right().get(key));
+            Assert.assertEquals(expected.left().containsValue(key), actual.left().containsValue(key));
+        }
+        Assert.assertThrows(UnsupportedOperationException.class, () -> actual.put("a", "b"));
+    }
+
+    @Test
+    public void test02Ranges() throws IOException {
+        final TreeBimap expected = randomBimap(3000, new NaturalOrderingComparator<>(), new NaturalOrderingComparator<>());
+        final Path path = folder.newFile().toPath();
+        expected.writeTo(path);
+        final MappedBimap actual = MappedBimap.open(path);
+        for (int i = 0; i < 500; i++) {
+            String from = randomString(3);
+            String to = randomString(3);
+            if (from.compareTo(to) > 0) {
+                final String tmp = from;
+                from = to;
+                to = tmp;
+            }
+            Assert.assertEquals(List.copyOf(expected.left().subMap(from, to).entrySet()), List.copyOf(actual.left().subMap(from, to).entrySet()));
+            Assert.assertEquals(List.copyOf(expected.right().headMap(to).entrySet()), List.copyOf(actual.right().headMap(to).entrySet()));
+            Assert.assertEquals(expected.right().tailMap(from), actual.right().tailMap(from));
+            Assert.assertEquals(expected.left().subMap(from, to).get(from), actual.left().subMap(from, to).get(from));
+            if (!expected.left().tailMap(from).isEmpty()) {
+                Assert.assertEquals(expected.left().tailMap(from).firstKey(), actual.left().tailMap(from).firstKey());
+                Assert.assertEquals(expected.left().tailMap(from).lastKey(), actual.left().tailMap(from).lastKey());
+            }
+        }
+    }
+
+    @Test
+    public void test03SmallChunksAndComparators() throws IOException {
+        final Comparator<String> reverse = Comparator.reverseOrder();
+        final TreeBimap expected = randomBimap(3000, reverse, new NaturalOrderingComparator<>());
+        expected.put("x".repeat(300), "y".repeat(200));
+        final Path path = folder.newFile().toPath();
+        MappedBimap.write(expected, path, 10);
+        final MappedBimap actual = MappedBimap.open(path, reverse, new NaturalOrderingComparator<>());
+        assertSame(expected, actual);
+        for (final Map.Entry<String, String> entry : expected.left().entrySet()) {
+            Assert.assertEquals(entry.getValue(), actual.left().get(entry.getKey()));
+            Assert.assertEquals(entry.getKey(), actual.right().get(entry.getValue()));
+        }
+
+        final TreeBimap empty = new TreeBimap();
+        empty.writeTo(path);
+        Assert.assertTrue(MappedBimap.open(path).isEmpty());
+
+        Files.writeString(path, "not a bimap at all, but long enough for a header");
+        Assert.assertThrows(IOException.class, () -> MappedBimap.open(path));
+    }
+}
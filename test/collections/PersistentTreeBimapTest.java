@@ -0,0 +1,145 @@
+package collections;
+
+import org.junit.Assert;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class PersistentTreeBimapTest {
+    private final Random random = new Random(5270411939870257521L);
+
+    private static SimpleBimap copy(final Bimap bimap) {
+        final SimpleBimap result = new SimpleBimap();
+        result.putAll(bimap);
+        return result;
+    }
+
+    private static void assertSame(final SimpleBimap expected, final Bimap actual) {
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(List.copyOf(expected.left().entrySet()), List.copyOf(actual.left().entrySet()));
+        Assert.assertEquals(List.copyOf(expected.right().entrySet()), List.copyOf(actual.right().entrySet()));
+    }
+
+    @Test
+    public void test01Random() {
+        final PersistentTreeBimap actual = new PersistentTreeBimap();
+        final BimapChecker checker = new BimapChecker(new SimpleBimap(), actual)
+                .invariantChecker(() -> Assert.assertTrue("invariant is not satisfied " + actual, actual.checkInvariant()));
+        for (int i = 0; i < 20000; i++) {
+            final String left = Integer.toString(random.nextInt(200));
+            final String right = Integer.toString(random.nextInt(200));
+            switch (random.nextInt(8)) {
+                case 0, 1 -> checker.put(left, right);
+                case 2 -> checker.forcePut(left, right);
+                case 3 -> checker.putIfAbsent(left, right);
+                case 4 -> checker.replaceLeft(right, left);
+                case 5 -> checker.leftRemove(left);
+                case 6 -> checker.rightRemove(right);
+                default -> checker.replaceRight(left, right);
+            }
+        }
+    }
+
+    @Test
+    public void test02CustomCmp() {
+        final PersistentTreeBimap actual = new PersistentTreeBimap(Comparator.naturalOrder(), Comparator.nullsFirst(Comparator.reverseOrder()));
+        final BimapChecker checker = new BimapChecker(new SimpleBimap(Comparator.naturalOrder(), Comparator.nullsFirst(Comparator.reverseOrder())), actual)
+                .invariantChecker(() -> Assert.assertTrue("invariant is not satisfied " + actual, actual.checkInvariant()));
+        checker.put("abc", "def");
+        checker.put("null", "defff");
+        checker.put("a", null);
+        checker.put("", "de");
+        checker.put("b", null);
+        checker.leftRemove("abc");
+        checker.rightRemove("de");
+
+        Assert.assertEquals("null", actual.right().remove("defff"));
+        Assert.assertFalse(actual.left().containsKey("null"));
+        Assert.assertNull(actual.right().put("x", "y"));
+        Assert.assertEquals("x", actual.left().get("y"));
+        Assert.assertTrue(actual.checkInvariant());
+    }
+
+    @Test
+    public void test03Snapshots() {
+        final PersistentTreeBimap bimap = new PersistentTreeBimap();
+        final List<Bimap> snapshots = new ArrayList<>();
+        final List<SimpleBimap> expected = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            final String left = Integer.toString(random.nextInt(100));
+            final String right = Integer.toString(random.nextInt(100));
+            if (random.nextInt(3) == 0) {
+                bimap.leftRemove(left);
+            } else {
+                bimap.put(left, right);
+            }
+            if (i % 100 == 0) {
+                snapshots.add(bimap.snapshot());
+                expected.add(copy(bimap));
+            }
+        }
+        bimap.clear();
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertSame(expected.get(i), snapshots.get(i));
+        }
+
+        final Bimap snapshot = snapshots.get(snapshots.size() - 1);
+        Assert.assertThrows(UnsupportedOperationException.class, () -> snapshot.put("a", "b"));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> snapshot.leftRemove("a"));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> snapshot.right().remove("a"));
+        Assert.assertThrows(UnsupportedOperationException.class, () -> snapshot.left().clear());
+    }
+
+    @Test
+    public void test04ConcurrentReaders() throws Exception {
+        final int keys = 1000;
+        final PersistentTreeBimap bimap = new PersistentTreeBimap();
+        final AtomicReference<Bimap> published = new AtomicReference<>(bimap.snapshot());
+        final List<Thread> readers = new ArrayList<>();
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        final Thread writer = new Thread(() -> {
+            for (int batch = 1; batch <= 200; batch++) {
+                for (int i = 0; i < keys; i++) {
+                    bimap.put(Integer.toString(i), batch + ":" + i);
+                }
+                published.set(bimap.snapshot());
+            }
+        });
+        for (int t = 0; t < 4; t++) {
+            final Thread reader = new Thread(() -> {
+                try {
+                    while (writer.isAlive()) {
+                        // Every published snapshot contains a whole batch
+                        final Bimap snapshot = published.get();
+                        if (snapshot.isEmpty()) {
+                            continue;
+                        }
+                        Assert.assertEquals(keys, snapshot.size());
+                        final String batch = snapshot.left().get("0").split(":")[0];
+                        for (final Map.Entry<String, String> entry : snapshot.left().entrySet()) {
+                            Assert.assertEquals(batch + ":" + entry.getKey(), entry.getValue());
+                            Assert.assertEquals(entry.getKey(), snapshot.right().get(entry.getValue()));
+                        }
+                    }
+                } catch (final Throwable e) {
+                    failures.add(e);
+                }
+            });
+            readers.add(reader);
+        }
+        writer.start();
+        for (final Thread reader : readers) {
+            reader.start();
+        }
+        writer.join();
+        for (final Thread reader : readers) {
+            reader.join();
+        }
+        Assert.assertEquals(List.of(), failures);
+        Assert.assertTrue(bimap.checkInvariant());
+    }
+}
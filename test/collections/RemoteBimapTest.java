@@ -0,0 +1,261 @@
+package collections;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+public class RemoteBimapTest {
+    private final Random random = new Random(2730984517630945821L);
+    private BimapServer server;
+
+    @Before
+    public void start() throws IOException {
+        server = BimapServer.start(new InetSocketAddress("127.0.0.1", 0), () -> new TreeBimap(
+                Comparator.naturalOrder(),
+                (a, b) -> {
+                    if (a.equals("bad") || b.equals("bad")) {
+                        throw new IllegalArgumentException("bad key");
+                    }
+                    return a.compareTo(b);
+                }
+        ));
+    }
+
+    @After
+    public void stop() throws IOException {
+        server.close();
+    }
+
+    private static void assertEqualsOrdered(final Bimap expected, final Bimap actual) {
+        Assert.assertEquals(List.copyOf(expected.left().entrySet()), List.copyOf(actual.left().entrySet()));
+        Assert.assertEquals(List.copyOf(expected.right().entrySet()), List.copyOf(actual.right().entrySet()));
+    }
+
+    @Test
+    public void test01Sequential() throws IOException {
+        final TreeBimap expected = new TreeBimap();
+        try (final RemoteBimap actual = RemoteBimap.connect(server.address(), "test01")) {
+            for (int i = 0; i < 3000; i++) {
+                final String left = Integer.toString(random.nextInt(100));
+                final String right = Integer.toString(random.nextInt(100));
+                switch (random.nextInt(9)) {
+                    case 0 -> {
+                        expected.put(left, right);
+                        actual.put(left, right);
+                    }
+                    case 1 -> Assert.assertEquals(expected.forcePut(left, right), actual.forcePut(left, right));
+                    case 2 -> Assert.assertEquals(expected.putIfAbsent(left, right), actual.putIfAbsent(left, right));
+                    case 3 -> Assert.assertEquals(expected.right().put(right, left), actual.right().put(right, left));
+                    case 4 -> Assert.assertEquals(expected.left().get(left), actual.left().get(left));
+                    case 5 -> Assert.assertEquals(expected.right().containsKey(right), actual.right().containsKey(right));
+                    case 6 -> Assert.assertEquals(expected.leftRemove(left), actual.leftRemove(left));
+                    case 7 -> Assert.assertEquals(expected.right().remove(right), actual.right().remove(right));
+                    default -> Assert.assertEquals(expected.size(), actual.size());
+                }
+                if (i % 100 == 0) {
+                    assertEqualsOrdered(expected, actual);
+                }
+            }
+            assertEqualsOrdered(expected, actual);
+            actual.clear();
+            Assert.assertTrue(actual.isEmpty());
+        }
+    }
+
+    @Test
+    public void test02Batches() throws IOException {
+        try (final RemoteBimap first = RemoteBimap.connect(server.address(), "test02");
+             final RemoteBimap second = RemoteBimap.connect(server.address(), "test02");
+             final RemoteBimap other = RemoteBimap.connect(server.address(), "other")) {
+            final TreeBimap expected = new TreeBimap();
+            for (int i = 0; i < 5000; i++) {
+                expected.put("ключ" + i, "value" + random.nextInt());
+            }
+            first.putAll(expected);
+            assertEqualsOrdered(expected, second);
+            Assert.assertTrue(other.isEmpty());
+
+            final List<String> lefts = new ArrayList<>();
+            final List<CompletableFuture<String>> pipelined = new ArrayList<>();
+            for (int i = 0; i < 3000; i++) {
+                final String left = "ключ" + random.nextInt(6000);
+                lefts.add(left);
+                pipelined.add(second.leftGetAsync(left));
+            }
+            final List<String> rights = second.leftGetAll(lefts);
+            for (int i = 0; i < lefts.size(); i++) {
+                Assert.assertEquals(expected.left().get(lefts.get(i)), rights.get(i));
+                Assert.assertEquals(rights.get(i), pipelined.get(i).join());
+            }
+            final List<String> found = new ArrayList<>();
+            final List<String> foundLefts = new ArrayList<>();
+            for (int i = 0; i < lefts.size(); i++) {
+                if (rights.get(i) != null) {
+                    found.add(rights.get(i));
+                    foundLefts.add(lefts.get(i));
+                }
+            }
+            found.add("missing");
+            foundLefts.add(null);
+            Assert.assertEquals(foundLefts, first.rightGetAll(found));
+
+            final Iterator<Map.Entry<String, String>> entries = first.right().entrySet().iterator();
+            while (entries.hasNext()) {
+                if (entries.next().getValue().endsWith("7")) {
+                    entries.remove();
+                }
+            }
+            expected.left().keySet().removeIf(left -> left.endsWith("7"));
+            assertEqualsOrdered(expected, second);
+        }
+    }
+
+    @Test
+    public void test03Concurrent() throws Exception {
+        try (final RemoteBimap bimap = RemoteBimap.connect(server.address(), "test03")) {
+            final ExecutorService executor = Executors.newFixedThreadPool(4);
+            try {
+                final List<Future<?>> tasks = new ArrayList<>();
+                for (int t = 0; t < 4; t++) {
+                    final int thread = t;
+                    tasks.add(executor.submit(() -> {
+                        final List<CompletableFuture<Void>> puts = new ArrayList<>();
+                        for (int i = 0; i < 1000; i++) {
+                            puts.add(bimap.putAsync(thread + ":" + i, Integer.toString(thread * 1000 + i)));
+                            if (i % 2 == 0) {
+                                Assert.assertNull(bimap.leftRemove(thread + ":" + (i + 1)));
+                            }
+                        }
+                        puts.forEach(CompletableFuture::join);
+                    }));
+                }
+                for (final Future<?> task : tasks) {
+                    task.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            Assert.assertEquals(4000, bimap.size());
+            Assert.assertEquals("2:500", bimap.right().get("2500"));
+        }
+    }
+
+    @Test
+    public void test04Errors() throws IOException {
+        try (final RemoteBimap bimap = RemoteBimap.connect(server.address(), "test04")) {
+            bimap.put("a", "b");
+            final IllegalStateException error = Assert.assertThrows(IllegalStateException.class, () -> bimap.put("c", "bad"));
+            Assert.assertTrue(error.getMessage(), error.getMessage().contains("bad key"));
+            Assert.assertEquals(Map.of("a", "b"), bimap.left());
+
+            server.close();
+            Assert.assertThrows(UncheckedIOException.class, () -> bimap.put("c", "d"));
+            Assert.assertThrows(UncheckedIOException.class, bimap::size);
+        }
+    }
+
+    @Test
+    public void test05PipelineOverflow() throws Exception {
+        try (final RemoteBimap bimap = RemoteBimap.connect(server.address(), "test05")) {
+            final String padding = "x".repeat(100_000);
+            for (int i = 0; i < 10; i++) {
+                bimap.put(Integer.toString(i), i + padding);
+            }
+            // Responses to these exceed the socket buffers and stop the server from reading
+            final List<CompletableFuture<String>> pipelined = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                pipelined.add(bimap.leftGetAsync(Integer.toString(i % 10)));
+            }
+            // So this request blocks the writer until they are read
+            final List<String> lefts = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                lefts.add(padding + i);
+            }
+            final List<String> rights = CompletableFuture.supplyAsync(() -> bimap.leftGetAll(lefts))
+                    .get(60, TimeUnit.SECONDS);
+            Assert.assertEquals(Collections.nCopies(lefts.size(), null), rights);
+            for (int i = 0; i < pipelined.size(); i++) {
+                Assert.assertEquals(i % 10 + padding, pipelined.get(i).get(60, TimeUnit.SECONDS));
+            }
+        }
+    }
+
+    @Test
+    public void test06BlockingCallbacks() throws Exception {
+        try (final RemoteBimap bimap = RemoteBimap.connect(server.address(), "test06")) {
+            final List<CompletableFuture<Void>> puts = new ArrayList<>();
+            for (int i = 0; i < 2000; i++) {
+                puts.add(bimap.putAsync(Integer.toString(i), "v" + i));
+            }
+            // Stages run outside the reader, which then reads the response to the call they make
+            final CompletableFuture<Integer> size = bimap.leftGetAsync("1999").thenApply(right -> bimap.size());
+            Assert.assertEquals(2000, (int) size.get(60, TimeUnit.SECONDS));
+            puts.forEach(CompletableFuture::join);
+        }
+
+        // Runs completions on the reader, holding the gated one until the stage is attached
+        final AtomicBoolean gated = new AtomicBoolean(false);
+        final Semaphore attached = new Semaphore(0);
+        final Executor reader = task -> {
+            if (gated.getAndSet(false)) {
+                attached.acquireUninterruptibly();
+            }
+            task.run();
+        };
+        try (final RemoteBimap bimap = RemoteBimap.connect(server.address(), "test06direct", reader)) {
+            bimap.put("a", "b");
+            gated.set(true);
+            final CompletableFuture<Integer> size = bimap.leftGetAsync("a").thenApply(right -> bimap.size());
+            attached.release();
+            final ExecutionException error = Assert.assertThrows(ExecutionException.class, () -> size.get(60, TimeUnit.SECONDS));
+            Assert.assertTrue(error.getCause() instanceof IllegalStateException);
+            Assert.assertEquals(1, bimap.size());
+        }
+    }
+
+    @Test
+    public void test07LargeResponses() throws IOException {
+        try (final RemoteBimap bimap = RemoteBimap.connect(server.address(), "test07")) {
+            // Entries take pages by their size, beyond which a single response would be too long
+            final String padding = "x".repeat(1 << 20);
+            final TreeMap<String, String> expected = new TreeMap<>();
+            for (int i = 0; i < 80; i++) {
+                expected.put(Integer.toString(i), i + padding);
+                bimap.put(Integer.toString(i), i + padding);
+            }
+            Assert.assertEquals(List.copyOf(expected.entrySet()), List.copyOf(bimap.left().entrySet()));
+
+            final IllegalStateException error = Assert.assertThrows(
+                    IllegalStateException.class,
+                    () -> bimap.leftGetAll(Collections.nCopies(100, "0"))
+            );
+            Assert.assertTrue(error.getMessage(), error.getMessage().contains("too long"));
+            Assert.assertEquals(80, bimap.size());
+
+            final Iterator<Map.Entry<String, String>> entries = bimap.right().entrySet().iterator();
+            while (entries.hasNext()) {
+                entries.next();
+                entries.remove();
+            }
+            Assert.assertTrue(bimap.isEmpty());
+        }
+    }
+}
@@ -5,7 +5,13 @@ import org.junit.FixMethodOrder;
 import org.junit.Test;
 import org.junit.runners.MethodSorters;
 
+import java.text.Collator;
 import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 @FixMethodOrder(MethodSorters.NAME_ASCENDING)
@@ -182,4 +188,829 @@ public class TreeBimapTest {
                 }
         );
     }
+
+    private String randomString(final int maxLength) {
+        return random.ints(random.nextInt(1, maxLength + 1), 'a', 'e')
+                .collect(
+                        StringBuilder::new,
+                        StringBuilder::appendCodePoint,
+                        StringBuilder::append
+                ).toString();
+    }
+
+    @Test
+    public void test07FromSorted() {
+        for (int i = 0; i < 100; i++) {
+            final List<Map.Entry<String, String>> entries = new ArrayList<>();
+            for (int j = 0; j < 200; j++) {
+                entries.add(Map.entry(randomString(4), randomString(4)));
+            }
+            entries.sort(Map.Entry.comparingByKey());
+
+            final SimpleBimap expected = new SimpleBimap();
+            entries.forEach(entry -> expected.put(entry.getKey(), entry.getValue()));
+            final TreeBimap actual = TreeBimap.fromSorted(entries.iterator());
+
+            Assert.assertTrue("Set invariant is not satisfied " + actual, actual.checkInvariant());
+            Assert.assertEquals(expected.size(), actual.size());
+            Assert.assertEquals(new ArrayList<>(expected.left().entrySet()), new ArrayList<>(actual.left().entrySet()));
+            Assert.assertEquals(new ArrayList<>(expected.right().entrySet()), new ArrayList<>(actual.right().entrySet()));
+        }
+
+        Assert.assertThrows(
+                IllegalArgumentException.class,
+                () -> TreeBimap.fromSorted(List.of(Map.entry("b", "b"), Map.entry("a", "a")).iterator())
+        );
+    }
+
+    @Test
+    public void test08PutAllConflicts() {
+        testCorrectness(
+                new SimpleBimap(),
+                new TreeBimap(),
+                b -> {
+                    for (int i = 0; i < 50; i++) {
+                        final SimpleBimap toAdd = new SimpleBimap(LinkedHashMap::new);
+                        for (int j = random.nextInt(1, 100); j > 0; j--) {
+                            toAdd.put(randomString(3), randomString(3));
+                        }
+                        b.putAll(toAdd);
+                        b.leftRemove(randomString(3));
+                    }
+                }
+        );
+    }
+
+    @Test
+    public void test09Upserts() {
+        testCorrectness(
+                new SimpleBimap(),
+                new TreeBimap(),
+                b -> {
+                    for (int i = 0; i < 3000; i++) {
+                        final String left = randomString(3);
+                        final String right = randomString(3);
+                        final boolean computes = random.nextBoolean();
+                        switch (random.nextInt(6)) {
+                            case 0 -> b.put(left, right);
+                            case 1 -> b.forcePut(left, right);
+                            case 2 -> b.putIfAbsent(left, right);
+                            case 3 -> b.replaceRight(left, right);
+                            case 4 -> b.replaceLeft(right, left);
+                            default -> b.computeRightIfAbsent(left, key -> computes ? right : null);
+                        }
+                    }
+                }
+        );
+    }
+
+    private static void assertSameNavigation(final NavigableMap<String, String> expected, final NavigableMap<String, String> actual, final String key) {
+        Assert.assertEquals(new ArrayList<>(expected.entrySet()), new ArrayList<>(actual.entrySet()));
+        Assert.assertEquals(new ArrayList<>(expected.descendingMap().entrySet()), new ArrayList<>(actual.descendingMap().entrySet()));
+        Assert.assertEquals(new ArrayList<>(expected.descendingKeySet()), new ArrayList<>(actual.descendingKeySet()));
+        Assert.assertEquals(expected.size(), actual.size());
+        Assert.assertEquals(expected.firstEntry(), actual.firstEntry());
+        Assert.assertEquals(expected.lastEntry(), actual.lastEntry());
+        Assert.assertEquals(expected.floorEntry(key), actual.floorEntry(key));
+        Assert.assertEquals(expected.ceilingEntry(key), actual.ceilingEntry(key));
+        Assert.assertEquals(expected.lowerKey(key), actual.lowerKey(key));
+        Assert.assertEquals(expected.higherKey(key), actual.higherKey(key));
+        Assert.assertEquals(expected.containsKey(key), actual.containsKey(key));
+        Assert.assertEquals(expected.get(key), actual.get(key));
+        Assert.assertEquals(expected.descendingMap().ceilingKey(key), actual.descendingMap().ceilingKey(key));
+        Assert.assertEquals(expected.descendingMap().higherKey(key), actual.descendingMap().higherKey(key));
+    }
+
+    @Test
+    public void test10NavigableViews() {
+        final TreeBimap actual = new TreeBimap(Comparator.naturalOrder(), Comparator.reverseOrder());
+        final SimpleBimap expected = new SimpleBimap(Comparator.naturalOrder(), Comparator.reverseOrder());
+        for (int i = 0; i < 300; i++) {
+            final String left = randomString(4);
+            final String right = randomString(4);
+            actual.put(left, right);
+            expected.put(left, right);
+        }
+
+        for (int i = 0; i < 500; i++) {
+            final NavigableMap<String, String> expectedLeft = new TreeMap<>(Comparator.naturalOrder());
+            expectedLeft.putAll(expected.left());
+            final NavigableMap<String, String> expectedRight = new TreeMap<>(Comparator.reverseOrder());
+            expectedRight.putAll(expected.right());
+
+            final String key = randomString(4);
+            assertSameNavigation(expectedLeft, actual.left(), key);
+            assertSameNavigation(expectedRight, actual.right(), key);
+
+            final String a = randomString(3);
+            final String b = randomString(3);
+            final String from = a.compareTo(b) <= 0 ? a : b;
+            final String to = a.compareTo(b) <= 0 ? b : a;
+            final boolean fromInclusive = random.nextBoolean();
+            final boolean toInclusive = random.nextBoolean();
+            assertSameNavigation(
+                    expectedLeft.subMap(from, fromInclusive, to, toInclusive),
+                    actual.left().subMap(from, fromInclusive, to, toInclusive),
+                    key
+            );
+            if (!from.equals(to)) {
+                assertSameNavigation(
+                        expectedLeft.descendingMap().headMap(from, fromInclusive).tailMap(to, toInclusive),
+                        actual.left().descendingMap().headMap(from, fromInclusive).tailMap(to, toInclusive),
+                        key
+                );
+            }
+            assertSameNavigation(
+                    expectedRight.subMap(to, toInclusive, from, fromInclusive),
+                    actual.right().subMap(to, toInclusive, from, fromInclusive),
+                    key
+            );
+            assertSameNavigation(expectedLeft.tailMap(from, fromInclusive), actual.left().tailMap(from, fromInclusive), key);
+            assertSameNavigation(expectedRight.headMap(from, fromInclusive), actual.right().headMap(from, fromInclusive), key);
+
+            if (random.nextBoolean()) {
+                Assert.assertEquals(
+                        expectedLeft.tailMap(from, fromInclusive).firstEntry(),
+                        actual.left().tailMap(from, fromInclusive).pollFirstEntry()
+                );
+                expectedLeft.tailMap(from, fromInclusive).keySet().stream().findFirst().ifPresent(expected::leftRemove);
+            } else {
+                Assert.assertEquals(expectedRight.lastEntry(), actual.right().descendingMap().pollFirstEntry());
+                if (!expectedRight.isEmpty()) {
+                    expected.rightRemove(expectedRight.lastKey());
+                }
+            }
+            Assert.assertTrue("Set invariant is not satisfied " + actual, actual.checkInvariant());
+            final String left = randomString(4);
+            final String right = randomString(4);
+            actual.put(left, right);
+            expected.put(left, right);
+        }
+    }
+
+    @Test
+    public void test11OrderStatistics() {
+        final TreeBimap actual = new TreeBimap(Comparator.reverseOrder(), Comparator.naturalOrder());
+        final SimpleBimap expected = new SimpleBimap(Comparator.reverseOrder(), Comparator.naturalOrder());
+        for (int i = 0; i < 2000; i++) {
+            final String left = randomString(4);
+            final String right = randomString(4);
+            if (random.nextInt(3) == 0) {
+                actual.leftRemove(left);
+                expected.leftRemove(left);
+            } else {
+                actual.put(left, right);
+                expected.put(left, right);
+            }
+            Assert.assertTrue("Set invariant is not satisfied " + actual, actual.checkInvariant());
+
+            final NavigableMap<String, String> expectedLeft = new TreeMap<>(Comparator.reverseOrder());
+            expectedLeft.putAll(expected.left());
+            final NavigableMap<String, String> expectedRight = new TreeMap<>(expected.right());
+            final List<Map.Entry<String, String>> leftEntries = new ArrayList<>(expectedLeft.entrySet());
+            final List<Map.Entry<String, String>> rightEntries = new ArrayList<>(expectedRight.entrySet());
+
+            final String key = randomString(4);
+            Assert.assertEquals(expectedLeft.headMap(key).size(), actual.leftRank(key));
+            Assert.assertEquals(expectedRight.headMap(key).size(), actual.rightRank(key));
+            if (!expected.isEmpty()) {
+                final int index = random.nextInt(expected.size());
+                Assert.assertEquals(leftEntries.get(index), actual.leftSelect(index));
+                Assert.assertEquals(rightEntries.get(index), actual.rightSelect(index));
+            }
+
+            final String a = randomString(4);
+            final String b = randomString(4);
+            Assert.assertEquals(
+                    expectedRight.subMap(a.compareTo(b) < 0 ? a : b, a.compareTo(b) < 0 ? b : a).size(),
+                    actual.rightCountInRange(a.compareTo(b) < 0 ? a : b, a.compareTo(b) < 0 ? b : a)
+            );
+            Assert.assertEquals(
+                    expectedLeft.subMap(a.compareTo(b) > 0 ? a : b, a.compareTo(b) > 0 ? b : a).size(),
+                    actual.leftCountInRange(a.compareTo(b) > 0 ? a : b, a.compareTo(b) > 0 ? b : a)
+            );
+        }
+        Assert.assertThrows(IndexOutOfBoundsException.class, () -> actual.leftSelect(actual.size()));
+    }
+
+    @Test
+    public void test12Spliterator() {
+        final TreeBimap actual = new TreeBimap(Comparator.naturalOrder(), Comparator.reverseOrder());
+        for (int i = 0; i < 5000; i++) {
+            actual.put(randomString(8), randomString(8));
+        }
+
+        for (final NavigableMap<String, String> view : List.of(
+                actual.left(),
+                actual.right(),
+                actual.left().descendingMap(),
+                actual.right().subMap("d", true, "b", false),
+                actual.left().descendingMap().headMap("c", true)
+        )) {
+            final List<Map.Entry<String, String>> expected = new ArrayList<>(view.entrySet());
+            Assert.assertEquals(expected, view.entrySet().parallelStream().toList());
+            Assert.assertEquals(new ArrayList<>(view.keySet()), view.keySet().parallelStream().toList());
+
+            final Spliterator<Map.Entry<String, String>> spliterator = view.entrySet().spliterator();
+            Assert.assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.SORTED | Spliterator.DISTINCT));
+            Assert.assertEquals(expected.size(), spliterator.getExactSizeIfKnown());
+            final Spliterator<Map.Entry<String, String>> prefix = spliterator.trySplit();
+            if (prefix != null) {
+                Assert.assertEquals(expected.size(), prefix.getExactSizeIfKnown() + spliterator.getExactSizeIfKnown());
+                final List<Map.Entry<String, String>> entries = new ArrayList<>();
+                prefix.forEachRemaining(entries::add);
+                spliterator.forEachRemaining(entries::add);
+                Assert.assertEquals(expected, entries);
+            }
+            final List<Map.Entry<String, String>> sorted = new ArrayList<>(expected);
+            sorted.sort(view.entrySet().spliterator().getComparator());
+            Assert.assertEquals(expected, sorted);
+        }
+    }
+
+    /**
+     * Reverse order, which abbreviates keys after a known common prefix and counts comparisons.
+     */
+    private static final class CountingComparator implements AbbreviatingComparator<String> {
+        private final int prefix;
+        private long calls = 0;
+
+        private CountingComparator(final int prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public int compare(final String a, final String b) {
+            calls++;
+            return b.compareTo(a);
+        }
+
+        @Override
+        public long abbreviate(final String key) {
+            return ~AbbreviatingComparator.prefix(key.substring(prefix));
+        }
+    }
+
+    @Test
+    public void test13Abbreviations() {
+        final CountingComparator abbreviating = new CountingComparator(3);
+        final Comparator<String> plain = Comparator.reverseOrder();
+        testCorrectness(
+                new SimpleBimap(plain, plain),
+                new TreeBimap(abbreviating, plain),
+                b -> {
+                    for (int i = 0; i < 2000; i++) {
+                        final String left = "key" + randomString(6);
+                        switch (random.nextInt(4)) {
+                            case 0, 1 -> b.put(left, "key" + randomString(6));
+                            case 2 -> b.leftRemove(left);
+                            default -> b.rightRemove(left);
+                        }
+                    }
+                }
+        );
+
+        final TreeBimap actual = new TreeBimap(abbreviating, new CountingComparator(0));
+        for (int i = 0; i < 10000; i++) {
+            actual.put("key" + i, Integer.toString(i));
+        }
+        abbreviating.calls = 0;
+        for (int i = 0; i < 10000; i++) {
+            Assert.assertEquals(Integer.toString(i), actual.left().get("key" + i));
+        }
+        Assert.assertTrue("too many comparisons: " + abbreviating.calls, abbreviating.calls < 2 * 10000);
+        Assert.assertTrue(actual.checkInvariant());
+    }
+
+    @Test
+    public void test14ForEach() {
+        final TreeBimap actual = new TreeBimap(Comparator.naturalOrder(), Comparator.reverseOrder());
+        for (int i = 0; i < 1000; i++) {
+            actual.put(randomString(4), randomString(4));
+        }
+        final List<Map.Entry<String, String>> visited = new ArrayList<>();
+        actual.forEachLeft((left, right) -> visited.add(Map.entry(left, right)));
+        Assert.assertEquals(List.copyOf(actual.left().entrySet()), visited);
+        visited.clear();
+        actual.forEachRight((right, left) -> visited.add(Map.entry(right, left)));
+        Assert.assertEquals(List.copyOf(actual.right().entrySet()), visited);
+
+        final NavigableMap<String, String> view = actual.left().subMap("b", true, "x", false).descendingMap();
+        visited.clear();
+        view.forEach((key, value) -> visited.add(Map.entry(key, value)));
+        Assert.assertEquals(List.copyOf(view.entrySet()), visited);
+    }
+
+    @Test
+    public void test15Cursor() {
+        final TreeBimap actual = new TreeBimap();
+        final BimapCursor cursor = actual.leftCursor();
+        Assert.assertFalse(cursor.isValid());
+        Assert.assertFalse(cursor.first());
+        Assert.assertFalse(cursor.seek("a"));
+        Assert.assertThrows(NoSuchElementException.class, cursor::key);
+        Assert.assertThrows(NoSuchElementException.class, cursor::next);
+
+        for (int i = 0; i < 1000; i++) {
+            actual.put(randomString(4), randomString(4));
+        }
+        for (final boolean isRight : new boolean[]{false, true}) {
+            final NavigableMap<String, String> map = isRight ? actual.right() : actual.left();
+            final BimapCursor c = isRight ? actual.rightCursor() : actual.leftCursor();
+            final List<Map.Entry<String, String>> forward = new ArrayList<>();
+            for (boolean valid = c.first(); valid; valid = c.next()) {
+                forward.add(Map.entry(c.key(), c.value()));
+            }
+            Assert.assertEquals(List.copyOf(map.entrySet()), forward);
+            final List<Map.Entry<String, String>> backward = new ArrayList<>();
+            for (boolean valid = c.last(); valid; valid = c.prev()) {
+                backward.add(Map.entry(c.key(), c.value()));
+            }
+            Assert.assertEquals(List.copyOf(map.descendingMap().entrySet()), backward);
+
+            for (int i = 0; i < 1000; i++) {
+                final String key = randomString(4);
+                final Map.Entry<String, String> expected = map.ceilingEntry(key);
+                Assert.assertEquals(expected != null, c.seek(key));
+                if (expected != null) {
+                    Assert.assertEquals(expected.getKey(), c.key());
+                    Assert.assertEquals(expected.getValue(), c.value());
+                    final String higher = map.higherKey(expected.getKey());
+                    Assert.assertEquals(higher != null, c.next());
+                    if (higher != null) {
+                        Assert.assertEquals(higher, c.key());
+                        Assert.assertTrue(c.prev());
+                        Assert.assertEquals(expected.getKey(), c.key());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void test16BulkRemoval() {
+        for (final int removed : new int[]{0, 1, 10, 300, 1000}) {
+            final TreeBimap actual = new TreeBimap(Comparator.reverseOrder(), Comparator.naturalOrder());
+            for (int i = 0; i < 1000; i++) {
+                actual.put(Integer.toString(i), Integer.toString(2 * i));
+            }
+            final List<String> lefts = new ArrayList<>();
+            final List<String> rights = new ArrayList<>();
+            for (int i = 0; i < removed; i++) {
+                lefts.add(Integer.toString(random.nextInt(1000)));
+                rights.add(Integer.toString(random.nextInt(2000)));
+            }
+            lefts.add("missing");
+
+            final Map<String, String> expected = new TreeMap<>(Comparator.reverseOrder());
+            expected.putAll(actual.left());
+            expected.keySet().removeAll(lefts);
+            Assert.assertEquals(removed > 0, actual.leftRemoveAll(lefts));
+            Assert.assertTrue(actual.checkInvariant());
+            Assert.assertEquals(List.copyOf(expected.entrySet()), List.copyOf(actual.left().entrySet()));
+
+            expected.values().removeAll(rights);
+            actual.rightRemoveAll(rights);
+            Assert.assertTrue(actual.checkInvariant());
+            Assert.assertEquals(expected, actual.left());
+            Assert.assertEquals(expected.size(), actual.right().size());
+
+            final int modulus = removed + 2;
+            expected.entrySet().removeIf(entry -> entry.getValue().length() % modulus == 0);
+            Assert.assertEquals(actual.left().values().stream().anyMatch(right -> right.length() % modulus == 0),
+                    actual.removeIf((left, right) -> right.length() % modulus == 0));
+            Assert.assertTrue(actual.checkInvariant());
+            Assert.assertEquals(expected, actual.left());
+
+            final List<String> retained = lefts.subList(0, lefts.size() / 2);
+            expected.keySet().retainAll(retained);
+            actual.leftRetainAll(retained);
+            Assert.assertTrue(actual.checkInvariant());
+            Assert.assertEquals(List.copyOf(expected.entrySet()), List.copyOf(actual.left().entrySet()));
+
+            actual.rightRetainAll(List.of());
+            Assert.assertTrue(actual.isEmpty());
+            Assert.assertTrue(actual.checkInvariant());
+            Assert.assertFalse(actual.removeIf((left, right) -> true));
+        }
+    }
+
+    @Test
+    public void test17SetAlgebra() {
+        final ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (final int size : new int[]{0, 1, 100, 20000}) {
+                for (final int otherSize : new int[]{0, 1, 30, 20000}) {
+                    final TreeBimap bimap = new TreeBimap(Comparator.reverseOrder(), Comparator.naturalOrder());
+                    final TreeBimap other = new TreeBimap(Comparator.reverseOrder(), Comparator.naturalOrder());
+                    final int range = 2 * Math.max(size, otherSize) + 1;
+                    for (int i = 0; i < size; i++) {
+                        bimap.put(Integer.toString(random.nextInt(range)), Integer.toString(random.nextInt(range)));
+                    }
+                    for (int i = 0; i < otherSize; i++) {
+                        other.put(Integer.toString(random.nextInt(range)), Integer.toString(random.nextInt(range)));
+                    }
+
+                    for (final ForkJoinPool union : Arrays.asList(null, pool)) {
+                        final TreeBimap expected = copy(bimap);
+                        expected.putAll(other);
+                        final TreeBimap actual = copy(bimap);
+                        actual.union(other, union);
+                        Assert.assertTrue(actual.checkInvariant());
+                        Assert.assertEquals(List.copyOf(expected.left().entrySet()), List.copyOf(actual.left().entrySet()));
+                        Assert.assertEquals(List.copyOf(expected.right().entrySet()), List.copyOf(actual.right().entrySet()));
+                    }
+
+                    final Map<String, String> common = new HashMap<>(bimap.left());
+                    common.entrySet().retainAll(other.left().entrySet());
+                    final TreeBimap intersection = copy(bimap);
+                    intersection.intersection(other);
+                    Assert.assertTrue(intersection.checkInvariant());
+                    Assert.assertEquals(common, intersection.left());
+                    Assert.assertEquals(common.size(), intersection.right().size());
+
+                    final Map<String, String> rest = new HashMap<>(bimap.left());
+                    rest.entrySet().removeAll(other.left().entrySet());
+                    final TreeBimap difference = copy(bimap);
+                    difference.difference(other);
+                    Assert.assertTrue(difference.checkInvariant());
+                    Assert.assertEquals(rest, difference.left());
+                    Assert.assertEquals(rest.size(), difference.right().size());
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void test18SplitAtLeft() {
+        final TreeBimap bimap = new TreeBimap();
+        for (int i = 0; i < 1000; i++) {
+            bimap.put(String.format("%04d", i), Integer.toString(random.nextInt()));
+        }
+        final TreeMap<String, String> expected = new TreeMap<>(bimap.left());
+        for (final String key : new String[]{"0900", "0100", "0050", "00505", "", "1"}) {
+            final TreeBimap high = bimap.splitAtLeft(key);
+            Assert.assertTrue(bimap.checkInvariant());
+            Assert.assertTrue(high.checkInvariant());
+            Assert.assertEquals(expected.tailMap(key), high.left());
+            Assert.assertEquals(expected.headMap(key), bimap.left());
+            Assert.assertEquals(high.size(), high.right().size());
+            Assert.assertEquals(bimap.size(), bimap.right().size());
+            expected.tailMap(key).clear();
+        }
+        Assert.assertTrue(bimap.isEmpty());
+    }
+
+    @Test
+    public void test19RemoveRange() {
+        for (final int size : new int[]{0, 10, 1000}) {
+            final TreeBimap actual = new TreeBimap(Comparator.reverseOrder(), Comparator.naturalOrder());
+            final TreeMap<String, String> expected = new TreeMap<>(Comparator.reverseOrder());
+            for (int i = 0; i < size; i++) {
+                final String left = String.format("%04d", random.nextInt(2 * size));
+                final String right = Integer.toString(random.nextInt());
+                actual.put(left, right);
+                expected.values().remove(right);
+                expected.put(left, right);
+            }
+            for (final String[] range : new String[][]{{"0500", "0500"}, {"0510", "0500"}, {"0900", "0100"}, {"2000", "1999"}, {"9", ""}}) {
+                final Map<String, String> removed = expected.subMap(range[0], true, range[1], false);
+                Assert.assertEquals(removed.size(), actual.leftRemoveRange(range[0], range[1]));
+                removed.clear();
+                Assert.assertTrue(actual.checkInvariant());
+                Assert.assertEquals(List.copyOf(expected.entrySet()), List.copyOf(actual.left().entrySet()));
+                Assert.assertEquals(expected.size(), actual.right().size());
+            }
+        }
+
+        final TreeBimap bimap = new TreeBimap();
+        for (int i = 0; i < 1000; i++) {
+            bimap.put(Integer.toString(i), String.format("%04d", 999 - i));
+        }
+        Assert.assertEquals(10, bimap.rightRemoveRange("0990", "1"));
+        Assert.assertEquals(500, bimap.rightRemoveRange("0000", "0500"));
+        Assert.assertTrue(bimap.checkInvariant());
+        Assert.assertEquals(490, bimap.size());
+        Assert.assertEquals("0500", bimap.right().firstKey());
+        Assert.assertEquals("0989", bimap.right().lastKey());
+        Assert.assertEquals(490, bimap.left().size());
+        Assert.assertThrows(IllegalArgumentException.class, () -> bimap.rightRemoveRange("1", "0"));
+    }
+
+    @Test
+    public void test20PrefixScan() {
+        final TreeBimap bimap = new TreeBimap(Comparator.naturalOrder(), Comparator.reverseOrder());
+        final String[] keys = {"", "a", "ab", "ab\uffff", "ab\uffff\uffff", "abc", "abd", "ac", "b", "\uffff", "\uffffa"};
+        for (int i = 0; i < keys.length; i++) {
+            bimap.put(keys[i], keys[keys.length - 1 - i]);
+        }
+        for (final String prefix : new String[]{"", "a", "ab", "ab\uffff", "abc", "abe", "b", "\uffff", "z"}) {
+            final Map<String, String> expected = new LinkedHashMap<>();
+            for (final Map.Entry<String, String> entry : bimap.left().entrySet()) {
+                if (entry.getKey().startsWith(prefix)) {
+                    expected.put(entry.getKey(), entry.getValue());
+                }
+            }
+            final NavigableMap<String, String> left = bimap.leftPrefixScan(prefix);
+            Assert.assertEquals(prefix, List.copyOf(expected.entrySet()), List.copyOf(left.entrySet()));
+            Assert.assertEquals(expected.size(), left.size());
+
+            final List<String> rights = new ArrayList<>();
+            for (final String right : bimap.right().keySet()) {
+                if (right.startsWith(prefix)) {
+                    rights.add(right);
+                }
+            }
+            final NavigableMap<String, String> right = bimap.rightPrefixScan(prefix);
+            Assert.assertEquals(prefix, rights, List.copyOf(right.keySet()));
+            Assert.assertEquals(rights.size(), right.size());
+        }
+        Assert.assertThrows(UnsupportedOperationException.class,
+                () -> new TreeBimap(String.CASE_INSENSITIVE_ORDER, Comparator.naturalOrder()).leftPrefixScan("a"));
+    }
+
+    @Test
+    public void test21Collation() {
+        // The French collator of the JDK is not transitive for some strings with several accents
+        final Collator collator = Collator.getInstance(Locale.GERMAN);
+        final CollatingComparator cmp = new CollatingComparator(collator);
+        final TreeBimap bimap = new TreeBimap(cmp, cmp);
+        final TreeMap<String, String> expected = new TreeMap<>(collator);
+        final String alphabet = "aAäÄbceéoöOÖsßuüÜzZ -'";
+        for (int i = 0; i < 5000; i++) {
+            final char[] chars = new char[random.nextInt(1, 10)];
+            for (int j = 0; j < chars.length; j++) {
+                chars[j] = alphabet.charAt(random.nextInt(alphabet.length()));
+            }
+            final String key = new String(chars);
+            expected.remove(key);
+            expected.put(key, key);
+            bimap.put(key, key);
+        }
+        Assert.assertTrue(bimap.checkInvariant());
+        Assert.assertEquals(List.copyOf(expected.keySet()), List.copyOf(bimap.left().keySet()));
+        Assert.assertEquals(List.copyOf(expected.keySet()), List.copyOf(bimap.right().keySet()));
+
+        final List<String> keys = List.copyOf(expected.keySet());
+        for (int i = 0; i < 1000; i++) {
+            final String a = keys.get(random.nextInt(keys.size()));
+            final String b = keys.get(random.nextInt(keys.size()));
+            final int res = Long.compareUnsigned(cmp.abbreviate(a), cmp.abbreviate(b));
+            Assert.assertTrue(a + " " + b, res == 0 || Integer.signum(res) == Integer.signum(collator.compare(a, b)));
+            Assert.assertEquals(expected.get(a), bimap.left().get(a));
+        }
+    }
+
+    /**
+     * Subscriber which records batches, requesting them one by one while unblocked.
+     */
+    private static final class Recorder implements Flow.Subscriber<List<BimapEvent>> {
+        final List<List<BimapEvent>> batches = new CopyOnWriteArrayList<>();
+        final CountDownLatch ended = new CountDownLatch(1);
+        volatile boolean blocked;
+        volatile Throwable error;
+        Flow.Subscription subscription;
+
+        Recorder(final boolean blocked) {
+            this.blocked = blocked;
+        }
+
+        @Override
+        public void onSubscribe(final Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(final List<BimapEvent> batch) {
+            batches.add(batch);
+            if (batch.contains(new BimapEvent(BimapEvent.Type.PUT, "end", "end"))) {
+                ended.countDown();
+            }
+            if (!blocked) {
+                subscription.request(1);
+            }
+        }
+
+        @Override
+        public void onError(final Throwable throwable) {
+            error = throwable;
+            ended.countDown();
+        }
+
+        @Override
+        public void onComplete() {
+        }
+    }
+
+    @Test
+    public void test22Events() throws InterruptedException {
+        final TreeBimap bimap = new TreeBimap();
+        bimap.put("before", "subscription");
+        final Recorder recorder = new Recorder(false);
+        bimap.events().subscribe(recorder);
+        final Map<String, String> lefts = new HashMap<>(bimap.left());
+        final Map<String, String> rights = new HashMap<>(bimap.right());
+
+        for (int i = 0; i < 3000; i++) {
+            final String left = Integer.toString(random.nextInt(100));
+            final String right = Integer.toString(random.nextInt(100));
+            switch (random.nextInt(10)) {
+                case 0, 1, 2 -> bimap.put(left, right);
+                case 3 -> bimap.replaceLeft(right, left);
+                case 4 -> bimap.leftRemove(left);
+                case 5 -> bimap.right().remove(right);
+                case 6 -> {
+                    final TreeBimap other = new TreeBimap();
+                    for (int j = random.nextInt(50); j > 0; j--) {
+                        other.put(Integer.toString(random.nextInt(100)), Integer.toString(random.nextInt(100)));
+                    }
+                    if (random.nextBoolean()) {
+                        bimap.putAll(other);
+                    } else {
+                        bimap.union(other);
+                    }
+                }
+                case 7 -> bimap.leftRemoveRange(left, left + "5");
+                case 8 -> bimap.removeIf((l, r) -> l.endsWith(right.substring(0, 1)));
+                default -> {
+                    final TreeBimap other = new TreeBimap();
+                    for (int j = 0; j < 100; j++) {
+                        other.put(Integer.toString(j), Integer.toString(random.nextInt(100)));
+                    }
+                    switch (random.nextInt(50)) {
+                        case 0 -> bimap.clear();
+                        case 1, 2, 3 -> bimap.intersection(other);
+                        case 4, 5, 6 -> bimap.difference(other);
+                        default -> bimap.splitAtLeft(left);
+                    }
+                }
+            }
+        }
+        bimap.put("end", "end");
+        Assert.assertTrue(recorder.ended.await(10, TimeUnit.SECONDS));
+        Assert.assertNull(recorder.error);
+
+        for (final List<BimapEvent> batch : recorder.batches) {
+            for (final BimapEvent event : batch) {
+                switch (event.type()) {
+                    case PUT -> {
+                        Assert.assertNull(event.toString(), lefts.put(event.left(), event.right()));
+                        Assert.assertNull(event.toString(), rights.put(event.right(), event.left()));
+                    }
+                    case EVICT, REMOVE -> {
+                        Assert.assertEquals(event.toString(), event.right(), lefts.remove(event.left()));
+                        Assert.assertEquals(event.toString(), event.left(), rights.remove(event.right()));
+                    }
+                    case CLEAR -> {
+                        lefts.clear();
+                        rights.clear();
+                    }
+                }
+            }
+        }
+        Assert.assertEquals(bimap.left(), lefts);
+        Assert.assertEquals(bimap.right(), rights);
+        recorder.subscription.cancel();
+    }
+
+    @Test
+    public void test23EventBackpressure() throws InterruptedException {
+        final TreeBimap bimap = new TreeBimap();
+        final Recorder slow = new Recorder(true);
+        bimap.events().subscribe(slow);
+        bimap.put("a", "b");
+        for (int i = 0; i < 1000; i++) {
+            bimap.put(Integer.toString(i), Integer.toString(-i));
+        }
+        bimap.put("end", "end");
+        final long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (slow.batches.isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        slow.blocked = false;
+        slow.subscription.request(1);
+        Assert.assertTrue(slow.ended.await(10, TimeUnit.SECONDS));
+        // Events made while there is no demand are coalesced
+        Assert.assertTrue(slow.batches.size() < 1002);
+        Assert.assertEquals(1002, slow.batches.stream().mapToInt(List::size).sum());
+
+        final Recorder stuck = new Recorder(true);
+        bimap.events().subscribe(stuck);
+        bimap.put("first", "first");
+        while (stuck.batches.isEmpty() && System.nanoTime() < deadline + TimeUnit.SECONDS.toNanos(10)) {
+            Thread.sleep(1);
+        }
+        for (int i = 0; i < BimapEventPublisher.MAX_BUFFER + 2; i++) {
+            bimap.put(Integer.toString(i), Integer.toString(i));
+        }
+        Assert.assertTrue(stuck.ended.await(10, TimeUnit.SECONDS));
+        Assert.assertTrue(stuck.error instanceof IllegalStateException);
+        slow.subscription.cancel();
+    }
+
+    @Test
+    public void test24WeightBalancing() {
+        testBalancing(TreeBimap.Balancing.WEIGHT, TreeBimap.Balancing.WEIGHT);
+    }
+
+    @Test
+    public void test25RankBalancing() {
+        testBalancing(TreeBimap.Balancing.RED_BLACK, TreeBimap.Balancing.RED_BLACK);
+        testBalancing(TreeBimap.Balancing.WAVL, TreeBimap.Balancing.WAVL);
+        testBalancing(TreeBimap.Balancing.WAVL, TreeBimap.Balancing.RED_BLACK);
+        testBalancing(TreeBimap.Balancing.AVL, TreeBimap.Balancing.WAVL);
+        testBalancing(TreeBimap.Balancing.RED_BLACK, TreeBimap.Balancing.WEIGHT);
+
+        // Delete-heavy churn, which WAVL trees handle with few rotations
+        for (final TreeBimap.Balancing balancing : new TreeBimap.Balancing[]{TreeBimap.Balancing.RED_BLACK, TreeBimap.Balancing.WAVL}) {
+            testCorrectness(
+                    new SimpleBimap(Comparator.naturalOrder(), Comparator.naturalOrder()),
+                    new TreeBimap(Comparator.naturalOrder(), Comparator.naturalOrder(), balancing, balancing),
+                    b -> {
+                        for (int round = 0; round < 5; round++) {
+                            for (int i = 0; i < 400; i++) {
+                                b.put(Integer.toString(random.nextInt(1000)), Integer.toString(random.nextInt(1000)));
+                            }
+                            for (int i = 0; i < 2000; i++) {
+                                b.leftRemove(Integer.toString(random.nextInt(1000)));
+                                b.rightRemove(Integer.toString(i % 1000));
+                            }
+                        }
+                    }
+            );
+        }
+    }
+
+    private void testBalancing(final TreeBimap.Balancing leftBalancing, final TreeBimap.Balancing rightBalancing) {
+        testCorrectness(
+                new SimpleBimap(Comparator.naturalOrder(), Comparator.reverseOrder()),
+                new TreeBimap(Comparator.naturalOrder(), Comparator.reverseOrder(), leftBalancing, rightBalancing),
+                b -> {
+                    for (int i = 0; i < 300; i++) {
+                        b.put(String.format("%04d", i), String.format("%04d", 300 - i));
+                    }
+                    for (int i = 0; i < 3000; i++) {
+                        final String left = Integer.toString(random.nextInt(500));
+                        final String right = Integer.toString(random.nextInt(500));
+                        switch (random.nextInt(5)) {
+                            case 0 -> b.put(left, right);
+                            case 1 -> b.forcePut(left, right);
+                            case 2 -> b.leftRemove(left);
+                            case 3 -> b.rightRemove(right);
+                            default -> b.leftRemove(String.format("%04d", i % 300));
+                        }
+                    }
+                }
+        );
+
+        for (final int size : new int[]{1, 100, 5000}) {
+            final TreeBimap bimap = new TreeBimap(Comparator.naturalOrder(), Comparator.naturalOrder(), leftBalancing, rightBalancing);
+            final TreeBimap other = new TreeBimap(Comparator.naturalOrder(), Comparator.naturalOrder(), leftBalancing, rightBalancing);
+            for (int i = 0; i < size; i++) {
+                bimap.put(String.format("%05d", random.nextInt(2 * size)), Integer.toString(random.nextInt()));
+                other.put(String.format("%05d", i), Integer.toString(i));
+            }
+            final TreeMap<String, String> expected = new TreeMap<>(bimap.left());
+            expected.values().removeAll(other.left().values());
+            expected.putAll(other.left());
+            bimap.union(other);
+            Assert.assertTrue(bimap.checkInvariant());
+            Assert.assertEquals(expected, bimap.left());
+
+            final String middle = String.format("%05d", size / 2);
+            final TreeBimap high = bimap.splitAtLeft(middle);
+            Assert.assertTrue(bimap.checkInvariant());
+            Assert.assertTrue(high.checkInvariant());
+            Assert.assertEquals(expected.tailMap(middle), high.left());
+            high.put("", "");
+            Assert.assertTrue(high.checkInvariant());
+
+            bimap.leftRemoveRange(String.format("%05d", size / 8), String.format("%05d", size / 4));
+            expected.subMap(String.format("%05d", size / 8), String.format("%05d", size / 4)).clear();
+            Assert.assertTrue(bimap.checkInvariant());
+            Assert.assertEquals(expected.headMap(middle), bimap.left());
+
+            bimap.difference(other);
+            Assert.assertTrue(bimap.checkInvariant());
+            Assert.assertEquals(bimap.size(), bimap.right().size());
+
+            final TreeBimap copy = new TreeBimap(Comparator.naturalOrder(), Comparator.naturalOrder(), leftBalancing, rightBalancing);
+            copy.putAll(other);
+            Assert.assertTrue(copy.checkInvariant());
+            final TreeMap<String, String> common = new TreeMap<>(other.left());
+            common.entrySet().removeIf(e -> !e.getValue().equals(high.left().get(e.getKey())));
+            copy.intersection(high);
+            Assert.assertTrue(copy.checkInvariant());
+            Assert.assertEquals(common, copy.left());
+        }
+    }
+
+    private static TreeBimap copy(final TreeBimap bimap) {
+        final TreeBimap copy = new TreeBimap(Comparator.reverseOrder(), Comparator.naturalOrder());
+        copy.putAll(bimap);
+        return copy;
+    }
 }